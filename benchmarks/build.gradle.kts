@@ -0,0 +1,22 @@
+plugins {
+    id("java")
+    id("me.champeau.jmh") version "0.6.5"
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmhImplementation(rootProject)
+}
+
+jmh {
+    jmhVersion.set("1.32")
+    benchmarkMode.set(listOf("thrpt", "avgt"))
+    timeUnit.set("us")
+    profilers.set(listOf("gc"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import solver.CanonicalForm;
+import solver.Engines;
+import solver.SolutionCache;
+import solver.SolverEngine;
+
+/**
+ * Benchmarks the {@link SolutionCache} against searching: {@link #search()} is what a miss costs on top of the
+ * lookups, {@link #exactHit()} answers a puzzle solved before, and {@link #canonicalize()} is the work a hit through
+ * an equivalent puzzle adds to a lookup, i.e. computing the canonical form and mapping the solution back
+ */
+@State(Scope.Thread)
+public class CacheBenchmark {
+
+    @Param({"easy", "hard", "bottom"})
+    public String corpus;
+
+    private SolverEngine engine;
+    private SolutionCache cache;
+    private byte[][] puzzles, solutions;
+    private boolean[][] given;
+    private byte[] cells;
+    private int next;
+
+    @Setup
+    public void setup() {
+        engine = Engines.fewestCandidates();
+        puzzles = Corpus.cells(corpus);
+        cache = new SolutionCache(2 * puzzles.length);
+        solutions = new byte[puzzles.length][];
+        given = new boolean[puzzles.length][81];
+        for (int k = 0; k < puzzles.length; k++) {
+            for (int cell = 0; cell < 81; cell++)
+                given[k][cell] = puzzles[k][cell] != 0;
+            solutions[k] = cache.solve(puzzles[k], engine);
+        }
+        cells = new byte[81];
+    }
+
+    private int next() {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        return k;
+    }
+
+    @Benchmark
+    public byte[] search() {
+        final int k = next();
+        System.arraycopy(puzzles[k], 0, cells, 0, cells.length);
+        engine.solve(cells, given[k]);
+        return cells;
+    }
+
+    @Benchmark
+    public byte[] exactHit() {
+        return cache.solve(puzzles[next()], engine);
+    }
+
+    @Benchmark
+    public byte[] canonicalize() {
+        final int k = next();
+        final CanonicalForm form = CanonicalForm.of(puzzles[k]);
+        return form.fromCanonical(form.toCanonical(solutions[k]));
+    }
+}
@@ -0,0 +1,140 @@
+package benchmark;
+
+import main.Grid;
+import main.Sudoku;
+import solver.Cage;
+import solver.Constraint;
+import solver.Geometry;
+import solver.Rules;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads the fixed puzzle corpora from the {@code corpus} resource directory. Every line of a corpus holds one puzzle
+ * as 81 characters, row by row, with {@code .} for empty cells. The corpora {@code sixteen} and {@code twentyfive} hold
+ * 16x16 and 25x25 puzzles in the format of {@link Grid} and can only be loaded by {@link #grids(String)}. The corpus
+ * {@code diagonal} holds X-Sudokus, and {@code killer} holds Killer Sudokus without givens, see {@link
+ * #killers(String)}.
+ */
+final class Corpus {
+
+    private Corpus() { }
+
+    /**
+     * Loads the puzzles of a corpus as arrays of 81 entries
+     *
+     * @param name the corpus' name, i.e. {@code easy}, {@code hard}, {@code pathological}, {@code empty} or {@code
+     *             bottom}, which holds the hard puzzles upside down, so that their givens are in the last rows
+     * @return the puzzles of the corpus
+     */
+    static byte[][] cells(String name) {
+        final List<byte[]> puzzles = new ArrayList<>();
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".txt")) {
+            if (in == null)
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                final byte[] cells = new byte[81];
+                for (int cell = 0; cell < cells.length; cell++) {
+                    final char c = line.charAt(cell);
+                    cells[cell] = (byte) (c == '.' ? 0 : c - '0');
+                }
+                puzzles.add(cells);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return puzzles.toArray(new byte[0][]);
+    }
+
+    /**
+     * Loads the puzzles of a corpus as Sudokus whose entries are all set by the user
+     *
+     * @param name the corpus' name
+     * @return the puzzles of the corpus
+     */
+    static Sudoku[] sudokus(String name) {
+        final byte[][] cells = cells(name);
+        final Sudoku[] sudokus = new Sudoku[cells.length];
+        for (int k = 0; k < cells.length; k++) {
+            sudokus[k] = new Sudoku();
+            for (int cell = 0; cell < 81; cell++) {
+                if (cells[k][cell] != 0)
+                    sudokus[k].set(cell / 9, cell % 9, cells[k][cell]);
+            }
+        }
+        return sudokus;
+    }
+
+    /**
+     * Loads the puzzles of a corpus of any size as grids whose entries are all set by the user
+     *
+     * @param name the corpus' name, e.g. {@code sixteen} or {@code twentyfive}
+     * @return the puzzles of the corpus
+     */
+    static Grid[] grids(String name) {
+        final List<Grid> grids = new ArrayList<>();
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".txt")) {
+            if (in == null)
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty())
+                    grids.add(Grid.parse(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return grids.toArray(new Grid[0]);
+    }
+
+    /**
+     * Loads the cages of a corpus of 9x9 Killer Sudokus. Every line holds the cage of every cell as 81 characters, row
+     * by row, cage {@code k} being denoted by the {@code k}-th character of {@code 0} to {@code 9}, {@code A} to {@code
+     * Z} and {@code a} to {@code z}, followed by a space and the sums of the cages, separated by commas.
+     *
+     * @param name the corpus' name, i.e. {@code killer}
+     * @return the rules of the puzzles
+     */
+    static Rules[] killers(String name) {
+        final String ids = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        final List<Rules> rules = new ArrayList<>();
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".txt")) {
+            if (in == null)
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                final String[] sums = line.substring(82).split(",");
+                final List<Constraint> cages = new ArrayList<>(sums.length);
+                for (int k = 0; k < sums.length; k++) {
+                    int size = 0;
+                    final int[] cells = new int[81];
+                    for (int cell = 0; cell < 81; cell++) {
+                        if (line.charAt(cell) == ids.charAt(k))
+                            cells[size++] = cell;
+                    }
+                    cages.add(new Cage(Integer.parseInt(sums[k]), Arrays.copyOf(cells, size)));
+                }
+                rules.add(new Rules(Geometry.CLASSIC, cages));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rules.toArray(new Rules[0]);
+    }
+}
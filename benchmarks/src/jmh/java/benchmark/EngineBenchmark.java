@@ -0,0 +1,65 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import solver.BitmaskEngine;
+import solver.Branching;
+import solver.DancingLinksEngine;
+import solver.PropagatingEngine;
+import solver.Propagation;
+import solver.SolverEngine;
+
+/**
+ * Benchmarks the solver engines on their own, without the overhead of {@link main.Sudoku}
+ */
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    @Param({"easy", "hard", "pathological", "empty"})
+    public String corpus;
+
+    @Param({"bitmask", "dlx", "propagating", "mrv"})
+    public String engine;
+
+    private SolverEngine solver;
+    private byte[][] puzzles;
+    private boolean[][] given;
+    private byte[] cells;
+    private int next;
+
+    @Setup
+    public void setup() {
+        switch (engine) {
+            case "dlx":
+                solver = new DancingLinksEngine();
+                break;
+            case "propagating":
+                solver = new PropagatingEngine();
+                break;
+            case "mrv":
+                solver = new PropagatingEngine(Propagation.SINGLES, Branching.FEWEST_CANDIDATES);
+                break;
+            default:
+                solver = new BitmaskEngine();
+        }
+        puzzles = Corpus.cells(corpus);
+        given = new boolean[puzzles.length][81];
+        for (int k = 0; k < puzzles.length; k++) {
+            for (int cell = 0; cell < 81; cell++)
+                given[k][cell] = puzzles[k][cell] != 0;
+        }
+        cells = new byte[81];
+    }
+
+    @Benchmark
+    public byte[] solve() {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        System.arraycopy(puzzles[k], 0, cells, 0, cells.length);
+        solver.solve(cells, given[k]);
+        return cells;
+    }
+}
@@ -0,0 +1,35 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import solver.Engines;
+import solver.Generator;
+
+/**
+ * Benchmarks the generation of single puzzles on one thread, for different clue targets and engines
+ */
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+
+    @Param({"17", "30"})
+    public int minClues;
+
+    @Param({"bitmask", "dlx"})
+    public String engine;
+
+    private Generator generator;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        generator = new Generator(minClues, 81, engine.equals("dlx") ? Engines::dancingLinks : Engines::bitmask);
+    }
+
+    @Benchmark
+    public byte[] generate() {
+        return generator.generate(seed++);
+    }
+}
@@ -0,0 +1,51 @@
+package benchmark;
+
+import main.Sudoku;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import solver.Instrumentation;
+
+/**
+ * Measures the cost of the {@link Instrumentation} by solving the corpora with and without it. Without a running
+ * recording, the enabled instrumentation still collects the statistics and aggregates them; the disabled one should be
+ * indistinguishable from no instrumentation at all.
+ */
+@State(Scope.Thread)
+public class InstrumentationBenchmark {
+
+    @Param({"easy", "hard"})
+    public String corpus;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private Sudoku[] puzzles;
+    private int next;
+
+    @Setup
+    public void setup() {
+        puzzles = Corpus.sudokus(corpus);
+        Instrumentation.setEnabled(instrumented);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Instrumentation.setEnabled(false);
+    }
+
+    /**
+     * Solves a fresh copy of a puzzle like {@link SudokuBenchmark#solve()}
+     */
+    @Benchmark
+    public Sudoku solve() {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        final Sudoku sudoku = puzzles[k].clone();
+        sudoku.solve();
+        return sudoku;
+    }
+}
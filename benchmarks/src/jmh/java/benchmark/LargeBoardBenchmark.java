@@ -0,0 +1,52 @@
+package benchmark;
+
+import main.Grid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import solver.GeneralEngine;
+import solver.Propagation;
+
+/**
+ * Benchmarks the {@link GeneralEngine} on boards of different sizes. The 9x9 corpora allow comparing it with the
+ * engines specialized for the classic Sudoku in {@link EngineBenchmark}.
+ */
+@State(Scope.Thread)
+public class LargeBoardBenchmark {
+
+    @Param({"hard", "sixteen", "twentyfive"})
+    public String corpus;
+
+    @Param({"FULL", "SINGLES"})
+    public Propagation propagation;
+
+    private GeneralEngine solver;
+    private byte[][] puzzles;
+    private boolean[][] given;
+    private byte[] cells;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final Grid[] grids = Corpus.grids(corpus);
+        solver = new GeneralEngine(grids[0].getGeometry(), propagation);
+        puzzles = new byte[grids.length][];
+        given = new boolean[grids.length][];
+        for (int k = 0; k < grids.length; k++) {
+            puzzles[k] = grids[k].toArray();
+            given[k] = grids[k].givenToArray();
+        }
+        cells = new byte[puzzles[0].length];
+    }
+
+    @Benchmark
+    public byte[] solve() {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        System.arraycopy(puzzles[k], 0, cells, 0, cells.length);
+        solver.solve(cells, given[k]);
+        return cells;
+    }
+}
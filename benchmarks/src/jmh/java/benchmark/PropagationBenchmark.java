@@ -0,0 +1,66 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import solver.Branching;
+import solver.PropagatingEngine;
+import solver.Propagation;
+
+/**
+ * Compares the deductions and branchings of {@link PropagatingEngine} on the corpora. Besides the time per puzzle, the
+ * number of search nodes is reported as the secondary result {@code nodes}, which shows how much the search tree
+ * shrinks.
+ */
+@State(Scope.Thread)
+public class PropagationBenchmark {
+
+    @Param({"easy", "hard", "bottom", "empty"})
+    public String corpus;
+
+    @Param({"NONE", "SINGLES", "FULL"})
+    public Propagation propagation;
+
+    @Param({"FIRST_CELL", "FEWEST_CANDIDATES", "LEAST_CONSTRAINING"})
+    public Branching branching;
+
+    /**
+     * The nodes visited by the search, which JMH reports per invocation
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    private PropagatingEngine solver;
+    private byte[][] puzzles;
+    private boolean[][] given;
+    private byte[] cells;
+    private int next;
+
+    @Setup
+    public void setup() {
+        solver = new PropagatingEngine(propagation, branching);
+        puzzles = Corpus.cells(corpus);
+        given = new boolean[puzzles.length][81];
+        for (int k = 0; k < puzzles.length; k++) {
+            for (int cell = 0; cell < 81; cell++)
+                given[k][cell] = puzzles[k][cell] != 0;
+        }
+        cells = new byte[81];
+    }
+
+    @Benchmark
+    public byte[] solve(Nodes nodes) {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        System.arraycopy(puzzles[k], 0, cells, 0, cells.length);
+        solver.solve(cells, given[k]);
+        nodes.nodes += solver.getNodes();
+        return cells;
+    }
+}
@@ -0,0 +1,133 @@
+package benchmark;
+
+import main.Sudoku;
+import main.SudokuFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Benchmarks the operations of {@link Sudoku} on the puzzles of a corpus. Every invocation works on the next puzzle of
+ * the corpus, so the results are averaged over the whole corpus.
+ */
+@State(Scope.Thread)
+public class SudokuBenchmark {
+
+    @Param({"easy", "hard", "pathological", "empty"})
+    public String corpus;
+
+    private Sudoku[] puzzles;
+    private Sudoku[] solved;
+    private Sudoku[] copies;
+    private byte[][] serialized;
+    private ByteBuffer[] binary;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        puzzles = Corpus.sudokus(corpus);
+        solved = new Sudoku[puzzles.length];
+        copies = new Sudoku[puzzles.length];
+        serialized = new byte[puzzles.length][];
+        binary = new ByteBuffer[puzzles.length];
+        for (int k = 0; k < puzzles.length; k++) {
+            solved[k] = puzzles[k].getSolved();
+            copies[k] = puzzles[k].clone();
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                solved[k].writeExternal(out);
+            }
+            serialized[k] = bytes.toByteArray();
+
+            binary[k] = ByteBuffer.allocate(SudokuFormat.SIZE);
+            SudokuFormat.write(solved[k], binary[k]);
+        }
+    }
+
+    private int next() {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        return k;
+    }
+
+    /**
+     * Solves a fresh copy of a puzzle, so the result includes the cost of {@link #cloneSudoku()}
+     */
+    @Benchmark
+    public Sudoku solve() {
+        final Sudoku sudoku = puzzles[next()].clone();
+        sudoku.solve();
+        return sudoku;
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return solved[next()].isValid();
+    }
+
+    @Benchmark
+    public boolean isValidCell() {
+        final Sudoku sudoku = puzzles[next()];
+        boolean valid = true;
+        for (int i = 0; i < 9; i++)
+            valid &= sudoku.isValid(i, i, 9 - i);
+        return valid;
+    }
+
+    @Benchmark
+    public Sudoku cloneSudoku() {
+        return solved[next()].clone();
+    }
+
+    @Benchmark
+    public boolean equalsSudoku() {
+        final int k = next();
+        return puzzles[k].equals(copies[k]);
+    }
+
+    @Benchmark
+    public int hashCodeSudoku() {
+        return solved[next()].hashCode();
+    }
+
+    /**
+     * Reads a solved Sudoku, so the result includes the cost of the {@link ObjectInputStream}
+     */
+    @Benchmark
+    public Sudoku readExternal() throws IOException, ClassNotFoundException {
+        final Sudoku sudoku = new Sudoku();
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized[next()]))) {
+            sudoku.readExternal(in);
+        }
+        return sudoku;
+    }
+
+    /**
+     * Reads a solved Sudoku in the binary format, including the validation and the checksum
+     */
+    @Benchmark
+    public Sudoku readBinary() throws IOException {
+        final ByteBuffer buffer = binary[next()];
+        buffer.position(0);
+        return SudokuFormat.read(buffer);
+    }
+
+    @Benchmark
+    public ByteBuffer writeBinary() {
+        final int k = next();
+        final ByteBuffer buffer = binary[k];
+        buffer.position(0);
+        SudokuFormat.write(solved[k], buffer);
+        return buffer;
+    }
+}
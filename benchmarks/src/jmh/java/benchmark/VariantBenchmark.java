@@ -0,0 +1,71 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import solver.Diagonals;
+import solver.GeneralEngine;
+import solver.Geometry;
+import solver.Propagation;
+import solver.Rules;
+
+import java.util.Arrays;
+
+/**
+ * Benchmarks the {@link GeneralEngine} on Sudoku variants, whose constraints are compiled into its propagation, next
+ * to classic 9x9 Sudokus
+ */
+@State(Scope.Thread)
+public class VariantBenchmark {
+
+    @Param({"classic", "diagonal", "killer"})
+    public String variant;
+
+    @Param({"SINGLES", "FULL"})
+    public Propagation propagation;
+
+    private GeneralEngine[] engines;
+    private byte[][] puzzles;
+    private boolean[][] given;
+    private byte[] cells;
+    private int next;
+
+    @Setup
+    public void setup() {
+        switch (variant) {
+            case "killer":
+                final Rules[] killers = Corpus.killers("killer");
+                engines = new GeneralEngine[killers.length];
+                for (int k = 0; k < killers.length; k++)
+                    engines[k] = new GeneralEngine(killers[k], propagation);
+                puzzles = new byte[killers.length][81];
+                break;
+            case "diagonal":
+                puzzles = Corpus.cells("diagonal");
+                engines = new GeneralEngine[puzzles.length];
+                Arrays.fill(engines, new GeneralEngine(new Rules(Geometry.CLASSIC, new Diagonals()), propagation));
+                break;
+            default:
+                puzzles = Corpus.cells("hard");
+                engines = new GeneralEngine[puzzles.length];
+                Arrays.fill(engines, new GeneralEngine(Geometry.CLASSIC, propagation));
+        }
+        given = new boolean[puzzles.length][81];
+        for (int k = 0; k < puzzles.length; k++) {
+            for (int cell = 0; cell < 81; cell++)
+                given[k][cell] = puzzles[k][cell] != 0;
+        }
+        cells = new byte[81];
+    }
+
+    @Benchmark
+    public byte[] solve() {
+        final int k = next;
+        next = k + 1 == puzzles.length ? 0 : k + 1;
+        System.arraycopy(puzzles[k], 0, cells, 0, cells.length);
+        engines[k].solve(cells, given[k]);
+        return cells;
+    }
+}
@@ -1 +1,3 @@
-rootProject.name = "Sudoku Solver"
\ No newline at end of file
+rootProject.name = "Sudoku Solver"
+
+include("benchmarks")
@@ -1,5 +1,6 @@
 package gui;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
 import javafx.scene.control.MenuItem;
@@ -7,36 +8,60 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.input.KeyEvent;
 import javafx.stage.FileChooser;
+import main.History;
 import main.Main;
+import main.PuzzlePool;
 import main.Sudoku;
+import main.SudokuFormat;
+import solver.SearchControl;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 public class MainController {
 
-    private final Sudoku[] history = new Sudoku[10];
-    private int pointer = -1;
+    /**
+     * The time after which solving is given up, so that a pathological grid does not keep a core busy forever
+     */
+    private static final Duration SOLVE_TIMEOUT = Duration.ofMinutes(1);
+
+    /**
+     * The minimum time between two updates of the progress shown while solving
+     */
+    private static final Duration PROGRESS_INTERVAL = Duration.ofMillis(100);
+
+    private final History history = new History();
     private FileChooser chooser;
     @FXML
     private Button undoButton;
     @FXML
+    private Button redoButton;
+    @FXML
     private MenuItem saveButton;
+    @FXML
+    private Button solveButton;
+    @FXML
+    private Button cancelButton;
+
+    /**
+     * The solve that is running in the background, or {@code null}
+     */
+    private CompletableFuture<Boolean> solving;
 
     @FXML
     private void initialize() {
-        Main.instance().getSudoku().addChangeListener(s -> {
-            if (pointer < history.length - 1) {
-                pointer++;
-                history[pointer] = s;
-            }
-        });
+        history.track(Main.instance().getSudoku());
+        Main.instance().getSudoku().addListener(change -> updateHistoryButtons());
+        updateHistoryButtons();
         chooser = new FileChooser();
         chooser.setInitialDirectory(new File(Main.instance().getFileLocation() == null ? System.getProperty("user.home") : Main.instance().getFileLocation()));
         chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("The Sudoku format", "*." + Main.FILE_EXTENSION));
@@ -44,7 +69,7 @@ public class MainController {
 
     @FXML
     private void neww() {
-        Main.instance().setSudoku(new Sudoku());
+        setSudoku(new Sudoku());
     }
 
     @FXML
@@ -58,8 +83,8 @@ public class MainController {
         if (file != null) {
             //Path path = Paths.get(file.getPath() + "." + Main.FILE_EXTENSION);
             Path path = file.toPath();
-            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
-                Main.instance().getSudoku().writeExternal(out);
+            try {
+                SudokuFormat.save(Main.instance().getSudoku(), path);
             } catch (IOException e) {
                 e.printStackTrace();
                 Main.instance().error("An error occurred; the Sudoku could not be saved: " + e.getMessage());
@@ -73,12 +98,10 @@ public class MainController {
         File file = chooser.showOpenDialog(Main.instance().getStage());
         if (file != null) {
             Path path = file.toPath();
-            try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(path))) {
-                Sudoku s = new Sudoku();
-                s.readExternal(in);
-                Main.instance().setSudoku(s);
+            try {
+                setSudoku(SudokuFormat.load(path));
                 Main.instance().setFileLocation(path.toString());
-            } catch (IOException | ClassNotFoundException e) {
+            } catch (IOException e) {
                 e.printStackTrace();
                 Main.instance().error("An error occurred; the Sudoku could not be loaded: " + e.getMessage());
             }
@@ -87,20 +110,74 @@ public class MainController {
 
     @FXML
     private void undo() {
-        System.out.println("Undo");
+        if (history.undo())
+            Main.instance().getCenterController().onSudokuChanged();
+        else
+            Toolkit.getDefaultToolkit().beep();
+        updateHistoryButtons();
     }
 
     @FXML
     private void redo() {
-        System.out.println("Redo");
+        if (history.redo())
+            Main.instance().getCenterController().onSudokuChanged();
+        else
+            Toolkit.getDefaultToolkit().beep();
+        updateHistoryButtons();
     }
 
+    /**
+     * Solves the Sudoku in the background, so that the window stays responsive and the search can be cancelled
+     */
     @FXML
     private void solve() {
-        if (Main.instance().getSudoku().solve())
-            Main.instance().getCenterController().onSudokuChanged();
-        else
+        if (solving != null) {
             Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        final SearchControl control = new SearchControl(SOLVE_TIMEOUT, Long.MAX_VALUE,
+                (nodes, elapsed) -> Platform.runLater(() -> showProgress(nodes)), PROGRESS_INTERVAL);
+        final CompletableFuture<Boolean> future = Main.instance().getSudoku().solveAsync(control, Platform::runLater);
+        solving = future;
+        solveButton.setDisable(true);
+        cancelButton.setDisable(false);
+        future.whenCompleteAsync((solved, failure) -> solved(future, solved, failure), Platform::runLater);
+    }
+
+    @FXML
+    private void cancel() {
+        if (solving != null)
+            solving.cancel(false);
+    }
+
+    private void showProgress(long nodes) {
+        if (solving != null)
+            cancelButton.setText(String.format("Cancel (%,d nodes)", nodes));
+    }
+
+    private void solved(CompletableFuture<Boolean> future, Boolean solved, Throwable failure) {
+        if (solving != future)
+            return;
+        solving = null;
+        solveButton.setDisable(false);
+        cancelButton.setDisable(true);
+        cancelButton.setText("Cancel");
+
+        if (failure instanceof CompletionException)
+            failure = failure.getCause();
+        if (failure == null) {
+            if (solved)
+                Main.instance().getCenterController().onSudokuChanged();
+            else
+                Toolkit.getDefaultToolkit().beep();
+        } else if (failure instanceof TimeoutException) {
+            Main.instance().error("The Sudoku could not be solved in time: " + failure.getMessage());
+        } else if (failure instanceof ConcurrentModificationException) {
+            Toolkit.getDefaultToolkit().beep();
+        } else if (!(failure instanceof CancellationException)) {
+            failure.printStackTrace();
+            Main.instance().error("An error occurred while solving: " + failure.getMessage());
+        }
     }
 
     @FXML
@@ -109,9 +186,27 @@ public class MainController {
         Main.instance().getCenterController().onSudokuChanged();
     }
 
+    /**
+     * Replaces the Sudoku with a generated puzzle, which is taken from the pool in the background if none is ready
+     */
     @FXML
     private void generate() {
-        System.out.println("Generate");
+        Main.instance().getPuzzlePool().take(PuzzlePool.Tier.HARD)
+                .whenCompleteAsync(this::generated, Platform::runLater);
+    }
+
+    private void generated(byte[] puzzle, Throwable failure) {
+        if (failure instanceof CompletionException)
+            failure = failure.getCause();
+        if (failure != null) {
+            failure.printStackTrace();
+            Main.instance().error("An error occurred while generating a Sudoku: " + failure.getMessage());
+            return;
+        }
+        final Sudoku sudoku = new Sudoku();
+        for (int cell = 0; cell < puzzle.length; cell++)
+            sudoku.set(cell / 9, cell % 9, puzzle[cell]);
+        setSudoku(sudoku);
     }
 
     @FXML
@@ -119,11 +214,29 @@ public class MainController {
         System.out.println("Help");
     }
 
+    /**
+     * Replaces the Sudoku that is being edited, so that this can be undone as well
+     */
+    private void setSudoku(Sudoku sudoku) {
+        cancel();
+        history.track(sudoku);
+        sudoku.addListener(change -> updateHistoryButtons());
+        Main.instance().setSudoku(sudoku);
+        updateHistoryButtons();
+    }
+
+    private void updateHistoryButtons() {
+        undoButton.setDisable(!history.canUndo());
+        redoButton.setDisable(!history.canRedo());
+    }
+
     public void handleKeyEvent(KeyEvent event) {
         if (new KeyCodeCombination(KeyCode.F1).match(event)) {
             help();
         } else if (new KeyCodeCombination(KeyCode.S).match(event)) {
             solve();
+        } else if (new KeyCodeCombination(KeyCode.ESCAPE).match(event)) {
+            cancel();
         } else if (new KeyCodeCombination(KeyCode.Z, KeyCodeCombination.CONTROL_DOWN).match(event)) {
             undo();
         } else if (new KeyCodeCombination(KeyCode.Y, KeyCodeCombination.CONTROL_DOWN).match(event)) {
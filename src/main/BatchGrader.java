@@ -0,0 +1,193 @@
+package main;
+
+import solver.Cells;
+import solver.Grade;
+import solver.ParallelGrader;
+import solver.Technique;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A headless entry point that grades a file of puzzles on all cores, see {@link ParallelGrader}. The input is read by
+ * a {@link PuzzleReader}. For every puzzle, one line is written to the output: the rating followed by how often every
+ * technique was applied, e.g. {@code 2.6 HIDDEN_SINGLE=41 NAKED_SINGLE=3 LOCKED_CANDIDATES=1}, or {@code unsolvable},
+ * {@code multiple} or {@value BatchSolver#MALFORMED}.
+ * <p></p>
+ * The puzzles are read and graded in blocks of fixed size, so the memory used does not depend on the size of the file.
+ */
+public final class BatchGrader {
+
+    /**
+     * The command line option that makes {@link MainWrapper} start the batch grader instead of the GUI
+     */
+    public static final String OPTION = "--grade";
+
+    private static final int BLOCK_SIZE = 1 << 14;
+
+    private final ParallelGrader grader;
+    private final byte[][] puzzles = new byte[BLOCK_SIZE][Cells.COUNT];
+    private final boolean[] malformed = new boolean[BLOCK_SIZE];
+    private final byte[][] block = new byte[BLOCK_SIZE][];
+    private final Grade[] grades = new Grade[BLOCK_SIZE];
+    private final long[] hardest = new long[Technique.values().length];
+    private Writer out;
+    private int size;
+    private long puzzleCount, graded;
+
+    /**
+     * Creates a new batch grader
+     *
+     * @param grader the grader, which is not closed by this batch grader
+     */
+    public BatchGrader(ParallelGrader grader) {
+        this.grader = grader;
+    }
+
+    /**
+     * Reads all puzzles from the input channel and writes their grades to the output. Neither of them is closed.
+     *
+     * @param in  the channel the puzzles are read from
+     * @param out the writer the grades are written to
+     * @throws IOException if reading or writing fails
+     */
+    public void run(ReadableByteChannel in, Writer out) throws IOException {
+        this.out = out;
+        size = 0;
+        try {
+            new PuzzleReader().read(in, new PuzzleReader.Handler() {
+                @Override
+                public boolean puzzle(byte[] cells, long line, CharSequence annotation) {
+                    System.arraycopy(cells, 0, puzzles[size], 0, Cells.COUNT);
+                    add(false);
+                    return true;
+                }
+
+                @Override
+                public void malformed(long line, String reason) {
+                    add(true);
+                }
+            });
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.out = null;
+        }
+    }
+
+    /**
+     * Returns the number of puzzles, including malformed ones, that have been read by this batch grader
+     *
+     * @return the number of puzzles read
+     */
+    public long getPuzzles() {
+        return puzzleCount;
+    }
+
+    /**
+     * Returns the number of puzzles with a unique solution, which have been graded
+     *
+     * @return the number of puzzles graded
+     */
+    public long getGraded() {
+        return graded;
+    }
+
+    /**
+     * Returns the number of graded puzzles whose hardest technique is the specified one
+     *
+     * @param technique the technique
+     * @return the number of puzzles requiring the technique, but no harder one
+     */
+    public long getHardest(Technique technique) {
+        return hardest[technique.ordinal()];
+    }
+
+    private void add(boolean malformed) {
+        this.malformed[size] = malformed;
+        puzzleCount++;
+        if (++size == BLOCK_SIZE) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Grades the puzzles read so far and writes their grades
+     */
+    private void flush() throws IOException {
+        for (int k = 0; k < size; k++)
+            block[k] = malformed[k] ? null : puzzles[k];
+        grader.grade(block, 0, size, grades);
+
+        for (int k = 0; k < size; k++) {
+            if (malformed[k]) {
+                out.write(BatchSolver.MALFORMED);
+            } else {
+                final Grade grade = grades[k];
+                if (grade.isUnique()) {
+                    graded++;
+                    if (grade.getHardest() != null)
+                        hardest[grade.getHardest().ordinal()]++;
+                }
+                out.write(grade.toString());
+            }
+            out.write('\n');
+            grades[k] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Grades the puzzles in the file given as first argument, writing the grades to the file given as second argument
+     * or to the standard output, and reports the throughput and how many puzzles require which technique on the
+     * standard error stream
+     *
+     * @param args the command line arguments, i.e. {@code <input> [output]}
+     * @throws IOException if reading or writing fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: " + OPTION + " <input> [output]");
+            System.exit(2);
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final BatchGrader batch;
+        try (ParallelGrader grader = new ParallelGrader();
+             FileChannel in = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+            batch = new BatchGrader(grader);
+            if (args.length == 2) {
+                try (Writer out = Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.US_ASCII)) {
+                    batch.run(in, out);
+                }
+            } else {
+                final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+                batch.run(in, out);
+                out.flush();
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("Graded %d of %d puzzles in %.3f s (%.0f puzzles/s)%n", batch.getGraded(),
+                batch.getPuzzles(), seconds, batch.getPuzzles() / seconds);
+        for (Technique technique : Technique.values()) {
+            if (batch.getHardest(technique) > 0)
+                System.err.printf("%-18s %d%n", technique, batch.getHardest(technique));
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package main;
+
+import solver.Cells;
+import solver.Engines;
+import solver.Instrumentation;
+import solver.SolutionCache;
+import solver.SolveEvent;
+import solver.SolverEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A headless entry point that solves a file of puzzles without ever loading JavaFX. The input is read by a {@link
+ * PuzzleReader}, so it usually holds one puzzle per line as 81 characters, row by row, with {@code 0} or {@code .} for
+ * empty cells, but grids and comments are understood as well. For every puzzle, one line is written to the output: the
+ * 81 digits of its solution, {@value #UNSOLVABLE} if it has none, or {@value #MALFORMED} for every record that is not
+ * a puzzle. Empty lines and comments are skipped.
+ * <p></p>
+ * The input is streamed through fixed-size buffers, so the memory used does not depend on the size of the file.
+ * <p></p>
+ * With a {@link SolutionCache}, repeated puzzles and puzzles equivalent to one solved before are not searched again.
+ */
+public final class BatchSolver {
+
+    /**
+     * The command line option that makes {@link MainWrapper} start the batch solver instead of the GUI
+     */
+    public static final String OPTION = "--solve";
+
+    public static final String UNSOLVABLE = "unsolvable";
+    public static final String MALFORMED = "malformed";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final SolverEngine engine;
+    private final SolutionCache cache;
+    private final PuzzleReader reader = new PuzzleReader(BUFFER_SIZE);
+    private final ByteBuffer output = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] cells = new byte[Cells.COUNT];
+    private final boolean[] given = new boolean[Cells.COUNT];
+    private WritableByteChannel out;
+    private long puzzles, solved;
+
+    /**
+     * Creates a new batch solver that uses the specified engine
+     *
+     * @param engine the engine, which must not be used by another thread while this batch solver runs
+     */
+    public BatchSolver(SolverEngine engine) {
+        this(engine, null);
+    }
+
+    /**
+     * Creates a new batch solver that uses the specified engine for the puzzles missing in the cache
+     *
+     * @param engine the engine, which must not be used by another thread while this batch solver runs
+     * @param cache  the cache of solutions, which may be shared with other threads, or {@code null} to always search
+     */
+    public BatchSolver(SolverEngine engine, SolutionCache cache) {
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    /**
+     * Reads all puzzles from the input channel and writes their solutions to the output channel. The channels are not
+     * closed.
+     *
+     * @param in  the channel the puzzles are read from
+     * @param out the channel the solutions are written to
+     * @throws IOException if reading or writing fails
+     */
+    public void run(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        this.out = out;
+        output.clear();
+        try {
+            reader.read(in, new PuzzleReader.Handler() {
+                @Override
+                public boolean puzzle(byte[] puzzle, long line, CharSequence annotation) {
+                    process(puzzle);
+                    return true;
+                }
+
+                @Override
+                public void malformed(long line, String reason) {
+                    process(null);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.out = null;
+        }
+
+        flush(out);
+    }
+
+    /**
+     * Returns the number of puzzles, including malformed ones, that have been read by this batch solver
+     *
+     * @return the number of puzzles read
+     */
+    public long getPuzzles() {
+        return puzzles;
+    }
+
+    /**
+     * Returns the number of puzzles that have been solved by this batch solver
+     *
+     * @return the number of puzzles solved
+     */
+    public long getSolved() {
+        return solved;
+    }
+
+    /**
+     * Solves a puzzle and writes the result, or {@value #MALFORMED} if the puzzle is {@code null}
+     */
+    private void process(byte[] puzzle) {
+        puzzles++;
+
+        if (output.remaining() < Cells.COUNT + 1) {
+            try {
+                flush(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        if (puzzle == null) {
+            write(MALFORMED);
+            return;
+        }
+        if (cache != null) {
+            final byte[] solution = cache.solve(puzzle, engine);
+            if (solution != null) {
+                solved++;
+                for (byte cell : solution)
+                    output.put((byte) ('0' + cell));
+                output.put((byte) '\n');
+            } else {
+                write(UNSOLVABLE);
+            }
+            return;
+        }
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            cells[cell] = puzzle[cell];
+            given[cell] = puzzle[cell] != 0;
+        }
+        final SolveEvent event = Instrumentation.begin("solve");
+        final boolean found = engine.solve(cells, given);
+        if (event != null)
+            Instrumentation.end(event, engine, found ? 1 : 0);
+        if (found) {
+            solved++;
+            for (byte cell : cells)
+                output.put((byte) ('0' + cell));
+            output.put((byte) '\n');
+        } else {
+            write(UNSOLVABLE);
+        }
+    }
+
+    private void flush(WritableByteChannel out) throws IOException {
+        output.flip();
+        while (output.hasRemaining())
+            out.write(output);
+        output.clear();
+    }
+
+    private void write(String text) {
+        for (int i = 0; i < text.length(); i++)
+            output.put((byte) text.charAt(i));
+        output.put((byte) '\n');
+    }
+
+    /**
+     * Solves the puzzles in the file given as first argument, writing the solutions to the file given as second
+     * argument or to the standard output, and reports the throughput on the standard error stream. By default, the
+     * propagating engine branching on the cell with the fewest candidates is used. The option {@code
+     * --engine=propagating} selects the propagating engine with the lexicographic order, {@code --engine=bitmask} the
+     * plain backtracking engine and {@code --engine=dlx} the Dancing Links engine. The option {@code --stats} enables
+     * the {@link Instrumentation} and reports the aggregated counters of all searches as well. The option {@code
+     * --cache=<size>} answers repeated and equivalent puzzles from a {@link SolutionCache} of the specified capacity and
+     * reports its hit rate.
+     *
+     * @param args the command line arguments, i.e. {@code [--engine=mrv|propagating|bitmask|dlx] [--stats]
+     *             [--cache=<size>] <input> [output]}
+     * @throws IOException if reading or writing fails
+     */
+    public static void main(String[] args) throws IOException {
+        SolverEngine engine = Engines.fewestCandidates();
+        int first = 0;
+        if (args.length > first && args[first].startsWith("--engine=")) {
+            switch (args[first].substring("--engine=".length())) {
+                case "bitmask":
+                    engine = Engines.bitmask();
+                    break;
+                case "dlx":
+                    engine = Engines.dancingLinks();
+                    break;
+                case "propagating":
+                    engine = Engines.propagating();
+                    break;
+                case "mrv":
+                    break;
+                default:
+                    usage();
+                    return;
+            }
+            first++;
+        }
+        final boolean stats = args.length > first && args[first].equals("--stats");
+        if (stats) {
+            Instrumentation.setEnabled(true);
+            first++;
+        }
+        SolutionCache cache = null;
+        if (args.length > first && args[first].startsWith("--cache=")) {
+            try {
+                cache = new SolutionCache(Integer.parseInt(args[first].substring("--cache=".length())));
+            } catch (IllegalArgumentException e) {
+                usage();
+                return;
+            }
+            first++;
+        }
+        if (args.length - first < 1 || args.length - first > 2) {
+            usage();
+            return;
+        }
+
+        final BatchSolver batch = new BatchSolver(engine, cache);
+        final long start = System.nanoTime();
+        try (FileChannel in = FileChannel.open(Paths.get(args[first]), StandardOpenOption.READ)) {
+            if (args.length - first == 2) {
+                final Path path = Paths.get(args[first + 1]);
+                try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    batch.run(in, out);
+                }
+            } else {
+                final WritableByteChannel out = Channels.newChannel(System.out);
+                batch.run(in, out);
+                System.out.flush();
+            }
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("Solved %d of %d puzzles in %.3f s (%.0f puzzles/s)%n", batch.getSolved(),
+                batch.getPuzzles(), seconds, batch.getPuzzles() / seconds);
+        if (stats)
+            System.err.println(Instrumentation.getMetrics());
+        if (cache != null)
+            System.err.println("Cache: " + cache);
+    }
+
+    private static void usage() {
+        System.err.println("Usage: " + OPTION + " [--engine=mrv|propagating|bitmask|dlx] [--stats] [--cache=<size>] <input>"
+                + " [output]");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,317 @@
+package main;
+
+import solver.Engines;
+import solver.Geometry;
+import solver.Rules;
+import solver.SolverEngine;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A Sudoku of any supported size, e.g. 16x16 or 25x25, see {@link Geometry}. Like {@link Sudoku}, it distinguishes
+ * the entries set by the user from the ones generated by {@link #solve()}, and computes one solution after another.
+ * <p></p>
+ * {@link Sudoku} remains the model of the classic 9x9 Sudoku: it packs its entries into a few words, and its engines
+ * use constant tables, which a board of arbitrary size cannot. This class keeps one byte per entry instead and is
+ * solved by a {@link solver.GeneralEngine} by default. It has no listeners, history or binary format.
+ * <p></p>
+ * A grid may follow the {@link Rules} of a variant, e.g. an X-Sudoku or a Killer Sudoku, which are fixed when it is
+ * created.
+ * <p></p>
+ * As text, a grid is a single line of {@code side * side} characters, row by row, with {@code .} or {@code 0} for empty
+ * cells and the {@link Geometry#SYMBOLS symbols} {@code 1} to {@code 9} and {@code A} to {@code P} for the digits 1 to
+ * 25, see {@link #parse(CharSequence)} and {@link #toString()}.
+ */
+public final class Grid {
+
+    private final Geometry geometry;
+    private final Rules rules;
+    private final int side;
+    private final byte[] cells;
+    private final boolean[] given;
+    private Supplier<? extends SolverEngine> engine;
+
+    /**
+     * Creates a new empty grid
+     *
+     * @param geometry the geometry of the grid
+     */
+    public Grid(Geometry geometry) {
+        this(Rules.classic(geometry));
+    }
+
+    /**
+     * Creates a new empty grid of a variant
+     *
+     * @param rules the rules of the grid
+     */
+    public Grid(Rules rules) {
+        this.rules = Objects.requireNonNull(rules);
+        this.geometry = rules.getGeometry();
+        this.side = geometry.getSide();
+        this.cells = new byte[geometry.getCellCount()];
+        this.given = new boolean[geometry.getCellCount()];
+        this.engine = () -> Engines.general(rules);
+    }
+
+    /**
+     * Creates a new empty grid
+     *
+     * @param boxSize the number of rows and columns of a box, e.g. 4 for a 16x16 grid
+     * @throws IllegalArgumentException if the box size is not supported
+     */
+    public Grid(int boxSize) {
+        this(Geometry.of(boxSize));
+    }
+
+    /**
+     * Parses a grid whose entries are all set by the user. The geometry is derived from the number of characters.
+     *
+     * @param text the entries, row by row, see above
+     * @return the grid
+     * @throws IllegalArgumentException if the number of characters does not match a supported geometry or a character
+     *                                  is not a digit of it
+     */
+    public static Grid parse(CharSequence text) {
+        return parse(text, Rules.classic(Geometry.ofCells(text.length())));
+    }
+
+    /**
+     * Parses a grid of a variant whose entries are all set by the user
+     *
+     * @param text  the entries, row by row, see above
+     * @param rules the rules of the grid
+     * @return the grid
+     * @throws IllegalArgumentException if the number of characters does not match the geometry of the rules or a
+     *                                  character is not a digit of it
+     */
+    public static Grid parse(CharSequence text, Rules rules) {
+        final Geometry geometry = rules.getGeometry();
+        if (text.length() != geometry.getCellCount())
+            throw new IllegalArgumentException("Expected " + geometry.getCellCount() + " characters for a " + geometry
+                    + " Sudoku, got " + text.length());
+        final Grid grid = new Grid(rules);
+        for (int cell = 0; cell < text.length(); cell++) {
+            final int digit = geometry.digit(text.charAt(cell));
+            if (digit < 0)
+                throw new IllegalArgumentException("Character '" + text.charAt(cell) + "' at " + cell
+                        + " is not a digit of a " + geometry + " Sudoku");
+            grid.cells[cell] = (byte) digit;
+            grid.given[cell] = digit != 0;
+        }
+        return grid;
+    }
+
+    /**
+     * Returns the geometry of this grid
+     *
+     * @return the geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the rules of this grid
+     *
+     * @return the rules
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the entry at position {@literal (row, column)}
+     *
+     * @param row    the row, between 0 and {@code side - 1} (inclusive)
+     * @param column the column, between 0 and {@code side - 1} (inclusive)
+     * @return the entry, between 0 and {@code side} (inclusive)
+     * @throws IllegalArgumentException if a parameter exceeds its specified range
+     */
+    public byte get(int row, int column) {
+        return cells[index(row, column)];
+    }
+
+    /**
+     * Sets the entry at position {@literal (row, column)}, which counts as set by the user unless it is 0
+     *
+     * @param row    the row, between 0 and {@code side - 1} (inclusive)
+     * @param column the column, between 0 and {@code side - 1} (inclusive)
+     * @param number the new value, between 0 and {@code side} (inclusive)
+     * @throws IllegalArgumentException if a parameter exceeds its specified range
+     */
+    public void set(int row, int column, int number) {
+        if (number < 0 || number > side)
+            throw new IllegalArgumentException("The number may not be negative or greater than " + side);
+        final int cell = index(row, column);
+        cells[cell] = (byte) number;
+        given[cell] = number != 0;
+    }
+
+    /**
+     * Returns whether the entry at position {@literal (row, column)} has been set by the user
+     *
+     * @param row    the row, between 0 and {@code side - 1} (inclusive)
+     * @param column the column, between 0 and {@code side - 1} (inclusive)
+     * @return whether the entry has been set by the user
+     * @throws IllegalArgumentException if a parameter exceeds its specified range
+     */
+    public boolean isGiven(int row, int column) {
+        return given[index(row, column)];
+    }
+
+    /**
+     * Evaluates whether the specified number can be placed at the specified position, i.e. whether no other cell of
+     * its row, column, box or any other unit of the rules contains the number and its cage, if any, can still be filled
+     * in with it
+     *
+     * @param row    the row, between 0 and {@code side - 1} (inclusive)
+     * @param column the column, between 0 and {@code side - 1} (inclusive)
+     * @param number the number, between 0 and {@code side} (inclusive)
+     * @return whether the number can be placed at the specified position without breaking the rules, {@code true} if
+     * {@code number == 0}, {@code false} if an argument exceeds the specified range
+     */
+    public boolean isValid(int row, int column, int number) {
+        if (number < 0 || number > side || row < 0 || row >= side || column < 0 || column >= side)
+            return false;
+        return rules.isValid(cells, side * row + column, number);
+    }
+
+    /**
+     * Evaluates whether every entry of this grid is allowed to be where it is
+     *
+     * @return whether this grid complies with the rules
+     */
+    public boolean isValid() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (!isValid(cell / side, cell % side, cells[cell]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether every cell is filled in and the rules are satisfied
+     *
+     * @return whether this grid is solved
+     */
+    public boolean isSolved() {
+        for (byte cell : cells) {
+            if (cell == 0)
+                return false;
+        }
+        return isValid();
+    }
+
+    /**
+     * Deletes all generated entries, so that the next call to {@link #solve()} starts with the first solution again
+     *
+     * @return this grid
+     */
+    public Grid reset() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (!given[cell])
+                cells[cell] = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Solves this grid like {@link Sudoku#solve()}: if it is already solved, the next solution is computed, and if
+     * there is none, this grid remains unchanged
+     *
+     * @return whether a solution has been found
+     */
+    public boolean solve() {
+        return engine.get().solve(cells, given);
+    }
+
+    /**
+     * Counts the solutions of this grid, stopping as soon as the limit is reached. Only the entries set by the user are
+     * taken into account.
+     *
+     * @param limit the number of solutions after which counting stops
+     * @return the number of solutions, but at most {@code limit}; 0 if the entries set by the user break the rules
+     */
+    public long countSolutions(long limit) {
+        return engine.get().count(cells, given, limit);
+    }
+
+    /**
+     * Evaluates whether this grid has exactly one solution
+     *
+     * @return whether this grid has a unique solution
+     */
+    public boolean isUnique() {
+        return countSolutions(2) == 1;
+    }
+
+    /**
+     * Sets the engine used for solving, which must accept arrays with as many entries as this grid has cells. By
+     * default, the current thread's {@link Engines#general(Rules) general engine} for the rules of the grid is used.
+     *
+     * @param engine the supplier of the engine
+     */
+    public void setEngine(Supplier<? extends SolverEngine> engine) {
+        this.engine = Objects.requireNonNull(engine);
+    }
+
+    /**
+     * Returns a copy of the entries, row by row
+     *
+     * @return the entries
+     */
+    public byte[] toArray() {
+        return cells.clone();
+    }
+
+    /**
+     * Returns a copy of the flags telling which entries have been set by the user, row by row
+     *
+     * @return the flags
+     */
+    public boolean[] givenToArray() {
+        return given.clone();
+    }
+
+    private int index(int row, int column) {
+        if (row < 0 || row >= side || column < 0 || column >= side)
+            throw new IllegalArgumentException("Position (" + row + ", " + column + ") is not inside a " + geometry
+                    + " Sudoku");
+        return side * row + column;
+    }
+
+    /**
+     * Returns whether the other object is a grid of the same geometry with the same entries, regardless of who set
+     * them and of the rules
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final Grid grid = (Grid) o;
+        return geometry == grid.geometry && Arrays.equals(cells, grid.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(cells);
+    }
+
+    /**
+     * Returns the entries as one line, in the format read by {@link #parse(CharSequence)}
+     *
+     * @return the entries as text
+     */
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(cells.length);
+        for (byte cell : cells)
+            builder.append(geometry.symbol(cell));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The undo / redo history of a {@link Sudoku}. Every change is recorded as it is reported to the history's {@link
+ * SudokuListener}, either as the encoded cells of the {@link SudokuChange}, or, if that is smaller, as a checkpoint
+ * holding the complete state of the Sudoku before and after the change. Replacing the tracked Sudoku by another one
+ * with {@link #track(Sudoku)} is recorded as a checkpoint as well, so that it can be undone like any other change.
+ * <p></p>
+ * Undoing or redoing a step only touches the cells that changed in that step. Instead of a fixed number of steps, the
+ * history is limited by an estimate of the memory it occupies; once the budget is exceeded, the oldest steps are
+ * forgotten.
+ * <p></p>
+ * This class is not thread-safe.
+ */
+public final class History implements SudokuListener {
+
+    /**
+     * The default memory budget of one MiB, enough for tens of thousands of single-cell changes
+     */
+    public static final long DEFAULT_BUDGET = 1 << 20;
+
+    /**
+     * The estimated overhead of an array and its slot in a deque, in bytes
+     */
+    private static final int ARRAY_OVERHEAD = 16 + 8;
+
+    /**
+     * The estimated size of a checkpoint, in bytes
+     */
+    private static final int CHECKPOINT_SIZE = ARRAY_OVERHEAD + 2 * Sudoku.WORDS * Long.BYTES;
+
+    private final long budget;
+
+    /**
+     * The steps that can be undone, the most recent one last. Each step is either an {@code int[]} of encoded cells or
+     * a {@code long[]} checkpoint, so that no wrapper objects are needed.
+     */
+    private final Deque<Object> undoable = new ArrayDeque<>();
+
+    /**
+     * The steps that can be redone, the next one first
+     */
+    private final Deque<Object> redoable = new ArrayDeque<>();
+    private long size;
+    private Sudoku sudoku;
+
+    /**
+     * Creates a new history with the {@link #DEFAULT_BUDGET default memory budget}
+     */
+    public History() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * Creates a new history that forgets its oldest steps once they occupy more than the specified number of bytes
+     *
+     * @param budget the memory budget in bytes
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public History(long budget) {
+        if (budget <= 0)
+            throw new IllegalArgumentException("The budget must be positive");
+        this.budget = budget;
+    }
+
+    /**
+     * Starts recording the changes of the specified Sudoku instead of the one tracked so far. If another Sudoku has
+     * been tracked before, switching to the new one is recorded as a step that restores the old one's state.
+     *
+     * @param sudoku the Sudoku whose changes should be recorded
+     */
+    public void track(Sudoku sudoku) {
+        if (sudoku == this.sudoku)
+            return;
+        if (this.sudoku != null) {
+            this.sudoku.removeListener(this);
+            final long[] checkpoint = new long[2 * Sudoku.WORDS];
+            this.sudoku.copyState(checkpoint, 0);
+            sudoku.copyState(checkpoint, Sudoku.WORDS);
+            record(checkpoint);
+        }
+        this.sudoku = sudoku;
+        sudoku.addListener(this);
+    }
+
+    /**
+     * Records a change of the tracked Sudoku. This method is called by the Sudoku and should not be called otherwise.
+     *
+     * @param change the cells that have changed
+     */
+    @Override
+    public void changed(SudokuChange change) {
+        if (ARRAY_OVERHEAD + Integer.BYTES * change.size() <= CHECKPOINT_SIZE) {
+            record(change.toArray());
+        } else {
+            final long[] checkpoint = new long[2 * Sudoku.WORDS];
+            change.getPrevious().copyState(checkpoint, 0);
+            change.getSudoku().copyState(checkpoint, Sudoku.WORDS);
+            record(checkpoint);
+        }
+    }
+
+    /**
+     * Reverts the most recent step of the tracked Sudoku, without notifying its listeners
+     *
+     * @return whether there has been a step to undo
+     * @see #redo()
+     */
+    public boolean undo() {
+        final Object step = undoable.pollLast();
+        if (step == null)
+            return false;
+        if (step instanceof int[])
+            SudokuChange.revert(sudoku, (int[]) step, ((int[]) step).length);
+        else
+            sudoku.restoreState((long[]) step, 0);
+        redoable.addFirst(step);
+        return true;
+    }
+
+    /**
+     * Repeats the most recently undone step of the tracked Sudoku, without notifying its listeners
+     *
+     * @return whether there has been a step to redo
+     * @see #undo()
+     */
+    public boolean redo() {
+        final Object step = redoable.pollFirst();
+        if (step == null)
+            return false;
+        if (step instanceof int[])
+            SudokuChange.replay(sudoku, (int[]) step, ((int[]) step).length);
+        else
+            sudoku.restoreState((long[]) step, Sudoku.WORDS);
+        undoable.addLast(step);
+        return true;
+    }
+
+    /**
+     * Returns whether there is a step that can be undone
+     *
+     * @return whether {@link #undo()} would do anything
+     */
+    public boolean canUndo() {
+        return !undoable.isEmpty();
+    }
+
+    /**
+     * Returns whether there is a step that can be redone
+     *
+     * @return whether {@link #redo()} would do anything
+     */
+    public boolean canRedo() {
+        return !redoable.isEmpty();
+    }
+
+    /**
+     * Forgets all steps
+     */
+    public void clear() {
+        undoable.clear();
+        redoable.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns the estimated number of bytes occupied by the recorded steps
+     *
+     * @return the estimated size of this history in bytes, at most the budget
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the memory budget of this history
+     *
+     * @return the budget in bytes
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    private void record(Object step) {
+        while (!redoable.isEmpty())
+            size -= sizeOf(redoable.pollFirst());
+        undoable.addLast(step);
+        size += sizeOf(step);
+        while (size > budget)
+            size -= sizeOf(undoable.pollFirst());
+    }
+
+    private static int sizeOf(Object step) {
+        return step instanceof int[] ? ARRAY_OVERHEAD + Integer.BYTES * ((int[]) step).length : CHECKPOINT_SIZE;
+    }
+}
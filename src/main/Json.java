@@ -0,0 +1,249 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The small part of JSON that the {@link SolveServer} needs, without depending on a library. Objects are parsed into
+ * {@link Map}s, arrays into {@link List}s, numbers into {@link Long}s or {@link Double}s, and the literals into
+ * {@link Boolean}s and {@code null}.
+ */
+final class Json {
+
+    /**
+     * The maximum nesting of arrays and objects, so that malicious input cannot overflow the stack
+     */
+    private static final int MAX_DEPTH = 32;
+
+    private final CharSequence text;
+    private int position;
+
+    private Json(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON document
+     *
+     * @param text the document
+     * @return the value it holds
+     * @throws IllegalArgumentException if the text is not valid JSON
+     */
+    static Object parse(CharSequence text) {
+        final Json json = new Json(text);
+        final Object value = json.value(0);
+        json.skipWhitespace();
+        if (json.position < text.length())
+            throw json.error("Unexpected trailing characters");
+        return value;
+    }
+
+    /**
+     * Appends a string as a JSON string literal
+     *
+     * @param builder the builder to append to
+     * @param string  the string
+     * @return the builder
+     */
+    static StringBuilder quote(StringBuilder builder, String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        builder.append(String.format("\\u%04x", (int) c));
+                    else
+                        builder.append(c);
+            }
+        }
+        return builder.append('"');
+    }
+
+    private Object value(int depth) {
+        if (depth > MAX_DEPTH)
+            throw error("Nested too deeply");
+        skipWhitespace();
+        if (position == text.length())
+            throw error("Unexpected end of input");
+        final char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return object(depth);
+            case '[':
+                return array(depth);
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (c == '-' || c >= '0' && c <= '9')
+                    return number();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object(int depth) {
+        final Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (next('}'))
+            return object;
+        do {
+            skipWhitespace();
+            if (position == text.length() || text.charAt(position) != '"')
+                throw error("Expected a member name");
+            final String name = string();
+            skipWhitespace();
+            expect(':');
+            object.put(name, value(depth + 1));
+            skipWhitespace();
+        } while (next(','));
+        expect('}');
+        return object;
+    }
+
+    private List<Object> array(int depth) {
+        final List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (next(']'))
+            return array;
+        do {
+            array.add(value(depth + 1));
+            skipWhitespace();
+        } while (next(','));
+        expect(']');
+        return array;
+    }
+
+    private String string() {
+        final StringBuilder builder = new StringBuilder();
+        position++;
+        while (true) {
+            if (position == text.length())
+                throw error("Unterminated string");
+            final char c = text.charAt(position++);
+            if (c == '"')
+                return builder.toString();
+            if (c < 0x20)
+                throw error("Control character in string");
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position == text.length())
+                throw error("Unterminated string");
+            final char escaped = text.charAt(position++);
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append(escaped);
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length())
+                        throw error("Incomplete escape sequence");
+                    try {
+                        builder.append((char) Integer.parseInt(text.subSequence(position, position + 4).toString(),
+                                16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape sequence");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw error("Invalid escape sequence");
+            }
+        }
+    }
+
+    private Number number() {
+        final int start = position;
+        boolean integral = true;
+        while (position < text.length()) {
+            final char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E')
+                integral = false;
+            else if (c != '-' && c != '+' && (c < '0' || c > '9'))
+                break;
+            position++;
+        }
+        final String number = text.subSequence(start, position).toString();
+        try {
+            return integral ? (Number) Long.parseLong(number) : (Number) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    private Object literal(String literal, Object value) {
+        if (position + literal.length() > text.length()
+                || !literal.contentEquals(text.subSequence(position, position + literal.length())))
+            throw error("Unexpected character '" + text.charAt(position) + "'");
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length()) {
+            final char c = text.charAt(position);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+                return;
+            position++;
+        }
+    }
+
+    private boolean next(char c) {
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!next(c))
+            throw error("Expected '" + c + "'");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
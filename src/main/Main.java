@@ -18,6 +18,8 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Screen;
 import javafx.stage.Stage;
 
+import java.nio.file.Paths;
+
 public class Main extends Application {
 
     public static final String FILE_EXTENSION = "sudoku";
@@ -28,6 +30,7 @@ public class Main extends Application {
     private Stage stage;
     private Sudoku sudoku = new Sudoku();
     private String fileLocation;
+    private PuzzlePool puzzlePool;
 
     public static Main instance() {
         return main;
@@ -54,6 +57,10 @@ public class Main extends Application {
         getCenterController().onSudokuChanged();
     }
 
+    public PuzzlePool getPuzzlePool() {
+        return puzzlePool;
+    }
+
     public String getFileLocation() {
         return fileLocation;
     }
@@ -69,6 +76,7 @@ public class Main extends Application {
         stage = primaryStage;
 
         try {
+            puzzlePool = new PuzzlePool(Paths.get(System.getProperty("user.home"), ".sudoku-solver", "pool.txt"));
             primaryStage.setTitle("Sudoku Solver");
             //primaryStage.getIcons().add(new Image(Main.class.getResourceAsStream("sudoku.png")));
             primaryStage.getIcons().add(new Image("sudoku.png"));
@@ -119,6 +127,12 @@ public class Main extends Application {
 
     }
 
+    @Override
+    public void stop() throws Exception {
+        if (puzzlePool != null)
+            puzzlePool.close();
+    }
+
     public void errorAndWait(String text) {
         new Alert(Alert.AlertType.ERROR, text).showAndWait();
     }
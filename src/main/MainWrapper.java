@@ -1,12 +1,29 @@
 package main;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
- * A wrapper for the main class so that Java doesn't complain that the JavaFX binaries aren't in modules
+ * A wrapper for the main class so that Java doesn't complain that the JavaFX binaries aren't in modules. If the first
+ * argument is {@value BatchSolver#OPTION}, {@value BatchGrader#OPTION} or {@value SolveServer#OPTION}, the headless
+ * {@link BatchSolver}, {@link BatchGrader} or {@link SolveServer} is started instead, without loading JavaFX.
  */
 public class MainWrapper {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(BatchSolver.OPTION)) {
+            BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(BatchGrader.OPTION)) {
+            BatchGrader.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(SolveServer.OPTION)) {
+            SolveServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         try {
             main.Main.main(args);
         } catch (Exception e) {
@@ -0,0 +1,369 @@
+package main;
+
+import solver.Cells;
+import solver.Generator;
+import solver.Grader;
+import solver.Technique;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a bounded queue of generated puzzles for every difficulty tier, so that handing out a puzzle only takes a
+ * dequeue. Whenever a queue drops to half its capacity, it is refilled by a single low-priority daemon thread, which
+ * puts every puzzle it generates into the queue of the tier its rating belongs to, so that puzzles generated for one
+ * tier but rated as another are not wasted. The puzzles that are left when the pool is closed are saved to a file and
+ * loaded again by the next pool, so that even the first puzzles after a start are available immediately.
+ * <p></p>
+ * Puzzles are handed out as futures, so that a caller such as the JavaFX application thread is never blocked: when no
+ * puzzle is ready, it is generated in the {@link ForkJoinPool#commonPool() common pool} rather than by the refill
+ * thread, which may be busy with a whole refill. The pool counts hits (a puzzle was ready), misses (it had to be
+ * generated on demand) and the lag of the refills, i.e. the time from a queue dropping below half its capacity until
+ * it is full again.
+ * <p></p>
+ * This class is thread-safe.
+ */
+public final class PuzzlePool implements AutoCloseable {
+
+    /**
+     * The difficulty tiers, which are told apart by the {@link Grader} rating of the puzzles: easy puzzles only need
+     * hidden singles, medium ones at most naked pairs, and hard ones anything beyond, including guesses. Every tier
+     * also has a band of clue counts, from which the number of clues the generator aims at is drawn at random, since
+     * fewer clues make harder puzzles more likely.
+     */
+    public enum Tier {
+        EASY(32, 40, Technique.HIDDEN_SINGLE.getRating()),
+        MEDIUM(26, 31, Technique.NAKED_PAIR.getRating()),
+        HARD(Generator.MIN_CLUES, 26, Technique.GUESS.getRating());
+
+        /**
+         * The number of puzzles that are generated before giving up on finding one of the tier
+         */
+        private static final int ATTEMPTS = 1000;
+
+        private static final ThreadLocal<Grader> GRADERS = ThreadLocal.withInitial(Grader::new);
+
+        private final double maxRating;
+        private final Generator[] generators;
+
+        Tier(int minClues, int maxClues, double maxRating) {
+            this.maxRating = maxRating;
+            generators = new Generator[maxClues - minClues + 1];
+            for (int k = 0; k < generators.length; k++)
+                generators[k] = new Generator(minClues + k, maxClues);
+        }
+
+        /**
+         * Returns the tier a rating belongs to
+         *
+         * @param rating the rating of a puzzle, see {@link solver.Grade#getRating()}
+         * @return the easiest tier whose maximum rating is at least the rating
+         */
+        public static Tier of(double rating) {
+            for (Tier tier : values()) {
+                if (rating <= tier.maxRating)
+                    return tier;
+            }
+            return HARD;
+        }
+
+        /**
+         * Returns the highest rating of the puzzles of this tier
+         *
+         * @return the maximum rating
+         */
+        public double getMaxRating() {
+            return maxRating;
+        }
+
+        /**
+         * Generates a puzzle of this tier on the calling thread, discarding the ones rated as another tier
+         *
+         * @param seed the seed, which determines the puzzle
+         * @return the puzzle's 81 entries, row by row, with 0 for empty cells
+         * @throws IllegalStateException if no puzzle of this tier has been found
+         */
+        public byte[] generate(long seed) {
+            final SplittableRandom random = new SplittableRandom(seed);
+            for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                final byte[] puzzle = candidate(random);
+                if (rate(puzzle) == this)
+                    return puzzle;
+            }
+            throw new IllegalStateException("No puzzle rated as " + this + " has been found");
+        }
+
+        /**
+         * Generates a puzzle with a random number of clues from the band of this tier, which may be rated as any tier
+         */
+        private byte[] candidate(SplittableRandom random) {
+            return generators[random.nextInt(generators.length)].generate(random.nextLong());
+        }
+
+        /**
+         * Returns the tier of a puzzle with a unique solution
+         */
+        private static Tier rate(byte[] puzzle) {
+            return of(GRADERS.get().grade(puzzle).getRating());
+        }
+    }
+
+    /**
+     * The default number of puzzles kept per tier
+     */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final Map<Tier, BlockingQueue<byte[]>> queues = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicBoolean> refilling = new EnumMap<>(Tier.class);
+    private final ExecutorService refiller;
+    private final Path file;
+    private final int capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refills = new AtomicLong();
+    private final AtomicLong lastRefillLag = new AtomicLong();
+    private final AtomicLong maxRefillLag = new AtomicLong();
+
+    /**
+     * Creates a new pool that keeps {@value #DEFAULT_CAPACITY} puzzles per tier
+     *
+     * @param file the file the puzzles are loaded from and saved to, or {@code null} if they should not be persisted
+     * @throws IOException if the file exists but cannot be read
+     */
+    public PuzzlePool(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new pool and starts filling its queues in the background
+     *
+     * @param file     the file the puzzles are loaded from and saved to, or {@code null} if they should not be
+     *                 persisted
+     * @param capacity the number of puzzles kept per tier
+     * @throws IOException if the file exists but cannot be read
+     */
+    public PuzzlePool(Path file, int capacity) throws IOException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive");
+        this.file = file;
+        this.capacity = capacity;
+        for (Tier tier : Tier.values()) {
+            queues.put(tier, new ArrayBlockingQueue<>(capacity));
+            refilling.put(tier, new AtomicBoolean());
+        }
+        refiller = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "Puzzle pool refill");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        if (file != null)
+            load(file);
+        for (Tier tier : Tier.values())
+            refillIfLow(tier);
+    }
+
+    /**
+     * Returns a puzzle of the specified tier. If one is ready, this only takes it from the queue and the returned future
+     * is already completed; otherwise, the puzzle is generated in the background and the future completes when it has
+     * been found. The calling thread never generates a puzzle.
+     *
+     * @param tier the difficulty tier
+     * @return the future of the puzzle's 81 entries, row by row, with 0 for empty cells, which completes exceptionally
+     * with an {@link IllegalStateException} if no puzzle of the tier could be generated, see {@link
+     * Tier#generate(long)}
+     */
+    public CompletableFuture<byte[]> take(Tier tier) {
+        final byte[] puzzle = queues.get(Objects.requireNonNull(tier)).poll();
+        final CompletableFuture<byte[]> future;
+        if (puzzle != null) {
+            hits.incrementAndGet();
+            future = CompletableFuture.completedFuture(puzzle);
+        } else {
+            misses.incrementAndGet();
+            final long seed = ThreadLocalRandom.current().nextLong();
+            future = CompletableFuture.supplyAsync(() -> tier.generate(seed), ForkJoinPool.commonPool());
+        }
+        refillIfLow(tier);
+        return future;
+    }
+
+    /**
+     * Returns the number of puzzles of the specified tier that are ready
+     *
+     * @param tier the difficulty tier
+     * @return the number of queued puzzles
+     */
+    public int available(Tier tier) {
+        return queues.get(tier).size();
+    }
+
+    /**
+     * Returns the number of calls to {@link #take(Tier)} that found a puzzle ready
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of calls to {@link #take(Tier)} that found no puzzle ready, so that it had to be generated on
+     * demand
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of refills that have been completed
+     *
+     * @return the number of completed refills
+     */
+    public long getRefills() {
+        return refills.get();
+    }
+
+    /**
+     * Returns the lag of the most recent refill, i.e. the time from its request until the queue was full again
+     *
+     * @param unit the unit of the result
+     * @return the lag of the last refill, or 0 if none has been completed yet
+     */
+    public long getLastRefillLag(TimeUnit unit) {
+        return unit.convert(lastRefillLag.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest lag of all refills so far
+     *
+     * @param unit the unit of the result
+     * @return the maximum lag of a refill, or 0 if none has been completed yet
+     */
+    public long getMaxRefillLag(TimeUnit unit) {
+        return unit.convert(maxRefillLag.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops refilling the queues and saves the remaining puzzles, if the pool has a file
+     *
+     * @throws IOException if the puzzles cannot be saved
+     */
+    @Override
+    public void close() throws IOException {
+        refiller.shutdownNow();
+        try {
+            refiller.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (file != null)
+            save(file);
+    }
+
+    private void refillIfLow(Tier tier) {
+        if (queues.get(tier).size() > capacity / 2 || !refilling.get(tier).compareAndSet(false, true))
+            return;
+        final long requested = System.nanoTime();
+        try {
+            refiller.execute(() -> refill(tier, requested));
+        } catch (RuntimeException e) {
+            // the pool has been closed
+            refilling.get(tier).set(false);
+        }
+    }
+
+    private void refill(Tier tier, long requested) {
+        final BlockingQueue<byte[]> queue = queues.get(tier);
+        final SplittableRandom random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        try {
+            while (queue.remainingCapacity() > 0) {
+                if (Thread.currentThread().isInterrupted())
+                    return;
+                final byte[] puzzle = tier.candidate(random);
+                queues.get(Tier.rate(puzzle)).offer(puzzle);
+            }
+            final long lag = System.nanoTime() - requested;
+            lastRefillLag.set(lag);
+            maxRefillLag.accumulateAndGet(lag, Math::max);
+            refills.incrementAndGet();
+        } finally {
+            refilling.get(tier).set(false);
+        }
+    }
+
+    /**
+     * Loads the puzzles saved by {@link #save(Path)}. Lines that do not hold a puzzle of a known tier are skipped.
+     */
+    private void load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int space = line.indexOf(' ');
+                if (space < 0 || line.length() != space + 1 + Cells.COUNT)
+                    continue;
+                final Tier tier;
+                try {
+                    tier = Tier.valueOf(line.substring(0, space));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                final byte[] puzzle = new byte[Cells.COUNT];
+                boolean valid = true;
+                for (int cell = 0; cell < Cells.COUNT && valid; cell++) {
+                    final char c = line.charAt(space + 1 + cell);
+                    valid = c >= '0' && c <= '9';
+                    puzzle[cell] = (byte) (c - '0');
+                }
+                if (valid)
+                    queues.get(tier).offer(puzzle);
+            }
+        } catch (NoSuchFileException e) {
+            // nothing has been saved yet
+        }
+    }
+
+    /**
+     * Saves the queued puzzles, one per line, each preceded by its tier
+     */
+    private void save(Path file) throws IOException {
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            final char[] line = new char[Cells.COUNT];
+            for (Map.Entry<Tier, BlockingQueue<byte[]>> entry : queues.entrySet()) {
+                for (byte[] puzzle : entry.getValue()) {
+                    for (int cell = 0; cell < Cells.COUNT; cell++)
+                        line[cell] = (char) ('0' + puzzle[cell]);
+                    writer.write(entry.getKey().name());
+                    writer.write(' ');
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+}
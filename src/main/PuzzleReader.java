@@ -0,0 +1,362 @@
+package main;
+
+import solver.Cells;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads puzzles in the common text formats, which may be mixed within one input:
+ * <ul>
+ *     <li>one puzzle per line as 81 characters, row by row, with {@code .} or {@code 0} for empty cells, optionally
+ *     followed by whitespace and an annotation, which may start with {@code #}, {@code ;} or {@code ,}</li>
+ *     <li>grids of 9 lines with 9 cells each, like in the SDK format; spaces and {@code |} between the cells are
+ *     ignored, and so are separator lines consisting only of {@code -}, {@code +}, {@code =}, {@code |} and
+ *     spaces</li>
+ *     <li>comment lines starting with {@code #}, which are skipped, and blank lines</li>
+ * </ul>
+ * The input is parsed directly in its {@link ByteBuffer}, without creating a {@code String} per line, and the puzzles
+ * are passed to a {@link Handler} together with the number of the line they start in. Lines that do not fit any of the
+ * formats are reported to the handler, and reading continues with the next line.
+ * <p></p>
+ * A reader reuses its buffers and must only be used by one thread at a time.
+ */
+public final class PuzzleReader {
+
+    /**
+     * Receives the puzzles read by a {@link PuzzleReader}
+     */
+    public interface Handler {
+
+        /**
+         * Called for every puzzle that has been read. The arguments are reused for the next puzzle, so they are only
+         * valid during the call.
+         *
+         * @param cells      the 81 entries of the puzzle, row by row, with 0 for empty cells
+         * @param line       the number of the line the puzzle starts in, starting with 1
+         * @param annotation the text following the puzzle on its line, without a leading {@code #}, {@code ;} or
+         *                   {@code ,}; empty if there is none
+         * @return whether reading should continue
+         */
+        boolean puzzle(byte[] cells, long line, CharSequence annotation);
+
+        /**
+         * Called for every line that is not part of a puzzle, a comment, a separator or blank. The default
+         * implementation does nothing.
+         *
+         * @param line   the number of the line, starting with 1
+         * @param reason a description of what is wrong
+         */
+        default void malformed(long line, String reason) { }
+    }
+
+    /**
+     * The default size of the buffer used for reading channels, which is also the maximum length of a line
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final int GRID_SIZE = 9;
+
+    private final int bufferSize;
+    private ByteBuffer buffer;
+    private final byte[] cells = new byte[Cells.COUNT];
+    private final Annotation annotation = new Annotation();
+
+    private Handler handler;
+    private boolean stopped;
+    private long line;
+    private int gridRows;
+    private long gridStart;
+    private long puzzles;
+    private long malformed;
+
+    /**
+     * Creates a new reader with a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes
+     */
+    public PuzzleReader() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new reader
+     *
+     * @param bufferSize the size of the buffer used for reading channels, which is also the maximum length of a line
+     */
+    public PuzzleReader(int bufferSize) {
+        if (bufferSize < 2 * Cells.COUNT)
+            throw new IllegalArgumentException("The buffer must hold at least " + 2 * Cells.COUNT + " bytes");
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Reads all puzzles from the file, see {@link #read(ReadableByteChannel, Handler)}
+     *
+     * @param path    the file
+     * @param handler the handler receiving the puzzles
+     * @return the number of puzzles passed to the handler
+     * @throws IOException if reading fails
+     */
+    public long read(Path path, Handler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel, handler);
+        }
+    }
+
+    /**
+     * Reads puzzles from the channel until its end is reached or the handler returns {@code false}. The channel is
+     * streamed through a fixed-size buffer, so inputs of any size can be read. The channel is not closed.
+     *
+     * @param in      the channel
+     * @param handler the handler receiving the puzzles
+     * @return the number of puzzles passed to the handler
+     * @throws IOException if reading fails
+     */
+    public long read(ReadableByteChannel in, Handler handler) throws IOException {
+        if (buffer == null)
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+        start(handler);
+        buffer.clear();
+        boolean skipping = false;
+        int scanned = 0;
+        while (!stopped) {
+            final int read = in.read(buffer);
+            buffer.flip();
+            int lineStart = 0;
+            for (int i = scanned; i < buffer.limit() && !stopped; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (skipping)
+                        skipping = false;
+                    else
+                        parseLine(buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (read < 0) {
+                if (!skipping && lineStart < buffer.limit() && !stopped)
+                    parseLine(buffer, lineStart, buffer.limit());
+                break;
+            }
+            if (lineStart == 0 && buffer.limit() == buffer.capacity()) {
+                // the line does not fit into the buffer, so it is skipped up to its end
+                if (!skipping) {
+                    line++;
+                    report(line, "The line is longer than " + buffer.capacity() + " bytes");
+                    skipping = true;
+                }
+                buffer.clear();
+                scanned = 0;
+            } else {
+                buffer.position(lineStart);
+                scanned = buffer.remaining();
+                buffer.compact();
+            }
+        }
+        return finish();
+    }
+
+    /**
+     * Reads puzzles from the buffer's position to its limit until the handler returns {@code false}. The buffer may
+     * be a mapping of a file, which is parsed in place; its position is not changed.
+     *
+     * @param in      the buffer
+     * @param handler the handler receiving the puzzles
+     * @return the number of puzzles passed to the handler
+     */
+    public long read(ByteBuffer in, Handler handler) {
+        start(handler);
+        int lineStart = in.position();
+        for (int i = lineStart; i < in.limit() && !stopped; i++) {
+            if (in.get(i) == '\n') {
+                parseLine(in, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < in.limit() && !stopped)
+            parseLine(in, lineStart, in.limit());
+        return finish();
+    }
+
+    /**
+     * Returns the number of puzzles passed to the handler by the last call to one of the {@code read} methods
+     *
+     * @return the number of puzzles read
+     */
+    public long getPuzzles() {
+        return puzzles;
+    }
+
+    /**
+     * Returns the number of malformed records reported by the last call to one of the {@code read} methods
+     *
+     * @return the number of malformed records
+     */
+    public long getMalformed() {
+        return malformed;
+    }
+
+    private void start(Handler handler) {
+        this.handler = handler;
+        stopped = false;
+        line = 0;
+        gridRows = 0;
+        puzzles = 0;
+        malformed = 0;
+    }
+
+    private long finish() {
+        if (gridRows > 0 && !stopped)
+            incompleteGrid();
+        handler = null;
+        annotation.buffer = null;
+        return puzzles;
+    }
+
+    /**
+     * Parses the line between the indices {@code start} (inclusive) and {@code end} (exclusive)
+     */
+    private void parseLine(ByteBuffer in, int start, int end) {
+        line++;
+        if (end > start && in.get(end - 1) == '\r')
+            end--;
+        while (start < end && isSpace(in.get(start)))
+            start++;
+        if (start == end) {
+            if (gridRows > 0)
+                incompleteGrid();
+            return;
+        }
+        if (in.get(start) == '#')
+            return;
+
+        int token = start;
+        while (token < end && isCell(in.get(token)))
+            token++;
+        if (token - start == Cells.COUNT && (token == end || isSpace(in.get(token)) || isMark(in.get(token)))) {
+            if (gridRows > 0)
+                incompleteGrid();
+            for (int cell = 0; cell < Cells.COUNT; cell++)
+                cells[cell] = digit(in.get(start + cell));
+            int text = token;
+            while (text < end && isSpace(in.get(text)))
+                text++;
+            if (text < end && isMark(in.get(text)))
+                text++;
+            while (text < end && isSpace(in.get(text)))
+                text++;
+            int textEnd = end;
+            while (textEnd > text && isSpace(in.get(textEnd - 1)))
+                textEnd--;
+            emit(line, in, text, textEnd);
+            return;
+        }
+
+        // a row of a grid, or a separator line
+        final int row = 9 * gridRows;
+        int count = 0, i = start;
+        boolean separator = true;
+        for (; i < end; i++) {
+            final byte b = in.get(i);
+            if (isCell(b)) {
+                if (count < GRID_SIZE && gridRows < GRID_SIZE)
+                    cells[row + count] = digit(b);
+                count++;
+                separator = false;
+            } else if (b == '-' || b == '+' || b == '=') {
+                if (count > 0)
+                    break;
+            } else if (!isSpace(b) && b != '|') {
+                break;
+            }
+        }
+        if (i == end && separator)
+            return;
+        if (i == end && count == GRID_SIZE) {
+            if (gridRows == 0)
+                gridStart = line;
+            if (++gridRows == GRID_SIZE) {
+                gridRows = 0;
+                emit(gridStart, in, start, start);
+            }
+            return;
+        }
+
+        if (gridRows > 0)
+            incompleteGrid();
+        report(line, token - start == Cells.COUNT ? "Unexpected character after the puzzle"
+                : "Neither a puzzle of 81 cells nor a row of 9 cells");
+    }
+
+    private void emit(long line, ByteBuffer in, int start, int end) {
+        annotation.buffer = in;
+        annotation.start = start;
+        annotation.length = end - start;
+        puzzles++;
+        if (!handler.puzzle(cells, line, annotation))
+            stopped = true;
+    }
+
+    private void incompleteGrid() {
+        report(gridStart, "The grid starting in this line has only " + gridRows + " of " + GRID_SIZE + " rows");
+        gridRows = 0;
+    }
+
+    private void report(long line, String reason) {
+        malformed++;
+        handler.malformed(line, reason);
+    }
+
+    private static boolean isCell(byte b) {
+        return b >= '0' && b <= '9' || b == '.';
+    }
+
+    private static byte digit(byte b) {
+        return b == '.' ? 0 : (byte) (b - '0');
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static boolean isMark(byte b) {
+        return b == '#' || b == ';' || b == ',';
+    }
+
+    /**
+     * A view of the annotation's bytes in the input, which are interpreted as ISO-8859-1
+     */
+    private static final class Annotation implements CharSequence {
+
+        private ByteBuffer buffer;
+        private int start;
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length)
+                throw new IndexOutOfBoundsException(index);
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++)
+                chars[i] = (char) (buffer.get(start + i) & 0xFF);
+            return new String(chars);
+        }
+    }
+}
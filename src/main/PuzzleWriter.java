@@ -0,0 +1,171 @@
+package main;
+
+import solver.Cells;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes puzzles in one of the text formats read by {@link PuzzleReader}. The output is collected in a fixed-size
+ * buffer that is written to the channel whenever it is full and by {@link #flush()}.
+ * <p></p>
+ * A writer must only be used by one thread at a time.
+ */
+public final class PuzzleWriter implements Flushable {
+
+    /**
+     * The text formats of puzzles
+     */
+    public enum Format {
+        /**
+         * One puzzle per line as 81 characters, followed by {@code " # "} and the annotation, if there is one
+         */
+        LINE,
+        /**
+         * A grid of 9 lines with 9 characters each, preceded by the annotation as a comment line, if there is one, and
+         * followed by a blank line. Since comments are skipped, the annotation is not read back by {@link
+         * PuzzleReader}.
+         */
+        GRID
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel out;
+    private final Format format;
+    private final byte blank;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final byte[] cells = new byte[Cells.COUNT];
+
+    /**
+     * Creates a new writer that writes empty cells as {@code .}
+     *
+     * @param out    the channel the puzzles are written to
+     * @param format the format of the puzzles
+     */
+    public PuzzleWriter(WritableByteChannel out, Format format) {
+        this(out, format, '.');
+    }
+
+    /**
+     * Creates a new writer
+     *
+     * @param out    the channel the puzzles are written to
+     * @param format the format of the puzzles
+     * @param blank  the character written for empty cells, either {@code .} or {@code 0}
+     */
+    public PuzzleWriter(WritableByteChannel out, Format format, char blank) {
+        if (blank != '.' && blank != '0')
+            throw new IllegalArgumentException("Empty cells must be written as '.' or '0'");
+        this.out = out;
+        this.format = format;
+        this.blank = (byte) blank;
+    }
+
+    /**
+     * Writes a puzzle without an annotation
+     *
+     * @param cells the 81 entries of the puzzle, row by row, with 0 for empty cells
+     * @throws IOException if writing fails
+     */
+    public void write(byte[] cells) throws IOException {
+        write(cells, "");
+    }
+
+    /**
+     * Writes a puzzle with an annotation. Line breaks in the annotation are replaced by spaces, and characters that
+     * are not in ISO-8859-1 by {@code ?}.
+     *
+     * @param cells      the 81 entries of the puzzle, row by row, with 0 for empty cells
+     * @param annotation the annotation, which is omitted if it is empty
+     * @throws IOException if writing fails
+     */
+    public void write(byte[] cells, CharSequence annotation) throws IOException {
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (cells[cell] < 0 || cells[cell] > 9)
+                throw new IllegalArgumentException("The entry " + cells[cell] + " is not between 0 and 9");
+        }
+        if (format == Format.LINE) {
+            ensure(Cells.COUNT);
+            for (int cell = 0; cell < Cells.COUNT; cell++)
+                buffer.put(cell(cells[cell]));
+            if (annotation.length() > 0) {
+                text(" # ");
+                text(annotation);
+            }
+            newLine();
+        } else {
+            if (annotation.length() > 0)
+                comment(annotation);
+            ensure(Cells.COUNT + 10);
+            for (int cell = 0; cell < Cells.COUNT; cell++) {
+                buffer.put(cell(cells[cell]));
+                if (cell % 9 == 8)
+                    buffer.put((byte) '\n');
+            }
+            buffer.put((byte) '\n');
+        }
+    }
+
+    /**
+     * Writes the entries of a Sudoku as a puzzle, see {@link #write(byte[], CharSequence)}
+     *
+     * @param sudoku     the Sudoku
+     * @param annotation the annotation, which is omitted if it is empty
+     * @throws IOException if writing fails
+     */
+    public void write(Sudoku sudoku, CharSequence annotation) throws IOException {
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            cells[cell] = sudoku.get(cell / 9, cell % 9);
+        write(cells, annotation);
+    }
+
+    /**
+     * Writes a comment line, which {@link PuzzleReader} skips
+     *
+     * @param comment the comment
+     * @throws IOException if writing fails
+     */
+    public void comment(CharSequence comment) throws IOException {
+        text("# ");
+        text(comment);
+        newLine();
+    }
+
+    /**
+     * Writes all buffered output to the channel
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    private byte cell(byte entry) {
+        return entry == 0 ? blank : (byte) ('0' + entry);
+    }
+
+    private void text(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensure(1);
+            final char c = text.charAt(i);
+            buffer.put(c == '\n' || c == '\r' ? (byte) ' ' : c > 0xFF ? (byte) '?' : (byte) c);
+        }
+    }
+
+    private void newLine() throws IOException {
+        ensure(1);
+        buffer.put((byte) '\n');
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes)
+            flush();
+    }
+}
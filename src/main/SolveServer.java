@@ -0,0 +1,511 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import solver.AsyncSearch;
+import solver.Cells;
+import solver.Engines;
+import solver.Geometry;
+import solver.Rules;
+import solver.SearchControl;
+import solver.SolutionCache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A headless HTTP server that solves, counts and validates puzzles sent as JSON, so that other processes on the same
+ * machine can use the solver without embedding it. It only listens on the loopback address and needs nothing but the
+ * JDK's {@code com.sun.net.httpserver}.
+ * <p></p>
+ * The endpoints take a JSON object by {@code POST}, in which a puzzle is a string of 81 characters, row by row, with
+ * {@code 0} or {@code .} for empty cells:
+ * <ul>
+ *     <li>{@code /solve} takes {@code {"puzzle": ...}} and answers {@code {"status": "solved", "solution": ...}} or
+ *     {@code {"status": "unsolvable"}}</li>
+ *     <li>{@code /batch} takes {@code {"puzzles": [...]}} and answers {@code {"results": [...]}} with one such object
+ *     per puzzle, or {@code {"status": "malformed"}} for entries that are not puzzles</li>
+ *     <li>{@code /count} takes {@code {"puzzle": ..., "limit": ...}} and answers {@code {"solutions": ..., "limit":
+ *     ...}}, counting at most {@code limit} solutions, {@value #DEFAULT_LIMIT} by default</li>
+ *     <li>{@code /unique} takes {@code {"puzzle": ...}} and answers {@code {"unique": ..., "solutions": ...}}, counting
+ *     at most two solutions</li>
+ *     <li>{@code /validate} takes {@code {"puzzle": ...}} and answers {@code {"valid": ...}}, i.e. whether no two
+ *     entries conflict</li>
+ * </ul>
+ * {@code GET /stats} reports how many requests have been served, rejected and timed out, the state of the queue and
+ * the counters of the {@link SolutionCache}. Errors are answered with {@code {"error": ...}}.
+ * <p></p>
+ * Searches run on a fixed number of threads behind a bounded queue. A request finding the queue full is rejected at
+ * once with 429 (Too Many Requests). Every request has a deadline, which starts when it arrives, so it includes the
+ * time spent in the queue; a request whose search does not complete in time is answered with 503 (Service
+ * Unavailable), and its search is cancelled. Both carry a {@code Retry-After} header. A batch shares one deadline and
+ * one place in the queue. Validating does not search and is not queued.
+ * <p></p>
+ * The exchanges are handled on a separate pool of threads, which only parse, wait and write, so that slow clients do
+ * not hold on to the search threads. Solutions are taken from a shared {@link SolutionCache}, so repeated and
+ * equivalent puzzles are answered without searching.
+ */
+public final class SolveServer implements AutoCloseable {
+
+    /**
+     * The command line option that makes {@link MainWrapper} start the server instead of the GUI
+     */
+    public static final String OPTION = "--serve";
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+    public static final long DEFAULT_LIMIT = 1000;
+
+    private static final int MAX_BODY = 1 << 20;
+    private static final int MAX_BATCH = 1 << 12;
+    private static final long MAX_LIMIT = 1 << 20;
+    private static final Rules RULES = Rules.classic(Geometry.CLASSIC);
+
+    static {
+        // The JDK's server writes the headers and the body of a response separately, so without TCP_NODELAY, Nagle's
+        // algorithm and delayed acknowledgements stall every response on a kept-alive connection by tens of
+        // milliseconds. The property is read once, when the first server is created, and may still be overridden.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    /**
+     * Computes the answer to a request whose body has been parsed
+     */
+    @FunctionalInterface
+    private interface Endpoint {
+        CharSequence handle(Map<String, Object> request, SearchControl control) throws Failure;
+    }
+
+    /**
+     * A request that cannot be answered normally, with the status to answer it with
+     */
+    private static final class Failure extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        Failure(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ThreadPoolExecutor searches;
+    private final SolutionCache cache;
+    private final long timeoutNanos;
+    private final Duration timeout;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * Creates a new server on the loopback address, which does not accept connections until it is {@link #start()
+     * started}
+     *
+     * @param port          the port, or 0 for any free port
+     * @param threads       the number of threads searching
+     * @param queueCapacity the number of requests that may wait for a search thread
+     * @param timeout       the time a request may take from its arrival to the end of its search
+     * @param cache         the cache of solutions, which may be shared with other users
+     * @throws IOException              if the server cannot be bound to the port
+     * @throws IllegalArgumentException if the port is out of range or a count or the timeout is not positive
+     */
+    public SolveServer(int port, int threads, int queueCapacity, Duration timeout, SolutionCache cache)
+            throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException("The number of threads must be positive, not " + threads);
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("The queue capacity must be positive, not " + queueCapacity);
+        if (timeout.isNegative() || timeout.isZero())
+            throw new IllegalArgumentException("The timeout must be positive, not " + timeout);
+        this.timeout = timeout;
+        this.timeoutNanos = timeout.toNanos();
+        this.cache = Objects.requireNonNull(cache);
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        handlers = Executors.newCachedThreadPool(threads("sudoku-http-"));
+        searches = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threads("sudoku-search-"));
+        server.setExecutor(handlers);
+        context("/solve", "POST", this::solve);
+        context("/batch", "POST", this::batch);
+        context("/count", "POST", this::count);
+        context("/unique", "POST", this::unique);
+        context("/validate", "POST", this::validate);
+        context("/stats", "GET", (request, control) -> stats());
+    }
+
+    /**
+     * Starts accepting connections
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting connections, waits up to a second for the exchanges in progress and stops the threads
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        searches.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Returns the address the server listens on
+     *
+     * @return the address, with the actual port if the server was created with port 0
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns the number of requests received, including rejected and malformed ones
+     *
+     * @return the number of requests
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns the number of requests rejected because the queue was full
+     *
+     * @return the number of requests answered with 429
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the number of requests whose deadline passed before their search completed
+     *
+     * @return the number of requests answered with 503
+     */
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    /**
+     * Returns the cache the solutions are taken from
+     *
+     * @return the cache
+     */
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+    private void context(String path, String method, Endpoint endpoint) {
+        server.createContext(path, exchange -> handle(exchange, method, endpoint));
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        final SearchControl control = new SearchControl(timeout);
+        requests.increment();
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath()))
+                throw new Failure(404, "No such endpoint");
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                throw new Failure(405, "Expected " + method);
+            }
+            body = endpoint.handle(method.equals("POST") ? request(exchange) : null, control).toString();
+        } catch (Failure e) {
+            status = e.status;
+            if (status == 429 || status == 503)
+                exchange.getResponseHeaders().set("Retry-After", "1");
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error(e.toString());
+        }
+
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> request(HttpExchange exchange) throws IOException, Failure {
+        final byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY + 1);
+        }
+        if (body.length > MAX_BODY)
+            throw new Failure(413, "The request exceeds " + MAX_BODY + " bytes");
+        final Object request;
+        try {
+            request = Json.parse(new String(body, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new Failure(400, "Malformed JSON: " + e.getMessage());
+        }
+        if (!(request instanceof Map))
+            throw new Failure(400, "Expected a JSON object");
+        return (Map<String, Object>) request;
+    }
+
+    private CharSequence solve(Map<String, Object> request, SearchControl control) throws Failure {
+        final byte[] puzzle = puzzle(request.get("puzzle"));
+        final byte[] solution = await(AsyncSearch.solve(cache, Engines::fewestCandidates, puzzle, control, searches),
+                control);
+        return result(new StringBuilder(), solution);
+    }
+
+    private CharSequence batch(Map<String, Object> request, SearchControl control) throws Failure {
+        if (!(request.get("puzzles") instanceof List))
+            throw new Failure(400, "Expected the puzzles as an array");
+        final List<?> entries = (List<?>) request.get("puzzles");
+        if (entries.size() > MAX_BATCH)
+            throw new Failure(413, "A batch may hold at most " + MAX_BATCH + " puzzles");
+        final byte[][] puzzles = new byte[entries.size()][];
+        for (int k = 0; k < puzzles.length; k++) {
+            try {
+                puzzles[k] = puzzle(entries.get(k));
+            } catch (Failure e) {
+                puzzles[k] = null;
+            }
+        }
+
+        CompletableFuture<byte[][]> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                final byte[][] solutions = new byte[puzzles.length][];
+                for (int k = 0; k < puzzles.length; k++) {
+                    if (!control.checkpoint(0))
+                        return null;
+                    if (puzzles[k] != null) {
+                        solutions[k] = cache.solve(puzzles[k], Engines.fewestCandidates(), control);
+                        if (control.getReason() != null)
+                            return null;
+                    }
+                }
+                return solutions;
+            }, searches);
+        } catch (RejectedExecutionException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        final byte[][] solutions = await(future, control);
+        if (solutions == null)
+            throw expired(control);
+
+        final StringBuilder builder = new StringBuilder(100 * puzzles.length + 16).append("{\"results\":[");
+        for (int k = 0; k < puzzles.length; k++) {
+            if (k > 0)
+                builder.append(',');
+            if (puzzles[k] == null)
+                builder.append("{\"status\":\"malformed\"}");
+            else
+                result(builder, solutions[k]);
+        }
+        return builder.append("]}");
+    }
+
+    private CharSequence count(Map<String, Object> request, SearchControl control) throws Failure {
+        final byte[] puzzle = puzzle(request.get("puzzle"));
+        final Object value = request.get("limit");
+        final long limit;
+        if (value == null)
+            limit = DEFAULT_LIMIT;
+        else if (value instanceof Long && (Long) value >= 1 && (Long) value <= MAX_LIMIT)
+            limit = (Long) value;
+        else
+            throw new Failure(400, "The limit must be an integer between 1 and " + MAX_LIMIT);
+        final long solutions = count(puzzle, limit, control);
+        return "{\"solutions\":" + solutions + ",\"limit\":" + limit + "}";
+    }
+
+    private CharSequence unique(Map<String, Object> request, SearchControl control) throws Failure {
+        final long solutions = count(puzzle(request.get("puzzle")), 2, control);
+        return "{\"unique\":" + (solutions == 1) + ",\"solutions\":" + solutions + "}";
+    }
+
+    private long count(byte[] puzzle, long limit, SearchControl control) throws Failure {
+        final boolean[] given = new boolean[Cells.COUNT];
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            given[cell] = puzzle[cell] != 0;
+        return await(AsyncSearch.count(Engines::fewestCandidates, puzzle, given, limit, control, searches), control);
+    }
+
+    private CharSequence validate(Map<String, Object> request, SearchControl control) throws Failure {
+        return "{\"valid\":" + grid(request.get("puzzle")).isValid() + "}";
+    }
+
+    private CharSequence stats() {
+        return "{\"requests\":" + getRequests() + ",\"rejected\":" + getRejected() + ",\"expired\":" + getExpired()
+                + ",\"active\":" + searches.getActiveCount() + ",\"queued\":" + searches.getQueue().size()
+                + ",\"cache\":{\"hits\":" + cache.getHits() + ",\"symmetricHits\":" + cache.getSymmetricHits()
+                + ",\"misses\":" + cache.getMisses() + ",\"evictions\":" + cache.getEvictions()
+                + ",\"size\":" + cache.size() + ",\"capacity\":" + cache.getCapacity()
+                + ",\"hitRate\":" + cache.getHitRate() + "}}";
+    }
+
+    /**
+     * Waits for a search until the deadline of its request, and translates its failures into the answers to the
+     * request
+     */
+    private <T> T await(CompletableFuture<T> future, SearchControl control) throws Failure {
+        try {
+            return future.get(Math.max(timeoutNanos - control.getElapsedNanos(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            future.cancel(false);
+            throw expired(control);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            control.cancel();
+            throw new Failure(503, "Interrupted");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RejectedExecutionException) {
+                if (searches.isShutdown())
+                    throw new Failure(503, "The server is shutting down");
+                rejected.increment();
+                throw new Failure(429, "Too many requests");
+            }
+            if (cause instanceof TimeoutException || cause instanceof CancellationException)
+                throw expired(control);
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Failure expired(SearchControl control) {
+        control.cancel();
+        expired.increment();
+        return new Failure(503, "The request exceeded its deadline of " + timeout.toMillis() + " ms");
+    }
+
+    private static Grid grid(Object puzzle) throws Failure {
+        if (!(puzzle instanceof String))
+            throw new Failure(400, "Expected the puzzle as a string of " + Cells.COUNT + " characters");
+        try {
+            return Grid.parse((String) puzzle, RULES);
+        } catch (IllegalArgumentException e) {
+            throw new Failure(400, e.getMessage());
+        }
+    }
+
+    private static byte[] puzzle(Object puzzle) throws Failure {
+        return grid(puzzle).toArray();
+    }
+
+    private static StringBuilder result(StringBuilder builder, byte[] solution) {
+        if (solution == null)
+            return builder.append("{\"status\":\"unsolvable\"}");
+        builder.append("{\"status\":\"solved\",\"solution\":\"");
+        for (byte cell : solution)
+            builder.append((char) ('0' + cell));
+        return builder.append("\"}");
+    }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), String.valueOf(message)).append('}').toString();
+    }
+
+    private static ThreadFactory threads(String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return task -> {
+            final Thread thread = new Thread(task, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Starts a server on the loopback address, which runs until the process is stopped. The options {@code --port},
+     * {@code --threads}, {@code --queue}, {@code --timeout} (in milliseconds) and {@code --cache} (the capacity of the
+     * {@link SolutionCache}) override the defaults: port {@value #DEFAULT_PORT}, one thread per processor, {@value
+     * #DEFAULT_QUEUE_CAPACITY} queued requests, {@value #DEFAULT_TIMEOUT_MILLIS} ms and {@value #DEFAULT_CACHE_SIZE}
+     * entries.
+     *
+     * @param args the command line arguments, i.e. {@code [--port=<port>] [--threads=<n>] [--queue=<n>]
+     *             [--timeout=<ms>] [--cache=<size>]}
+     * @throws IOException if the server cannot be bound to the port
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = DEFAULT_QUEUE_CAPACITY;
+        long timeout = DEFAULT_TIMEOUT_MILLIS;
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        final SolveServer server;
+        try {
+            for (String arg : args) {
+                final int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    usage();
+                    return;
+                }
+                final int value = Integer.parseInt(arg.substring(separator + 1));
+                switch (arg.substring(0, separator)) {
+                    case "--port":
+                        port = value;
+                        break;
+                    case "--threads":
+                        threads = value;
+                        break;
+                    case "--queue":
+                        queue = value;
+                        break;
+                    case "--timeout":
+                        timeout = value;
+                        break;
+                    case "--cache":
+                        cacheSize = value;
+                        break;
+                    default:
+                        usage();
+                        return;
+                }
+            }
+            server = new SolveServer(port, threads, queue, Duration.ofMillis(timeout), new SolutionCache(cacheSize));
+        } catch (IllegalArgumentException e) {
+            usage();
+            return;
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.err.println("Listening on http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/");
+    }
+
+    private static void usage() {
+        System.err.println("Usage: " + OPTION + " [--port=<port>] [--threads=<n>] [--queue=<n>] [--timeout=<ms>]"
+                + " [--cache=<size>]");
+        System.exit(2);
+    }
+}
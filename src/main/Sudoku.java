@@ -1,50 +1,80 @@
 package main;
 
 import org.jetbrains.annotations.Range;
+import solver.Cells;
+import solver.Engines;
+import solver.Geometry;
+import solver.Instrumentation;
+import solver.AsyncSearch;
+import solver.ParallelSearch;
+import solver.Rules;
+import solver.SearchControl;
+import solver.Solution;
+import solver.SolutionVisitor;
+import solver.SolveEvent;
+import solver.SolveStatistics;
+import solver.SolverEngine;
 
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.*;
-import java.util.function.BiConsumer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Sudoku implements Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    private static class Entry {
-        private final byte row, column;
+    /**
+     * The number of words holding the entries, 16 entries of 4 bits per word
+     */
+    private static final int ENTRY_WORDS = 6;
 
-        private Entry(byte i, byte j) {
-            row = i;
-            column = j;
-        }
-    }
+    /**
+     * The number of words holding one bit per entry that tells whether it has been set by the user
+     */
+    private static final int USER_SET_WORDS = 2;
 
-    private boolean[][] userSet = new boolean[9][9];
-    private byte[][] array = new byte[9][9];
-    private final List<Consumer<Sudoku>> listeners = new LinkedList<>();
-    private Stack<Entry> stack = new Stack<>();
+    /**
+     * The number of words describing the state of a Sudoku
+     */
+    static final int WORDS = ENTRY_WORDS + USER_SET_WORDS;
+
+    /**
+     * The entries, followed by the flags telling which entries have been set by the user. The entry of cell {@code 9 *
+     * row + column} occupies bits {@code 4 * (cell % 16)} to {@code 4 * (cell % 16) + 3} of word {@code cell / 16}, and
+     * its flag is bit {@code cell % 64} of word {@code ENTRY_WORDS + cell / 64}.
+     */
+    private final long[] words = new long[WORDS];
+    private List<Consumer<Sudoku>> listeners;
+    private List<SudokuListener> deltaListeners;
+    private Supplier<? extends SolverEngine> engine = Engines::propagating;
+    private Rules rules = Rules.classic(Geometry.CLASSIC);
+    private SolveStatistics statistics;
+
+    /**
+     * Scratch arrays for passing the grid to the engines, so that solving does not allocate anything
+     */
+    private static final ThreadLocal<byte[]> CELLS = ThreadLocal.withInitial(() -> new byte[Cells.COUNT]);
+    private static final ThreadLocal<boolean[]> GIVEN = ThreadLocal.withInitial(() -> new boolean[Cells.COUNT]);
 
     /**
      * Creates a new Sudoku with a default value of 0 for all entries
      */
     public Sudoku() {
-        forAll((i, j) -> {
-            array[i][j] = 0;
-            userSet[i][j] = false;
-        });
     }
 
-    @SuppressWarnings("unchecked")
-    private Sudoku(byte[][] contents, boolean[][] flags, Stack<Entry> stack) {
-        forAll((i, j) -> {
-            array[i][j] = contents[i][j];
-            userSet[i][j] = flags[i][j];
-        });
-        this.stack = (Stack<Entry>) stack.clone();
+    private Sudoku(long[] words, Supplier<? extends SolverEngine> engine, Rules rules) {
+        System.arraycopy(words, 0, this.words, 0, this.words.length);
+        this.engine = engine;
+        this.rules = rules;
     }
 
     /**
@@ -57,11 +87,7 @@ public class Sudoku implements Externalizable {
      * @see #set(int, int, byte)
      */
     public byte get(@Range(from = 0, to = 8) int i, @Range(from = 0, to = 8) int j) {
-        try {
-            return array[i][j];
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new IllegalArgumentException(e);
-        }
+        return entry(index(i, j));
     }
 
     /**
@@ -77,19 +103,21 @@ public class Sudoku implements Externalizable {
         if (number < 0 || number > 9)
             throw new IllegalArgumentException("The number may not be negative or greater than 9");
 
-        try {
-            final Sudoku copy = clone();
-            array[row][column] = number;
-            userSet[row][column] = number != 0;
-            notifyListeners(copy);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new IllegalArgumentException(e);
+        final int cell = index(row, column);
+        final byte previous = entry(cell);
+        final boolean wasUserSet = isUserSet(cell);
+        setEntry(cell, number);
+        setUserSet(cell, number != 0);
+        if (hasListeners()) {
+            final int[] changes = {SudokuChange.encode(cell, previous, number, wasUserSet, number != 0)};
+            fireChange(new SudokuChange(this, SudokuChange.Cause.SET, changes, 1));
         }
     }
 
     /**
      * Evaluates whether the specified number can be placed at the specified position, i.e. whether the row, the column
-     * and the respective 3x3 box already contain the number.
+     * and the respective 3x3 box already contain the number. With the {@link #setRules(Rules) rules} of a variant, its
+     * other units and cages are checked as well.
      *
      * @param row    the row, between 0 and 8 (inclusive)
      * @param column the column, between 0 and 8 (inclusive)
@@ -98,20 +126,25 @@ public class Sudoku implements Externalizable {
      * {@code number == 0}, {@code false} if an argument exceeds the specified range
      */
     public boolean isValid(@Range(from = 0, to = 8) int row, @Range(from = 0, to = 8) int column, @Range(from = 0, to = 9) int number) {
-        if (number < 0 || number > 9 || row < 0 || row >= array.length || column < 0 || column >= array[row].length)
+        if (number < 0 || number > 9 || row < 0 || row >= 9 || column < 0 || column >= 9)
             return false;
         if (number == 0)
             return true;
+        if (!rules.isClassic()) {
+            final byte[] cells = CELLS.get();
+            flatten(cells, GIVEN.get());
+            return rules.isValid(cells, 9 * row + column, number);
+        }
 
         // check row
-        for (int i = 0; i < array[row].length; i++) {
-            if (array[row][i] == number && i != column)
+        for (int i = 0; i < 9; i++) {
+            if (entry(9 * row + i) == number && i != column)
                 return false;
         }
 
         //check column
-        for (int i = 0; i < array.length; i++) {
-            if (array[i][column] == number && i != row)
+        for (int i = 0; i < 9; i++) {
+            if (entry(9 * i + column) == number && i != row)
                 return false;
         }
 
@@ -119,7 +152,7 @@ public class Sudoku implements Externalizable {
         int iBox = row - row % 3, jBox = column - column % 3;
         for (int i = 0; i < 3; i++) {
             for (int j = 0; j < 3; j++) {
-                if (array[iBox + i][jBox + j] == number && iBox + i != row && jBox + j != column)
+                if (entry(9 * (iBox + i) + jBox + j) == number && iBox + i != row && jBox + j != column)
                     return false;
             }
         }
@@ -136,9 +169,9 @@ public class Sudoku implements Externalizable {
      * @see #isValid(int, int, int)
      */
     public boolean isValid() {
-        for (int i = 0; i < array.length; i++) {
-            for (int j = 0; j < array[i].length; j++) {
-                if (!isValid(i, j, array[i][j]))
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                if (!isValid(i, j, entry(9 * i + j)))
                     return false;
             }
         }
@@ -147,22 +180,26 @@ public class Sudoku implements Externalizable {
 
     /**
      * Resets this Sudoku to its initial state, including all solutions that have been computed until now. More
-     * precisely, calling this method will delete all generated entries in this Sudoku and empty the stack that holds
-     * the information on which solutions have already been calculated.
+     * precisely, calling this method will delete all generated entries in this Sudoku, so that the next call to {@link
+     * #solve()} starts with the first solution again.
      * <p></p>
      * For easier use with {@link #clone()}, this method returns the Sudoku it is called on.
      *
      * @return this
      */
     public Sudoku reset() {
-        final Sudoku copy = clone();
-        forAll((i, j) -> {
-            if (!userSet[i][j])
-                array[i][j] = 0;
-        });
-        stack.clear();
-        if (!equals(copy))
-            notifyListeners(copy);
+        final int[] changes = hasListeners() ? new int[Cells.COUNT] : null;
+        int size = 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final byte previous = entry(cell);
+            if (previous != 0 && !isUserSet(cell)) {
+                if (changes != null)
+                    changes[size++] = SudokuChange.encode(cell, previous, 0, false, false);
+                setEntry(cell, 0);
+            }
+        }
+        if (size > 0)
+            fireChange(new SudokuChange(this, SudokuChange.Cause.RESET, changes, size));
         return this;
     }
 
@@ -170,63 +207,296 @@ public class Sudoku implements Externalizable {
      * Solves this Sudoku, and returns whether it could be solved. If the Sudoku could not be solved, it remains
      * unchanged. If this Sudoku is already solved, this method tries to compute another solution. If all possible
      * solutions have already been calculated, this method does nothing and returns {@code false}
+     * <p></p>
+     * The order in which the solutions are computed depends on the {@link #setEngine(Supplier) engine}. With the
+     * default engine, they are computed in lexicographic order, i.e. the generated entries are filled in row by row,
+     * each with the smallest number that still leads to a solution.
+     * <p></p>
+     * With the {@link #setRules(Rules) rules} of a variant, the {@link solver.GeneralEngine} cannot resume from the
+     * previous solution: it searches again from the beginning and skips all solutions up to it, so computing the n-th
+     * solution takes as long as enumerating the first n.
      *
      * @return whether the algorithm was able to compute a solution for this Sudoku
      * @see #getSolved()
      * @see #isSolved()
      */
     public boolean solve() {
-        if (!isValid())
+        final byte[] cells = CELLS.get();
+        final boolean[] given = GIVEN.get();
+        flatten(cells, given);
+
+        final SolverEngine engine = this.engine.get();
+        final SolveEvent event = Instrumentation.begin("solve");
+        final boolean solved = engine.solve(cells, given);
+        if (event != null)
+            statistics = Instrumentation.end(event, engine, solved ? 1 : 0);
+        if (!solved)
             return false;
 
-        final Sudoku copy = clone();
+        apply(cells);
+        return true;
+    }
 
-        byte iStart = 0, jStart = 0;
-        if (!stack.isEmpty()) {
-            iStart = stack.peek().row;
-            jStart = stack.pop().column;
-        }
+    /**
+     * Solves this Sudoku like {@link #solve()}, but splits the search into tasks that are run on all cores by the
+     * common {@link ForkJoinPool}, see {@link ParallelSearch}. The engine set with {@link #setEngine(Supplier)} solves
+     * the tasks on the pool's threads. If the Sudoku has a unique solution, the result is the same as the one of {@link
+     * #solve()}; otherwise, any one of its solutions may be found.
+     * <p></p>
+     * If this Sudoku is already solved, there is nothing to split, so this method behaves exactly like {@link #solve()}
+     * and computes the next solution.
+     *
+     * @return whether the algorithm was able to compute a solution for this Sudoku
+     * @see #solve()
+     */
+    public boolean solveParallel() {
+        if (hasGeneratedEntries() || !rules.isClassic())
+            return solve();
+
+        // not the scratch arrays, since joining the tasks may run other tasks on this thread
+        final byte[] cells = new byte[Cells.COUNT];
+        final boolean[] given = new boolean[Cells.COUNT];
+        flatten(cells, given);
+
+        final SolveEvent event = Instrumentation.begin("solveParallel");
+        final boolean solved = new ParallelSearch(ForkJoinPool.commonPool(), engine).solve(cells, given);
+        if (event != null)
+            statistics = Instrumentation.end(event, null, solved ? 1 : 0);
+        if (!solved)
+            return false;
 
-        for (byte i = iStart; i < array.length; i++) {
-            for (byte j = jStart; j < array[i].length; j++) {
-                jStart = 0;
-                if (!userSet[i][j]) {
-                    if (array[i][j] < 9) {
-                        do array[i][j]++; while (array[i][j] < 9 && !isValid(i, j, array[i][j]));
-                        if (array[i][j] == 9 && !isValid(i, j, array[i][j])) {
-                            array[i][j] = 0;
-                            if (!stack.isEmpty()) {
-                                i = stack.peek().row;
-                                j = stack.pop().column;
-                                j--;
-                            } else {
-                                this.array = copy.array;
-                                return false;
-                            }
-                        } else
-                            stack.push(new Entry(i, j));
-                    } else {
-                        array[i][j] = 0;
-                        if (!stack.isEmpty()) {
-                            i = stack.peek().row;
-                            j = stack.pop().column;
-                            j--;
-                        } else {
-                            this.array = copy.array;
-                            return false;
-                        }
-                    }
-                }
+        apply(cells);
+        return true;
+    }
+
+    /**
+     * Solves this Sudoku like {@link #solve()}, but without blocking: the search runs on the common {@link
+     * ForkJoinPool} and is limited by the control, see {@link AsyncSearch}. Once it has finished, the solution is
+     * applied to this Sudoku on the specified executor, so that the listeners are notified on the thread they expect,
+     * e.g. the JavaFX application thread.
+     * <p></p>
+     * The future completes with the result of {@link #solve()} after the solution has been applied. It completes
+     * exceptionally with a {@link java.util.concurrent.TimeoutException} if the search exhausted a budget, with a
+     * {@link java.util.concurrent.CancellationException} if it was cancelled, and with a {@link
+     * ConcurrentModificationException} if this Sudoku was changed while it was being solved, in which case the solution
+     * is discarded. Cancelling the future stops the search.
+     *
+     * @param control  the control limiting the search
+     * @param executor the executor applying the solution to this Sudoku
+     * @return the future receiving whether a solution has been found and applied
+     * @see #solve()
+     */
+    public CompletableFuture<Boolean> solveAsync(SearchControl control, Executor executor) {
+        final byte[] cells = CELLS.get();
+        final boolean[] given = GIVEN.get();
+        flatten(cells, given);
+        final long[] snapshot = words.clone();
+
+        final CompletableFuture<byte[]> search =
+                AsyncSearch.solve(engine, cells, given, control, ForkJoinPool.commonPool());
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        result.whenComplete((solved, failure) -> {
+            if (result.isCancelled())
+                search.cancel(false);
+        });
+        search.whenCompleteAsync((solution, failure) -> {
+            if (result.isDone())
+                return;
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else if (solution == null) {
+                result.complete(false);
+            } else if (!Arrays.equals(words, snapshot)) {
+                result.completeExceptionally(
+                        new ConcurrentModificationException("The Sudoku was changed while it was being solved"));
+            } else {
+                apply(solution);
+                result.complete(true);
             }
-        }
+        }, executor);
+        return result;
+    }
 
-        if (isSolved()) {
-            notifyListeners(copy);
-            return true;
-        } else {
-            array = copy.array;
-            return false;
+    /**
+     * Counts the solutions of this Sudoku like {@link #countSolutions(long)}, but without blocking: the search runs on
+     * the specified executor and is limited by the control, see {@link AsyncSearch}. Since the grid is copied first,
+     * this Sudoku may be changed while its solutions are counted.
+     *
+     * @param limit    the number of solutions after which counting stops
+     * @param control  the control limiting the search
+     * @param executor the executor running the search
+     * @return the future receiving the number of solutions, but at most {@code limit}
+     * @see #countSolutions(long)
+     */
+    public CompletableFuture<Long> countSolutionsAsync(long limit, SearchControl control, Executor executor) {
+        final byte[] cells = CELLS.get();
+        final boolean[] given = GIVEN.get();
+        flatten(cells, given);
+        return AsyncSearch.count(engine, cells, given, limit, control, executor);
+    }
+
+    /**
+     * Counts the solutions of this Sudoku, stopping as soon as the limit is reached. Only the entries set by the user
+     * are taken into account, so solutions that have already been computed by {@link #solve()} are counted as well.
+     * This Sudoku is not changed and the listeners are not notified.
+     *
+     * @param limit the number of solutions after which counting stops
+     * @return the number of solutions, but at most {@code limit}; 0 if the entries set by the user break the rules
+     * @see #isUnique()
+     */
+    public long countSolutions(long limit) {
+        final byte[] cells = CELLS.get();
+        final boolean[] given = GIVEN.get();
+        flatten(cells, given);
+
+        final SolverEngine engine = this.engine.get();
+        final SolveEvent event = Instrumentation.begin("count");
+        final long count = engine.count(cells, given, limit);
+        if (event != null)
+            statistics = Instrumentation.end(event, engine, count);
+        return count;
+    }
+
+    /**
+     * Evaluates whether this Sudoku has exactly one solution, which is equivalent to {@code countSolutions(2) == 1}
+     *
+     * @return whether this Sudoku has a unique solution
+     * @see #countSolutions(long)
+     */
+    public boolean isUnique() {
+        return countSolutions(2) == 1;
+    }
+
+    /**
+     * Enumerates all solutions of this Sudoku in a single search, passing each of them to the visitor until it returns
+     * {@code false}. Only the entries set by the user are taken into account; this Sudoku is not changed and the
+     * listeners are not notified.
+     * <p></p>
+     * The visitor receives a read-only view of every solution that is only valid during the call, so nothing is
+     * copied unless the visitor calls {@link Solution#toArray()}. Since the view is backed by the engine's state, the
+     * visitor must not solve or count Sudokus with the same engine on the same thread; {@link #solutions()} does not
+     * have that restriction.
+     *
+     * @param visitor the visitor receiving the solutions
+     * @return the number of solutions passed to the visitor
+     * @see #solutions()
+     */
+    public long forEachSolution(SolutionVisitor visitor) {
+        final byte[] cells = new byte[Cells.COUNT];
+        final boolean[] given = new boolean[Cells.COUNT];
+        flatten(cells, given);
+
+        final SolverEngine engine = this.engine.get();
+        final SolveEvent event = Instrumentation.begin("enumerate");
+        final long count = engine.enumerate(cells, given, visitor);
+        if (event != null)
+            statistics = Instrumentation.end(event, engine, count);
+        return count;
+    }
+
+    /**
+     * Returns a lazy stream of all solutions of this Sudoku, in the same order as repeated calls to {@link #solve()}
+     * would compute them. Every element is a new Sudoku that has the same entries set by the user as this one and the
+     * solution as generated entries. This Sudoku is not changed and the listeners are not notified.
+     * <p></p>
+     * Every element is computed like by {@link #solve()}, so with the rules of a variant, taking n elements takes time
+     * quadratic in n; {@link #forEachSolution(SolutionVisitor)} enumerates them in a single search instead.
+     *
+     * @return a sequential stream of the solutions
+     * @see #forEachSolution(SolutionVisitor)
+     */
+    public Stream<Sudoku> solutions() {
+        final byte[] cells = new byte[Cells.COUNT];
+        final boolean[] given = new boolean[Cells.COUNT];
+        flatten(cells, given);
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (!given[cell])
+                cells[cell] = 0;
         }
+
+        final Spliterator<Sudoku> spliterator = new Spliterators.AbstractSpliterator<Sudoku>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Sudoku> action) {
+                if (!engine.get().solve(cells, given))
+                    return false;
+                final Sudoku solution = new Sudoku(words, engine, rules);
+                for (int cell = 0; cell < Cells.COUNT; cell++)
+                    solution.setEntry(cell, cells[cell]);
+                action.accept(solution);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns the statistics of the last search of this Sudoku, i.e. of the last call to {@link #solve()}, {@link
+     * #solveParallel()}, {@link #countSolutions(long)} or {@link #forEachSolution(SolutionVisitor)} while the {@link
+     * Instrumentation} was enabled. The searches of {@link #solutions()} are not included.
+     *
+     * @return the statistics of the last instrumented search, or {@code null} if there was none
+     */
+    public SolveStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the engine used by {@link #solve()}. Since engines are usually not thread-safe, a supplier is passed that is
+     * asked for an engine every time this Sudoku is solved, e.g. {@link Engines#dancingLinks()}. By default, {@link
+     * Engines#propagating()} is used. {@link #setRules(Rules)} resets the engine to the one for the rules, so an engine
+     * for a variant must be set after its rules, and it must honour them.
+     *
+     * @param engine the supplier of the engine that should be used for solving
+     * @see #getEngine()
+     */
+    public void setEngine(Supplier<? extends SolverEngine> engine) {
+        this.engine = Objects.requireNonNull(engine);
+    }
+
+    /**
+     * Returns the supplier of the engine that is used by {@link #solve()}
+     *
+     * @return the supplier of the engine used for solving
+     * @see #setEngine(Supplier)
+     */
+    public Supplier<? extends SolverEngine> getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets the rules of this Sudoku, e.g. to make it an X-Sudoku, a Jigsaw or a Killer Sudoku, see {@link
+     * solver.Constraint}. The rules are checked by {@link #isValid(int, int, int)}, and the engine is reset to the
+     * current thread's {@link Engines#general(Rules) engine for the rules}, or back to {@link Engines#propagating()}
+     * for the classic rules, replacing any engine set with {@link #setEngine(Supplier)}, which would not know the
+     * constraints of the variant. Like the engine, the rules are not part of the serialized form.
+     * <p></p>
+     * The engine for a variant finds the next solution by searching again from the beginning, so {@link #solve()} on
+     * a solved Sudoku and {@link #solutions()} become slower with every solution; see {@link #solve()}.
+     * <p></p>
+     * The entries are kept, even if they break the new rules. {@link #solveParallel()} solves variants sequentially,
+     * since it splits the search by the classic rules.
+     *
+     * @param rules the rules, whose geometry must be the classic one
+     * @throws IllegalArgumentException if the rules are not the ones of a 9x9 Sudoku
+     * @see #getRules()
+     */
+    public void setRules(Rules rules) {
+        if (rules.getGeometry() != Geometry.CLASSIC)
+            throw new IllegalArgumentException("The rules of a " + rules.getGeometry() + " Sudoku do not apply to a "
+                    + Geometry.CLASSIC + " one");
+        this.rules = rules;
+        this.engine = rules.isClassic() ? Engines::propagating : () -> Engines.general(rules);
+    }
+
+    /**
+     * Returns the rules of this Sudoku, by default the {@link Rules#classic(Geometry) classic} ones
+     *
+     * @return the rules
+     * @see #setRules(Rules)
+     */
+    public Rules getRules() {
+        return rules;
     }
 
     /**
@@ -238,11 +508,9 @@ public class Sudoku implements Externalizable {
      * @see #getSolved()
      */
     public boolean isSolved() {
-        for (byte[] ints : array) {
-            for (byte anInt : ints) {
-                if (anInt <= 0)
-                    return false;
-            }
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (entry(cell) <= 0)
+                return false;
         }
         return isValid();
     }
@@ -273,13 +541,19 @@ public class Sudoku implements Externalizable {
      * passed the same instance, so it may be necessary to copy it using {@link #clone()} before making any changes.
      * Moreover, every listener can only be added once to every Sudoku. When trying to add a listener more than once,
      * nothing happens.
+     * <p></p>
+     * Creating the copy costs a full snapshot on every change. Listeners that only need to know which cells changed
+     * should be added with {@link #addListener(SudokuListener)} instead.
      *
      * @param listener the listener that should be added
+     * @see #addListener(SudokuListener)
      * @see #removeChangeListener(Consumer)
      * @see #getListenersUnmodifiable()
      * @see #notifyListeners(Sudoku)
      */
     public final void addChangeListener(Consumer<Sudoku> listener) {
+        if (listeners == null)
+            listeners = new LinkedList<>();
         if (!listeners.contains(listener))
             listeners.add(listener);
     }
@@ -293,7 +567,8 @@ public class Sudoku implements Externalizable {
      * @see #notifyListeners(Sudoku)
      */
     public final void removeChangeListener(Consumer<Sudoku> listener) {
-        listeners.remove(listener);
+        if (listeners != null)
+            listeners.remove(listener);
     }
 
     /**
@@ -306,12 +581,44 @@ public class Sudoku implements Externalizable {
      * @see #notifyListeners(Sudoku)
      */
     public final List<Consumer<Sudoku>> getListenersUnmodifiable() {
-        return Collections.unmodifiableList(listeners);
+        return listeners == null ? Collections.emptyList() : Collections.unmodifiableList(listeners);
+    }
+
+    /**
+     * Adds a listener that is notified about the same changes as the ones added with {@link
+     * #addChangeListener(Consumer)}, but receives a {@link SudokuChange} describing only the cells that changed, along
+     * with their values before and after the change and its cause. A copy of this Sudoku before the change is only
+     * created if a listener asks for it. Every listener can only be added once; when trying to add a listener more than
+     * once, nothing happens.
+     * <p></p>
+     * As long as no listeners have been added, changing this Sudoku does not allocate anything.
+     *
+     * @param listener the listener that should be added
+     * @see #removeListener(SudokuListener)
+     */
+    public final void addListener(SudokuListener listener) {
+        if (deltaListeners == null)
+            deltaListeners = new ArrayList<>(2);
+        if (!deltaListeners.contains(listener))
+            deltaListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(SudokuListener)}. If the listener is unknown to this Sudoku,
+     * nothing happens.
+     *
+     * @param listener the listener that should be removed
+     * @see #addListener(SudokuListener)
+     */
+    public final void removeListener(SudokuListener listener) {
+        if (deltaListeners != null)
+            deltaListeners.remove(listener);
     }
 
     /**
      * Notifies all change listeners that have been added to this object. For more information on when and how this
-     * method should be called, see {@link #addChangeListener(Consumer)}.
+     * method should be called, see {@link #addChangeListener(Consumer)}. Listeners added with {@link
+     * #addListener(SudokuListener)} are not notified, since the changed cells are unknown.
      *
      * @param previous a copy of this Sudoku before the changes
      * @see #addChangeListener(Consumer)
@@ -319,6 +626,8 @@ public class Sudoku implements Externalizable {
      * @see #getListenersUnmodifiable()
      */
     protected final void notifyListeners(Sudoku previous) {
+        if (listeners == null)
+            return;
         for (Consumer<Sudoku> listener : listeners) {
             listener.accept(previous);
         }
@@ -333,7 +642,7 @@ public class Sudoku implements Externalizable {
      */
     @Override
     public Sudoku clone() {
-        return new Sudoku(array, userSet, stack);
+        return new Sudoku(words, engine, rules);
     }
 
     /**
@@ -351,7 +660,7 @@ public class Sudoku implements Externalizable {
             return false;
 
         Sudoku s = (Sudoku) o;
-        return s.stack.equals(this.stack) && Arrays.deepEquals(this.userSet, s.userSet);
+        return Arrays.equals(this.words, s.words);
     }
 
     /**
@@ -371,29 +680,53 @@ public class Sudoku implements Externalizable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Sudoku sudoku = (Sudoku) o;
-        return Arrays.deepEquals(this.array, sudoku.array);
+        for (int k = 0; k < ENTRY_WORDS; k++) {
+            if (this.words[k] != sudoku.words[k])
+                return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(array);
+        long hash = 0;
+        for (int k = 0; k < ENTRY_WORDS; k++)
+            hash = 31 * hash + words[k];
+        return (int) (hash ^ hash >>> 32);
     }
 
     @Override
     public String toString() {
-        return Arrays.deepToString(array);
+        final StringBuilder builder = new StringBuilder(2 + 9 * 29);
+        builder.append('[');
+        for (int i = 0; i < 9; i++) {
+            builder.append(i == 0 ? "[" : ", [");
+            for (int j = 0; j < 9; j++) {
+                if (j > 0)
+                    builder.append(", ");
+                builder.append(entry(9 * i + j));
+            }
+            builder.append(']');
+        }
+        return builder.append(']').toString();
     }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
+        final byte[][] array = new byte[9][9];
+        final boolean[][] userSet = new boolean[9][9];
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            array[cell / 9][cell % 9] = entry(cell);
+            userSet[cell / 9][cell % 9] = isUserSet(cell);
+        }
         out.writeObject(array);
         out.writeObject(userSet);
-        out.writeBoolean(!stack.isEmpty());
+        out.writeBoolean(hasGeneratedEntries());
     }
 
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-        array = (byte[][]) in.readObject();
+        final byte[][] array = (byte[][]) in.readObject();
         if (array.length != 9)
             throw new IOException("array.length != 9");
         for (int i = 0; i < array.length; i++) {
@@ -401,7 +734,7 @@ public class Sudoku implements Externalizable {
                 throw new IOException("array[" + i + "].length != 9");
         }
 
-        userSet = (boolean[][]) in.readObject();
+        final boolean[][] userSet = (boolean[][]) in.readObject();
         if (userSet.length != 9)
             throw new IOException("userSet.length != 9");
         for (int i = 0; i < userSet.length; i++) {
@@ -409,19 +742,133 @@ public class Sudoku implements Externalizable {
                 throw new IOException("userSet[" + i + "].length != 9");
         }
 
-        if (in.readBoolean()) {
-            forAll((i, j) -> {
-                if (!userSet[i][j])
-                    stack.push(new Entry(i, j));
-            });
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                if (array[i][j] < 0 || array[i][j] > 9)
+                    throw new IOException("array[" + i + "][" + j + "] is not between 0 and 9");
+            }
         }
+
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            setEntry(cell, array[cell / 9][cell % 9]);
+            setUserSet(cell, userSet[cell / 9][cell % 9]);
+        }
+
+        // whether solutions have been computed follows from the generated entries themselves
+        in.readBoolean();
+    }
+
+    private static int index(int row, int column) {
+        if (row < 0 || row > 8 || column < 0 || column > 8)
+            throw new IllegalArgumentException("(" + row + ", " + column + ") is not a position in the Sudoku");
+        return 9 * row + column;
     }
 
-    private void forAll(BiConsumer<Byte, Byte> action) {
-        for (byte i = 0; i < array.length; i++) {
-            for (byte j = 0; j < array[i].length; j++) {
-                action.accept(i, j);
+    private byte entry(int cell) {
+        return (byte) (words[cell >>> 4] >>> ((cell & 15) << 2) & 0xF);
+    }
+
+    private void setEntry(int cell, int number) {
+        final int shift = (cell & 15) << 2;
+        words[cell >>> 4] = words[cell >>> 4] & ~(0xFL << shift) | (long) number << shift;
+    }
+
+    private boolean isUserSet(int cell) {
+        return (words[ENTRY_WORDS + (cell >>> 6)] & 1L << cell) != 0;
+    }
+
+    private void setUserSet(int cell, boolean userSet) {
+        if (userSet)
+            words[ENTRY_WORDS + (cell >>> 6)] |= 1L << cell;
+        else
+            words[ENTRY_WORDS + (cell >>> 6)] &= ~(1L << cell);
+    }
+
+    /**
+     * Notifies the listeners of both kinds about a change that has already been applied
+     */
+    private void fireChange(SudokuChange change) {
+        if (deltaListeners != null) {
+            for (int k = 0; k < deltaListeners.size(); k++)
+                deltaListeners.get(k).changed(change);
+        }
+        if (listeners != null && !listeners.isEmpty())
+            notifyListeners(change.getPrevious());
+    }
+
+    private boolean hasListeners() {
+        return listeners != null && !listeners.isEmpty() || deltaListeners != null && !deltaListeners.isEmpty();
+    }
+
+    /**
+     * Restores an entry without notifying the listeners, see {@link SudokuChange#revert(Sudoku, int[], int)}
+     */
+    void restore(int cell, int number, boolean userSet) {
+        setEntry(cell, number);
+        setUserSet(cell, userSet);
+    }
+
+    /**
+     * Returns the k-th word describing this Sudoku's state, see {@link SudokuFormat}
+     */
+    long word(int k) {
+        return words[k];
+    }
+
+    /**
+     * Sets the k-th word describing this Sudoku's state without notifying the listeners, see {@link SudokuFormat}
+     */
+    void setWord(int k, long word) {
+        words[k] = word;
+    }
+
+    /**
+     * Copies the words describing this Sudoku's state into the array, starting at the offset
+     */
+    void copyState(long[] state, int offset) {
+        System.arraycopy(words, 0, state, offset, WORDS);
+    }
+
+    /**
+     * Replaces this Sudoku's state by the words copied with {@link #copyState(long[], int)}, without notifying the
+     * listeners
+     */
+    void restoreState(long[] state, int offset) {
+        System.arraycopy(state, offset, words, 0, WORDS);
+    }
+
+    private void flatten(byte[] cells, boolean[] given) {
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            cells[cell] = entry(cell);
+            given[cell] = isUserSet(cell);
+        }
+    }
+
+    /**
+     * Replaces the entries of this Sudoku with the specified solution and notifies the listeners
+     */
+    private void apply(byte[] cells) {
+        final int[] changes = hasListeners() ? new int[Cells.COUNT] : null;
+        int size = 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final byte previous = entry(cell);
+            if (previous != cells[cell]) {
+                if (changes != null) {
+                    final boolean userSet = isUserSet(cell);
+                    changes[size++] = SudokuChange.encode(cell, previous, cells[cell], userSet, userSet);
+                }
+                setEntry(cell, cells[cell]);
             }
         }
+        if (size > 0)
+            fireChange(new SudokuChange(this, SudokuChange.Cause.SOLVE, changes, size));
+    }
+
+    private boolean hasGeneratedEntries() {
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (!isUserSet(cell) && entry(cell) != 0)
+                return true;
+        }
+        return false;
     }
 }
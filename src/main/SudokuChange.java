@@ -0,0 +1,202 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Describes a change of a {@link Sudoku}'s entries, i.e. which cells changed, their values before and after the
+ * change, and what caused it. The change is stored compactly as one {@code int} per changed cell; a copy of the Sudoku
+ * before the change is only created if {@link #getPrevious()} is called.
+ *
+ * @see SudokuListener
+ * @see Sudoku#addListener(SudokuListener)
+ */
+public final class SudokuChange {
+
+    /**
+     * What caused a change
+     */
+    public enum Cause {
+        /**
+         * An entry has been set by {@link Sudoku#set(int, int, byte)}
+         */
+        SET,
+        /**
+         * The generated entries have been deleted by {@link Sudoku#reset()}
+         */
+        RESET,
+        /**
+         * A solution has been computed by {@link Sudoku#solve()} or {@link Sudoku#solveParallel()}
+         */
+        SOLVE
+    }
+
+    private static final int CELL_BITS = 7;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+    private static final int OLD_SHIFT = CELL_BITS;
+    private static final int NEW_SHIFT = OLD_SHIFT + 4;
+    private static final int WAS_USER_SET = 1 << NEW_SHIFT + 4;
+    private static final int IS_USER_SET = WAS_USER_SET << 1;
+
+    private final Sudoku sudoku;
+    private final Cause cause;
+    private final int[] changes;
+    private final int size;
+    private Sudoku previous;
+
+    SudokuChange(Sudoku sudoku, Cause cause, int[] changes, int size) {
+        this.sudoku = sudoku;
+        this.cause = cause;
+        this.changes = changes;
+        this.size = size;
+    }
+
+    /**
+     * Encodes the change of a single cell
+     */
+    static int encode(int cell, int oldValue, int newValue, boolean wasUserSet, boolean isUserSet) {
+        return cell | oldValue << OLD_SHIFT | newValue << NEW_SHIFT | (wasUserSet ? WAS_USER_SET : 0)
+                | (isUserSet ? IS_USER_SET : 0);
+    }
+
+    /**
+     * Returns the Sudoku that has changed
+     *
+     * @return the changed Sudoku
+     */
+    public Sudoku getSudoku() {
+        return sudoku;
+    }
+
+    /**
+     * Returns what caused this change
+     *
+     * @return the cause of this change
+     */
+    public Cause getCause() {
+        return cause;
+    }
+
+    /**
+     * Returns the number of cells that have changed
+     *
+     * @return the number of changed cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the row of the k-th changed cell
+     *
+     * @param k the index of the changed cell, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return the cell's row, between 0 and 8 (inclusive)
+     */
+    public int getRow(int k) {
+        return cell(k) / 9;
+    }
+
+    /**
+     * Returns the column of the k-th changed cell
+     *
+     * @param k the index of the changed cell, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return the cell's column, between 0 and 8 (inclusive)
+     */
+    public int getColumn(int k) {
+        return cell(k) % 9;
+    }
+
+    /**
+     * Returns the value of the k-th changed cell before the change
+     *
+     * @param k the index of the changed cell, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return the previous value, between 0 and 9 (inclusive)
+     */
+    public byte getOldValue(int k) {
+        return (byte) (change(k) >>> OLD_SHIFT & 0xF);
+    }
+
+    /**
+     * Returns the value of the k-th changed cell after the change
+     *
+     * @param k the index of the changed cell, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return the new value, between 0 and 9 (inclusive)
+     */
+    public byte getNewValue(int k) {
+        return (byte) (change(k) >>> NEW_SHIFT & 0xF);
+    }
+
+    /**
+     * Returns whether the k-th changed cell had been set by the user before the change
+     *
+     * @param k the index of the changed cell, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return whether the previous value had been set by the user
+     */
+    public boolean wasUserSet(int k) {
+        return (change(k) & WAS_USER_SET) != 0;
+    }
+
+    /**
+     * Returns whether the k-th changed cell has been set by the user after the change
+     *
+     * @param k the index of the changed cell, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return whether the new value has been set by the user
+     */
+    public boolean isUserSet(int k) {
+        return (change(k) & IS_USER_SET) != 0;
+    }
+
+    /**
+     * Returns a copy of the Sudoku as it was before this change. The copy is created on the first call and shared by
+     * all listeners, so it must not be modified. Since it is derived from the Sudoku's current state, this method must
+     * be called while the listeners are being notified, before the Sudoku changes again.
+     *
+     * @return a copy of the Sudoku before the change
+     */
+    public Sudoku getPrevious() {
+        if (previous == null) {
+            final Sudoku copy = sudoku.clone();
+            revert(copy, changes, size);
+            previous = copy;
+        }
+        return previous;
+    }
+
+    /**
+     * Returns a copy of the encoded changes
+     */
+    int[] toArray() {
+        return Arrays.copyOf(changes, size);
+    }
+
+    /**
+     * Restores the entries of the specified Sudoku to their values before the encoded changes, without notifying any
+     * listeners
+     */
+    static void revert(Sudoku sudoku, int[] changes, int size) {
+        for (int k = size - 1; k >= 0; k--) {
+            final int change = changes[k];
+            sudoku.restore(change & CELL_MASK, change >>> OLD_SHIFT & 0xF, (change & WAS_USER_SET) != 0);
+        }
+    }
+
+    /**
+     * Sets the entries of the specified Sudoku to their values after the encoded changes, without notifying any
+     * listeners
+     */
+    static void replay(Sudoku sudoku, int[] changes, int size) {
+        for (int k = 0; k < size; k++) {
+            final int change = changes[k];
+            sudoku.restore(change & CELL_MASK, change >>> NEW_SHIFT & 0xF, (change & IS_USER_SET) != 0);
+        }
+    }
+
+    private int change(int k) {
+        if (k < 0 || k >= size)
+            throw new IndexOutOfBoundsException("Change " + k + " of " + size);
+        return changes[k];
+    }
+
+    private int cell(int k) {
+        return change(k) & CELL_MASK;
+    }
+}
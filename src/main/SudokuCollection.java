@@ -0,0 +1,330 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A file holding any number of Sudokus as fixed-width records, which is accessed through memory mappings. Since every
+ * record has the same size, the record of the n-th Sudoku is found at a computed offset, so reading it is a constant
+ * time lookup that decodes the mapped bytes directly into a {@link Sudoku} without copying them anywhere else. Records
+ * can be overwritten in place, e.g. with the solutions of the puzzles, and new ones can be appended.
+ * <p></p>
+ * A file starts with two header slots of {@value #HEADER_SLOT} bytes each, followed by the records in the format of
+ * {@link SudokuFormat#writeRecord(Sudoku, ByteBuffer)}. All numbers are big-endian. A header slot consists of:
+ * <ol>
+ *     <li>the magic number {@code "SDKC"} (4 bytes)</li>
+ *     <li>the version, currently {@value #VERSION} (2 bytes)</li>
+ *     <li>reserved flags, currently 0 (2 bytes)</li>
+ *     <li>the size of a record, currently {@value SudokuFormat#RECORD_SIZE} (4 bytes)</li>
+ *     <li>reserved, currently 0 (4 bytes)</li>
+ *     <li>a sequence number (8 bytes)</li>
+ *     <li>the number of records (8 bytes)</li>
+ *     <li>the CRC-32 of the preceding 32 bytes (4 bytes), followed by zeros</li>
+ * </ol>
+ * The valid slot with the higher sequence number is the current header. To commit a new number of records, all
+ * records are first forced to the storage device, and then the other slot is overwritten with the next sequence
+ * number. If this is interrupted, the slot is either not valid or still holds its older header, so the file always
+ * describes records that have been written completely; records appended after the last commit are simply ignored.
+ * <p></p>
+ * The records are mapped in segments of {@value #SEGMENT_SIZE} bytes, so the size of a file is not limited by the heap
+ * or by the size of a single buffer. Reading may happen on several threads at once, but writing must not overlap with
+ * any other access.
+ */
+public final class SudokuCollection implements AutoCloseable {
+
+    /**
+     * The extension of collection files
+     */
+    public static final String FILE_EXTENSION = "sudokus";
+
+    /**
+     * The magic number at the start of every header slot, {@code "SDKC"} in ASCII
+     */
+    public static final int MAGIC = 0x53444B43;
+
+    /**
+     * The current version of the format
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The size of a header slot in bytes
+     */
+    public static final int HEADER_SLOT = 64;
+
+    /**
+     * The size of the mapped segments in bytes, a multiple of the record size
+     */
+    public static final int SEGMENT_SIZE = 1 << 30;
+
+    private static final int HEADER_SIZE = 2 * HEADER_SLOT;
+    private static final int HEADER_CHECKED = 32;
+    private static final int RECORDS_PER_SEGMENT = SEGMENT_SIZE / SudokuFormat.RECORD_SIZE;
+
+    /**
+     * The number of records by which a writable file grows at least when appending
+     */
+    private static final int MIN_GROWTH = 1024;
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+
+    /**
+     * The number of records that fit into the mapped segments
+     */
+    private long capacity;
+    private long size;
+    private long committedSize;
+    private long sequence;
+    private boolean dirty;
+
+    private SudokuCollection(FileChannel channel, boolean writable) {
+        this.channel = channel;
+        this.writable = writable;
+    }
+
+    /**
+     * Creates a new, empty collection file, replacing the file if it exists
+     *
+     * @param path the file
+     * @return the collection, which is writable
+     * @throws IOException if the file cannot be created
+     */
+    public static SudokuCollection create(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        final SudokuCollection collection = new SudokuCollection(channel, true);
+        try {
+            collection.writeHeader(0, 0);
+            collection.writeHeader(1, 0);
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return collection;
+    }
+
+    /**
+     * Opens an existing collection file
+     *
+     * @param path     the file
+     * @param writable whether records may be overwritten and appended
+     * @return the collection
+     * @throws IOException if the file cannot be opened, or is not a collection file
+     */
+    public static SudokuCollection open(Path path, boolean writable) throws IOException {
+        final FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        final SudokuCollection collection = new SudokuCollection(channel, writable);
+        try {
+            collection.readHeader();
+            collection.map(collection.size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return collection;
+    }
+
+    /**
+     * Returns the number of Sudokus in this collection, including the ones appended since the last commit
+     *
+     * @return the number of Sudokus
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Reads the n-th Sudoku into a new instance
+     *
+     * @param n the index of the Sudoku, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return the Sudoku
+     * @throws IOException if the record does not describe a Sudoku
+     */
+    public Sudoku get(long n) throws IOException {
+        final Sudoku sudoku = new Sudoku();
+        read(n, sudoku);
+        return sudoku;
+    }
+
+    /**
+     * Reads the n-th Sudoku into an existing instance, without notifying its listeners. Nothing is allocated, so this
+     * is the method of choice for iterating over large collections.
+     *
+     * @param n      the index of the Sudoku, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @param sudoku the Sudoku that is overwritten
+     * @throws IOException if the record does not describe a Sudoku; the Sudoku remains unchanged in this case
+     */
+    public void read(long n, Sudoku sudoku) throws IOException {
+        checkIndex(n);
+        SudokuFormat.readRecord(segments[segment(n)], offset(n), sudoku);
+    }
+
+    /**
+     * Overwrites the n-th Sudoku in place. The change is written to the file by the operating system at some point,
+     * and at the latest by {@link #commit()}.
+     *
+     * @param n      the index of the Sudoku, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @param sudoku the new Sudoku
+     * @throws IllegalStateException if this collection is not writable
+     */
+    public void set(long n, Sudoku sudoku) {
+        checkWritable();
+        checkIndex(n);
+        SudokuFormat.writeRecord(sudoku, segments[segment(n)], offset(n));
+        dirty = true;
+    }
+
+    /**
+     * Appends a Sudoku to this collection. The file grows in steps, and the new Sudoku only becomes part of the file
+     * once {@link #commit()} has been called.
+     *
+     * @param sudoku the Sudoku to append
+     * @return the index of the appended Sudoku
+     * @throws IOException           if the file cannot grow
+     * @throws IllegalStateException if this collection is not writable
+     */
+    public long append(Sudoku sudoku) throws IOException {
+        checkWritable();
+        if (size == capacity)
+            map(Math.max(size + MIN_GROWTH, Math.min(2 * size, size + RECORDS_PER_SEGMENT)));
+        final long n = size++;
+        SudokuFormat.writeRecord(sudoku, segments[segment(n)], offset(n));
+        dirty = true;
+        return n;
+    }
+
+    /**
+     * Forces all records to the storage device and then updates the header with the current number of Sudokus, so
+     * that the file describes them even if the process or the system crashes afterwards
+     *
+     * @throws IOException if writing fails
+     */
+    public void commit() throws IOException {
+        if (!writable || !dirty && size == committedSize)
+            return;
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+        writeHeader((int) (sequence + 1 & 1), sequence + 1);
+        channel.force(false);
+        sequence++;
+        committedSize = size;
+        dirty = false;
+    }
+
+    /**
+     * Commits all changes, cuts off the space reserved for further appends, and closes the file
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+            segments = new MappedByteBuffer[0];
+            if (writable) {
+                try {
+                    channel.truncate(HEADER_SIZE + size * SudokuFormat.RECORD_SIZE);
+                } catch (IOException e) {
+                    // some systems refuse to truncate files that are still mapped; the spare records are ignored
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Maps the segments needed for the specified number of records, which grows the file if it is writable
+     */
+    private void map(long records) throws IOException {
+        final int count = (int) ((records + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+        final MappedByteBuffer[] mapped = Arrays.copyOf(segments, count);
+        final FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = Math.max(segments.length - 1, 0); i < count; i++) {
+            final long first = (long) i * RECORDS_PER_SEGMENT;
+            final long length = Math.min(records - first, RECORDS_PER_SEGMENT) * SudokuFormat.RECORD_SIZE;
+            if (mapped[i] == null || mapped[i].capacity() < length)
+                mapped[i] = channel.map(mode, HEADER_SIZE + first * SudokuFormat.RECORD_SIZE, length);
+        }
+        segments = mapped;
+        capacity = records;
+    }
+
+    private void readHeader() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) ;
+        if (header.hasRemaining())
+            throw new IOException("Not a collection file");
+
+        int current = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            final int start = slot * HEADER_SLOT;
+            if (header.getInt(start) != MAGIC || header.getInt(start + HEADER_CHECKED) != checksum(header, start))
+                continue;
+            if (current < 0 || header.getLong(start + 16) > header.getLong(current * HEADER_SLOT + 16))
+                current = slot;
+        }
+        if (current < 0)
+            throw new IOException("Not a collection file, or its header is damaged");
+
+        final int start = current * HEADER_SLOT;
+        final int version = header.getShort(start + 4);
+        if (version != VERSION)
+            throw new IOException("Unsupported version " + version);
+        if (header.getInt(start + 8) != SudokuFormat.RECORD_SIZE)
+            throw new IOException("Unsupported record size " + header.getInt(start + 8));
+        sequence = header.getLong(start + 16);
+        size = committedSize = header.getLong(start + 24);
+        if (size < 0 || HEADER_SIZE + size * SudokuFormat.RECORD_SIZE > channel.size())
+            throw new IOException("The file is shorter than its header claims");
+    }
+
+    private void writeHeader(int slot, long sequence) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SLOT);
+        header.putInt(0, MAGIC);
+        header.putShort(4, VERSION);
+        header.putInt(8, SudokuFormat.RECORD_SIZE);
+        header.putLong(16, sequence);
+        header.putLong(24, size);
+        header.putInt(HEADER_CHECKED, checksum(header, 0));
+        while (header.hasRemaining())
+            channel.write(header, slot * HEADER_SLOT + header.position());
+    }
+
+    private static int checksum(ByteBuffer header, int start) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer bytes = header.duplicate();
+        bytes.limit(start + HEADER_CHECKED).position(start);
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private void checkIndex(long n) {
+        if (n < 0 || n >= size)
+            throw new IndexOutOfBoundsException("Sudoku " + n + " of " + size);
+    }
+
+    private void checkWritable() {
+        if (!writable)
+            throw new IllegalStateException("The collection is read-only");
+    }
+
+    private static int segment(long n) {
+        return (int) (n / RECORDS_PER_SEGMENT);
+    }
+
+    private static int offset(long n) {
+        return (int) (n % RECORDS_PER_SEGMENT) * SudokuFormat.RECORD_SIZE;
+    }
+}
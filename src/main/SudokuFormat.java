@@ -0,0 +1,286 @@
+package main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format of {@value Main#FILE_EXTENSION} files. A file consists of {@value #SIZE} bytes, all big-endian:
+ * <ol>
+ *     <li>the magic number {@code "SDKU"} (4 bytes)</li>
+ *     <li>the version, currently {@value #VERSION} (2 bytes)</li>
+ *     <li>reserved flags, currently 0 (2 bytes)</li>
+ *     <li>a {@link #RECORD_SIZE}-byte record of the Sudoku, see below</li>
+ *     <li>the CRC-32 of all preceding bytes (4 bytes)</li>
+ * </ol>
+ * The record consists of eight longs. The first six hold the entries, 4 bits each: the entry of cell {@code 9 * row +
+ * column} occupies bits {@code 4 * (cell % 16)} to {@code 4 * (cell % 16) + 3} of long {@code cell / 16}. The last two
+ * hold the given-mask, i.e. whether an entry has been set by the user, in bit {@code cell % 64} of long {@code 6 + cell
+ * / 64}. All unused bits are 0. Since this is the layout of {@link Sudoku} in memory, reading a record is eight loads
+ * and a few bit tests, and a record fills exactly one cache line.
+ * <p></p>
+ * Files written with the former {@link java.io.ObjectOutputStream}-based format, i.e. {@link
+ * Sudoku#writeExternal(java.io.ObjectOutput)}, can still be read by {@link #load(Path)}. Only the two arrays of that
+ * format are accepted while deserializing them.
+ */
+public final class SudokuFormat {
+
+    /**
+     * The magic number at the start of every file, {@code "SDKU"} in ASCII
+     */
+    public static final int MAGIC = 0x53444B55;
+
+    /**
+     * The current version of the format
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * The size of the record of a single Sudoku in bytes
+     */
+    public static final int RECORD_SIZE = Sudoku.WORDS * Long.BYTES;
+
+    /**
+     * The size of a file in bytes
+     */
+    public static final int SIZE = 8 + RECORD_SIZE + 4;
+
+    /**
+     * The first two bytes of a Java serialization stream, which start the files of the legacy format
+     */
+    private static final short LEGACY_MAGIC = (short) 0xACED;
+
+    private static final long NIBBLE_HIGH_BITS = 0x8888888888888888L;
+
+    /**
+     * The bits of the last entry word and the last given-mask word that belong to cells of the Sudoku, i.e. cell 80
+     * and cells 64 to 80 respectively
+     */
+    private static final long LAST_ENTRY_WORD = 0xFL;
+    private static final long LAST_MASK_WORD = (1L << 17) - 1;
+
+    private static final ObjectInputFilter LEGACY_FILTER = info -> {
+        final Class<?> type = info.serialClass();
+        if (info.depth() > 2 || info.arrayLength() > 9)
+            return ObjectInputFilter.Status.REJECTED;
+        if (type == null || type == byte[][].class || type == byte[].class || type == boolean[][].class
+                || type == boolean[].class)
+            return ObjectInputFilter.Status.UNDECIDED;
+        return ObjectInputFilter.Status.REJECTED;
+    };
+
+    private SudokuFormat() { }
+
+    /**
+     * Writes the record of the specified Sudoku at the buffer's position, which is advanced by {@link #RECORD_SIZE}
+     *
+     * @param sudoku the Sudoku to write
+     * @param buffer the buffer, whose byte order is ignored
+     */
+    public static void writeRecord(Sudoku sudoku, ByteBuffer buffer) {
+        final int position = buffer.position();
+        writeRecord(sudoku, buffer, position);
+        buffer.position(position + RECORD_SIZE);
+    }
+
+    /**
+     * Writes the record of the specified Sudoku at the specified index of the buffer, without changing its position
+     *
+     * @param sudoku the Sudoku to write
+     * @param buffer the buffer, whose byte order is ignored
+     * @param index  the index of the record's first byte
+     */
+    public static void writeRecord(Sudoku sudoku, ByteBuffer buffer, int index) {
+        for (int k = 0; k < Sudoku.WORDS; k++)
+            putLong(buffer, index + k * Long.BYTES, sudoku.word(k));
+    }
+
+    /**
+     * Reads a record at the buffer's position, which is advanced by {@link #RECORD_SIZE}, into the specified Sudoku.
+     * The listeners of the Sudoku are not notified.
+     *
+     * @param buffer the buffer, whose byte order is ignored
+     * @param sudoku the Sudoku that is overwritten with the record
+     * @throws IOException if the record does not describe a Sudoku; the Sudoku and the buffer's position remain
+     *                     unchanged in this case
+     */
+    public static void readRecord(ByteBuffer buffer, Sudoku sudoku) throws IOException {
+        final int position = buffer.position();
+        readRecord(buffer, position, sudoku);
+        buffer.position(position + RECORD_SIZE);
+    }
+
+    /**
+     * Reads the record at the specified index of the buffer into the specified Sudoku, without changing the buffer's
+     * position. Since the buffer's state is not changed, several threads may read from the same buffer at once. The
+     * listeners of the Sudoku are not notified.
+     *
+     * @param buffer the buffer, whose byte order is ignored
+     * @param index  the index of the record's first byte
+     * @param sudoku the Sudoku that is overwritten with the record
+     * @throws IOException if the record does not describe a Sudoku; the Sudoku remains unchanged in this case
+     */
+    public static void readRecord(ByteBuffer buffer, int index, Sudoku sudoku) throws IOException {
+        long invalid = 0, nonEmpty = 0, nonEmptyHigh = 0;
+        for (int k = 0; k < Sudoku.WORDS - 2; k++) {
+            final long word = getLong(buffer, index + k * Long.BYTES);
+            // a nibble is greater than 9 if its highest bit is set along with one of the two below
+            invalid |= word & (word << 1 | word << 2) & NIBBLE_HIGH_BITS;
+            if (k < 4)
+                nonEmpty |= nonEmptyCells(word) << 16 * k;
+            else
+                nonEmptyHigh |= nonEmptyCells(word) << 16 * (k - 4);
+        }
+        final long lastEntries = getLong(buffer, index + (Sudoku.WORDS - 3) * Long.BYTES);
+        final long mask = getLong(buffer, index + (Sudoku.WORDS - 2) * Long.BYTES);
+        final long maskHigh = getLong(buffer, index + (Sudoku.WORDS - 1) * Long.BYTES);
+        if (invalid != 0 || (lastEntries & ~LAST_ENTRY_WORD) != 0 || (maskHigh & ~LAST_MASK_WORD) != 0)
+            throw new IOException("The record contains entries that are not between 0 and 9");
+        if ((mask & ~nonEmpty | maskHigh & ~nonEmptyHigh) != 0)
+            throw new IOException("The record marks empty cells as given");
+
+        for (int k = 0; k < Sudoku.WORDS; k++)
+            sudoku.setWord(k, getLong(buffer, index + k * Long.BYTES));
+    }
+
+    /**
+     * Returns a mask of 16 bits that tells which of the 16 entries of the word are not 0
+     */
+    private static long nonEmptyCells(long word) {
+        long bits = (word | word >>> 1 | word >>> 2 | word >>> 3) & 0x1111111111111111L;
+        bits = (bits | bits >>> 3) & 0x0303030303030303L;
+        bits = (bits | bits >>> 6) & 0x000F000F000F000FL;
+        bits = (bits | bits >>> 12) & 0x000000FF000000FFL;
+        return (bits | bits >>> 24) & 0xFFFFL;
+    }
+
+    /**
+     * Writes the specified Sudoku in the format of a file, i.e. {@link #SIZE} bytes, at the buffer's position
+     *
+     * @param sudoku the Sudoku to write
+     * @param buffer the buffer, whose byte order is ignored
+     */
+    public static void write(Sudoku sudoku, ByteBuffer buffer) {
+        final int start = buffer.position();
+        putInt(buffer, start, MAGIC);
+        putInt(buffer, start + 4, VERSION << 16);
+        buffer.position(start + 8);
+        writeRecord(sudoku, buffer);
+        putInt(buffer, start + 8 + RECORD_SIZE, checksum(buffer, start));
+        buffer.position(start + SIZE);
+    }
+
+    /**
+     * Reads a Sudoku in the format of a file, i.e. {@link #SIZE} bytes, at the buffer's position
+     *
+     * @param buffer the buffer, whose byte order is ignored
+     * @return the Sudoku
+     * @throws IOException if the bytes are not a Sudoku in a supported version, or the checksum does not match
+     */
+    public static Sudoku read(ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        if (buffer.remaining() < SIZE)
+            throw new IOException("Expected " + SIZE + " bytes, but only " + buffer.remaining() + " are left");
+        if (getInt(buffer, start) != MAGIC)
+            throw new IOException("Not a Sudoku file");
+        final int version = getInt(buffer, start + 4) >>> 16;
+        if (version != VERSION)
+            throw new IOException("Unsupported version " + version);
+        if (getInt(buffer, start + 8 + RECORD_SIZE) != checksum(buffer, start))
+            throw new IOException("The checksum does not match, the file is damaged");
+
+        final Sudoku sudoku = new Sudoku();
+        buffer.position(start + 8);
+        readRecord(buffer, sudoku);
+        buffer.position(start + SIZE);
+        return sudoku;
+    }
+
+    /**
+     * Saves the specified Sudoku to a file, replacing it if it exists
+     *
+     * @param sudoku the Sudoku to save
+     * @param path   the file
+     * @throws IOException if writing fails
+     */
+    public static void save(Sudoku sudoku, Path path) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+        write(sudoku, buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Loads a Sudoku from a file in this format or in the legacy format written by {@link
+     * Sudoku#writeExternal(java.io.ObjectOutput)}
+     *
+     * @param path the file
+     * @return the Sudoku
+     * @throws IOException if reading fails, or the file is neither in this format nor in the legacy one
+     */
+    public static Sudoku load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+            buffer.flip();
+            if (buffer.remaining() >= 2 && buffer.getShort(0) == LEGACY_MAGIC)
+                return loadLegacy(buffer, Channels.newInputStream(channel));
+            return read(buffer);
+        }
+    }
+
+    private static Sudoku loadLegacy(ByteBuffer start, InputStream rest) throws IOException {
+        final PushbackInputStream stream = new PushbackInputStream(rest, start.remaining());
+        stream.unread(start.array(), start.arrayOffset() + start.position(), start.remaining());
+        try (ObjectInputStream in = new ObjectInputStream(stream)) {
+            in.setObjectInputFilter(LEGACY_FILTER);
+            final Sudoku sudoku = new Sudoku();
+            sudoku.readExternal(in);
+            return sudoku;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a Sudoku file", e);
+        }
+    }
+
+    /**
+     * Computes the CRC-32 of the header and the record of a file starting at the specified position
+     */
+    private static int checksum(ByteBuffer buffer, int start) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(start + 8 + RECORD_SIZE).position(start);
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static long getLong(ByteBuffer buffer, int index) {
+        final long value = buffer.getLong(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    private static void putLong(ByteBuffer buffer, int index, long value) {
+        buffer.putLong(index, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value));
+    }
+
+    private static int getInt(ByteBuffer buffer, int index) {
+        final int value = buffer.getInt(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    private static void putInt(ByteBuffer buffer, int index, int value) {
+        buffer.putInt(index, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+    }
+}
@@ -0,0 +1,17 @@
+package main;
+
+/**
+ * A listener that is notified whenever the entries of a {@link Sudoku} change
+ *
+ * @see Sudoku#addListener(SudokuListener)
+ */
+@FunctionalInterface
+public interface SudokuListener {
+
+    /**
+     * Called after the entries of a Sudoku have changed
+     *
+     * @param change the cells that have changed, which is shared by all listeners
+     */
+    void changed(SudokuChange change);
+}
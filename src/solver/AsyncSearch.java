@@ -0,0 +1,104 @@
+package solver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs searches on an executor and returns their results as {@link CompletableFuture}s. Every search is limited by a
+ * {@link SearchControl}: the future completes exceptionally with a {@link java.util.concurrent.TimeoutException} if the
+ * search exhausts a budget and with a {@link java.util.concurrent.CancellationException} if the control is cancelled.
+ * Cancelling the future cancels the control as well, so the search stops at its next checkpoint instead of running to
+ * the end in the background.
+ * <p></p>
+ * The engine is taken from the supplier on the executor's thread, so thread-confined engines like the ones of {@link
+ * Engines} can be used. If the executor rejects the search, the future completes exceptionally with the {@link
+ * RejectedExecutionException}.
+ */
+public final class AsyncSearch {
+
+    private AsyncSearch() { }
+
+    /**
+     * Searches the first solution of a grid, see {@link SolverEngine#solve(byte[], boolean[], SearchControl)}. The
+     * arrays are copied, so they may be changed as soon as this method returns.
+     *
+     * @param engine   the supplier of the engine
+     * @param cells    the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given    which entries are given, i.e. must not be changed
+     * @param control  the control limiting the search
+     * @param executor the executor running the search
+     * @return the future receiving the solved grid, or {@code null} if the grid has no further solution
+     */
+    public static CompletableFuture<byte[]> solve(Supplier<? extends SolverEngine> engine, byte[] cells,
+                                                  boolean[] given, SearchControl control, Executor executor) {
+        final byte[] grid = cells.clone();
+        final boolean[] fixed = given.clone();
+        return submit(control, executor, () -> engine.get().solve(grid, fixed, control) ? grid : null);
+    }
+
+    /**
+     * Solves a puzzle through a cache, see {@link SolutionCache#solve(byte[], SolverEngine, SearchControl)}. The array
+     * is copied, so it may be changed as soon as this method returns.
+     *
+     * @param cache    the cache answering puzzles equivalent to ones solved before
+     * @param engine   the supplier of the engine searching if the cache misses
+     * @param puzzle   the 81 entries of the puzzle, row by row, between 0 and 9 (inclusive), all of which are given
+     * @param control  the control limiting the search
+     * @param executor the executor running the search
+     * @return the future receiving the solution, or {@code null} if the puzzle has none
+     */
+    public static CompletableFuture<byte[]> solve(SolutionCache cache, Supplier<? extends SolverEngine> engine,
+                                                  byte[] puzzle, SearchControl control, Executor executor) {
+        final byte[] grid = puzzle.clone();
+        return submit(control, executor, () -> cache.solve(grid, engine.get(), control));
+    }
+
+    /**
+     * Counts the solutions of a grid, see {@link SolverEngine#count(byte[], boolean[], long, SearchControl)}. The
+     * arrays are copied, so they may be changed as soon as this method returns.
+     *
+     * @param engine   the supplier of the engine
+     * @param cells    the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given    which entries are given
+     * @param limit    the number of solutions after which counting stops
+     * @param control  the control limiting the search
+     * @param executor the executor running the search
+     * @return the future receiving the number of solutions, but at most {@code limit}
+     */
+    public static CompletableFuture<Long> count(Supplier<? extends SolverEngine> engine, byte[] cells,
+                                                boolean[] given, long limit, SearchControl control,
+                                                Executor executor) {
+        final byte[] grid = cells.clone();
+        final boolean[] fixed = given.clone();
+        return submit(control, executor, () -> engine.get().count(grid, fixed, limit, control));
+    }
+
+    private static <T> CompletableFuture<T> submit(SearchControl control, Executor executor, Supplier<T> search) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((result, failure) -> {
+            if (future.isCancelled())
+                control.cancel();
+        });
+        try {
+            executor.execute(() -> {
+                if (future.isDone())
+                    return;
+                try {
+                    final T result = search.get();
+                    final Exception stopped = control.toException();
+                    if (stopped == null)
+                        future.complete(result);
+                    else
+                        future.completeExceptionally(stopped);
+                } catch (RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,299 @@
+package solver;
+
+/**
+ * A backtracking solver that keeps the digits used in every row, column and box as 9-bit masks, so that the candidates
+ * of a cell are available in constant time instead of having to scan its peers. Cells are visited row by row and
+ * digits are tried in ascending order, so the solutions are found in lexicographic order.
+ * <p></p>
+ * An engine keeps its search state in preallocated arrays and is therefore not thread-safe; every thread should use its
+ * own instance.
+ */
+public final class BitmaskEngine implements SolverEngine {
+
+    private static final SolutionVisitor STOP = solution -> false;
+
+    private final int[] rows = new int[9];
+    private final int[] columns = new int[9];
+    private final int[] boxes = new int[9];
+
+    /**
+     * The cells that have to be filled in, in row-major order
+     */
+    private final byte[] empty = new byte[Cells.COUNT];
+
+    /**
+     * The digit currently placed at every level of the search
+     */
+    private final byte[] digits = new byte[Cells.COUNT];
+
+    /**
+     * The previous contents of the cell at every level of the search
+     */
+    private final byte[] previous = new byte[Cells.COUNT];
+
+    /**
+     * The entries of the grid as far as they have been filled in, which are visible through {@link #view}
+     */
+    private final byte[] grid = new byte[Cells.COUNT];
+    private final Solution view = cell -> grid[cell];
+
+    /**
+     * The control of the running search, or {@code null} if it is not limited
+     */
+    private SearchControl control;
+
+    /**
+     * The number of nodes the running search has visited, for consulting the control
+     */
+    private long nodes;
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine finds the solutions in lexicographic order, 0 counting as smaller than every digit. In other words,
+     * the cells that are not given are filled with the smallest solution that comes after their current contents.
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given) {
+        final int n = load(cells, given);
+        if (n < 0)
+            return false;
+        if (n == 0)
+            return true;
+        if (search(n, true, STOP) == 0)
+            return false;
+
+        for (int k = 0; k < n; k++)
+            cells[empty[k]] = digits[k];
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given, SearchControl control) {
+        if (!control.checkpoint(0))
+            return false;
+        this.control = control;
+        try {
+            return solve(cells, given);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine enumerates the solutions in lexicographic order, i.e. in the order of {@link #solve(byte[],
+     * boolean[])}.
+     */
+    @Override
+    public long enumerate(byte[] cells, boolean[] given, SolutionVisitor visitor) {
+        final int n = load(cells, given);
+        if (n < 0)
+            return 0;
+        if (n == 0) {
+            visitor.visit(view);
+            return 1;
+        }
+        return search(n, false, visitor);
+    }
+
+    /**
+     * Searches the solutions in lexicographic order, passing them to the visitor until it returns {@code false}. In
+     * that case, the digits of the last solution remain in {@link #digits}. Stops early if the control, if any, asks
+     * to.
+     *
+     * @param n      the number of cells to fill in
+     * @param resume whether to skip all solutions up to and including the previous contents of the cells
+     * @return the number of solutions passed to the visitor
+     */
+    private long search(int n, boolean resume, SolutionVisitor visitor) {
+        long count = 0;
+        int level = 0, equal = resume ? 0 : -1;
+        digits[0] = 0;
+        nodes = 0;
+        while (level >= 0) {
+            if (level == n) {
+                // unless this is the solution we started from, pass it on
+                if (equal < n) {
+                    count++;
+                    if (!visitor.visit(view))
+                        return count;
+                }
+                level--;
+                continue;
+            }
+
+            final int cell = empty[level];
+            int digit = digits[level];
+            if (digit != 0) {
+                remove(cell, digit);
+                if (equal > level)
+                    equal = level;
+            }
+
+            int mask = candidates(cell) & -(1 << digit);
+            if (equal == level && previous[level] > digit)
+                mask &= Cells.atLeast(previous[level]);
+
+            if (mask == 0) {
+                digits[level] = 0;
+                level--;
+                continue;
+            }
+
+            if ((++nodes & SearchControl.CHECK_INTERVAL - 1) == 0 && control != null && !control.checkpoint(nodes))
+                return count;
+            digit = Integer.numberOfTrailingZeros(mask) + 1;
+            place(cell, digit);
+            digits[level] = (byte) digit;
+            grid[cell] = (byte) digit;
+            if (equal == level && digit == previous[level])
+                equal++;
+            level++;
+            if (level < n)
+                digits[level] = 0;
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * Since the order does not matter when counting, this engine always branches on the cell with the fewest
+     * candidates.
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit) {
+        final int n = load(cells, given);
+        if (n < 0 || limit <= 0)
+            return 0;
+
+        long count = 0;
+        int level = 0;
+        digits[0] = 0;
+        nodes = 0;
+        while (level >= 0) {
+            if (level == n) {
+                if (++count >= limit)
+                    break;
+                level--;
+                continue;
+            }
+
+            int digit = digits[level];
+            if (digit == 0)
+                chooseCell(level, n);
+            final int cell = empty[level];
+            if (digit != 0)
+                remove(cell, digit);
+
+            final int mask = candidates(cell) & -(1 << digit);
+            if (mask == 0) {
+                digits[level] = 0;
+                level--;
+                continue;
+            }
+
+            if ((++nodes & SearchControl.CHECK_INTERVAL - 1) == 0 && control != null && !control.checkpoint(nodes))
+                break;
+            digit = Integer.numberOfTrailingZeros(mask) + 1;
+            place(cell, digit);
+            digits[level] = (byte) digit;
+            level++;
+            if (level < n)
+                digits[level] = 0;
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit, SearchControl control) {
+        if (!control.checkpoint(0))
+            return 0;
+        this.control = control;
+        try {
+            return count(cells, given, limit);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    /**
+     * Moves the cell with the fewest candidates among the ones that have not been filled in yet to the specified level
+     */
+    private void chooseCell(int level, int n) {
+        int best = level, fewest = 10;
+        for (int k = level; k < n && fewest > 1; k++) {
+            final int candidates = Integer.bitCount(candidates(empty[k]));
+            if (candidates < fewest) {
+                best = k;
+                fewest = candidates;
+            }
+        }
+        final byte cell = empty[best];
+        empty[best] = empty[level];
+        empty[level] = cell;
+    }
+
+    private int candidates(int cell) {
+        return ~(rows[Cells.ROW[cell]] | columns[Cells.COLUMN[cell]] | boxes[Cells.BOX[cell]]) & Cells.ALL_DIGITS;
+    }
+
+    /**
+     * Initializes the masks with the given entries and collects the cells that have to be filled in
+     *
+     * @return the number of cells to fill in, or -1 if the given entries break the rules
+     */
+    private int load(byte[] cells, boolean[] given) {
+        for (int i = 0; i < 9; i++) {
+            rows[i] = 0;
+            columns[i] = 0;
+            boxes[i] = 0;
+        }
+
+        int n = 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final int number = cells[cell];
+            if (number < 0 || number > 9)
+                return -1;
+            if (given[cell] && number != 0) {
+                grid[cell] = (byte) number;
+                final int bit = Cells.bit(number);
+                if (((rows[Cells.ROW[cell]] | columns[Cells.COLUMN[cell]] | boxes[Cells.BOX[cell]]) & bit) != 0)
+                    return -1;
+                place(cell, number);
+            } else {
+                grid[cell] = 0;
+                empty[n] = (byte) cell;
+                previous[n] = (byte) number;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private void place(int cell, int digit) {
+        final int bit = Cells.bit(digit);
+        rows[Cells.ROW[cell]] |= bit;
+        columns[Cells.COLUMN[cell]] |= bit;
+        boxes[Cells.BOX[cell]] |= bit;
+    }
+
+    private void remove(int cell, int digit) {
+        final int bit = ~Cells.bit(digit);
+        rows[Cells.ROW[cell]] &= bit;
+        columns[Cells.COLUMN[cell]] &= bit;
+        boxes[Cells.BOX[cell]] &= bit;
+    }
+}
@@ -0,0 +1,27 @@
+package solver;
+
+/**
+ * The order in which {@link PropagatingEngine} chooses the cell to branch on and tries its candidates. Ties between
+ * cells are always broken in favour of the first one, row by row, and ties between digits in favour of the smaller
+ * one, so the order of the solutions is deterministic in every mode.
+ */
+public enum Branching {
+
+    /**
+     * The first cell that has not been filled in yet, row by row, with its candidates in ascending order, so the
+     * solutions are found in lexicographic order
+     */
+    FIRST_CELL,
+
+    /**
+     * The cell with the fewest candidates (minimum remaining values), with its candidates in ascending order. This
+     * keeps the search tree small wherever the givens are, but the solutions are no longer found in lexicographic order.
+     */
+    FEWEST_CANDIDATES,
+
+    /**
+     * The cell with the fewest candidates, with its candidates ordered by how many candidates of its peers they
+     * would remove, the least constraining first
+     */
+    LEAST_CONSTRAINING
+}
@@ -0,0 +1,139 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * A cage of a Killer Sudoku: its digits must be distinct and add up to its sum. The digits cannot repeat, so a cage
+ * can only hold one of few combinations of digits, which {@link Rules} computes once and the {@link GeneralEngine}
+ * propagates as candidate masks.
+ */
+public final class Cage implements Constraint {
+
+    private final int sum;
+    private final short[] cells;
+
+    /**
+     * Creates a new cage
+     *
+     * @param sum   the sum of the cage's digits
+     * @param cells the cells of the cage, row by row, i.e. {@code side * row + column}
+     * @throws IllegalArgumentException if there are no cells or a cell appears twice
+     */
+    public Cage(int sum, int... cells) {
+        if (cells.length == 0)
+            throw new IllegalArgumentException("A cage needs at least one cell");
+        this.sum = sum;
+        this.cells = new short[cells.length];
+        for (int k = 0; k < cells.length; k++)
+            this.cells[k] = (short) cells[k];
+        Arrays.sort(this.cells);
+        for (int k = 1; k < this.cells.length; k++) {
+            if (this.cells[k] == this.cells[k - 1])
+                throw new IllegalArgumentException("Cell " + this.cells[k] + " appears twice in a cage");
+        }
+    }
+
+    /**
+     * Returns the sum of the cage's digits
+     *
+     * @return the sum
+     */
+    public int getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the number of cells of the cage
+     *
+     * @return the size of the cage
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    /**
+     * Returns a copy of the cells of the cage
+     *
+     * @return the cells, in ascending order
+     */
+    public int[] getCells() {
+        final int[] copy = new int[cells.length];
+        for (int k = 0; k < cells.length; k++)
+            copy[k] = cells[k];
+        return copy;
+    }
+
+    short[] cells() {
+        return cells;
+    }
+
+    /**
+     * Returns this cage
+     *
+     * @throws IllegalArgumentException if a cell is outside the geometry or the cage has more cells than digits
+     */
+    @Override
+    public List<Cage> cages(Geometry geometry) {
+        if (cells.length > geometry.getSide())
+            throw new IllegalArgumentException("A cage of a " + geometry + " Sudoku cannot have " + cells.length
+                    + " cells");
+        if (cells[0] < 0 || cells[cells.length - 1] >= geometry.getCellCount())
+            throw new IllegalArgumentException("Cage " + this + " is not inside a " + geometry + " Sudoku");
+        return List.of(this);
+    }
+
+    /**
+     * Computes the combinations of distinct digits that fill the cage
+     *
+     * @param side the number of digits
+     * @return the combinations as masks with bit {@code d - 1} set for digit {@code d}
+     */
+    int[] combinations(int side) {
+        final IntStream.Builder combinations = IntStream.builder();
+        combine(side, 1, cells.length, sum, 0, combinations);
+        return combinations.build().toArray();
+    }
+
+    /**
+     * Adds every combination of {@code k} distinct digits from {@code from} to {@code side} adding up to {@code rest}
+     * to the chosen digits
+     */
+    private static void combine(int side, int from, int k, int rest, int chosen, IntStream.Builder combinations) {
+        if (k == 0) {
+            if (rest == 0)
+                combinations.add(chosen);
+            return;
+        }
+        // the k largest digits bound the sum that can still be reached
+        if (k * side - k * (k - 1) / 2 < rest)
+            return;
+        for (int d = from; d <= side - k + 1; d++) {
+            // so do the k smallest ones from d on
+            if (k * d + k * (k - 1) / 2 > rest)
+                break;
+            combine(side, d + 1, k - 1, rest - d, chosen | 1 << d - 1, combinations);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Cage))
+            return false;
+        final Cage cage = (Cage) o;
+        return sum == cage.sum && Arrays.equals(cells, cage.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * sum + Arrays.hashCode(cells);
+    }
+
+    @Override
+    public String toString() {
+        return sum + Arrays.toString(cells);
+    }
+}
@@ -0,0 +1,376 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The canonical form of a 9x9 puzzle under the symmetries of the Sudoku: relabelling the digits, permuting the bands,
+ * the rows within a band, the stacks and the columns within a stack, and transposing. All of these map solutions to
+ * solutions, so equivalent puzzles have equivalent solutions, and a solution of the canonical form can be mapped back
+ * to one of any equivalent puzzle by {@link #fromCanonical(byte[])}.
+ * <p></p>
+ * The canonical form is the smallest grid, read row by row, that a symmetry maps the puzzle to, where the digits are
+ * relabelled in the order they first appear and empty cells count as larger than every digit, so that the givens
+ * gather in the top left. It is found row by row: the candidates for the first row are derived from the givens of every
+ * row and column, and every further row only keeps the transformations whose rows so far are the smallest. Puzzles
+ * with many symmetries, e.g. one with hardly any givens, leave too many transformations to follow; they, and puzzles
+ * breaking the rules, are not {@link #isReduced() reduced} and keep their own entries as their form.
+ */
+public final class CanonicalForm {
+
+    /**
+     * The number of transformations followed at most while reducing a puzzle
+     */
+    static final int LIMIT = 1 << 10;
+
+    /**
+     * The value empty cells are compared as
+     */
+    private static final int EMPTY = 10;
+
+    private final byte[] cells;
+    private final boolean reduced;
+
+    /**
+     * Whether the puzzle is transposed, followed by the rows and the columns of the puzzle that become the rows and
+     * columns of the canonical form, and the new label of every digit
+     */
+    private final boolean transposed;
+    private final byte[] rows, columns;
+    private final byte[] label, digit;
+
+    private CanonicalForm(byte[] cells, boolean reduced, boolean transposed, byte[] rows, byte[] columns,
+                          byte[] label) {
+        this.cells = cells;
+        this.reduced = reduced;
+        this.transposed = transposed;
+        this.rows = rows;
+        this.columns = columns;
+        this.label = label;
+        this.digit = new byte[10];
+        for (int d = 0; d <= 9; d++)
+            digit[label[d]] = (byte) d;
+    }
+
+    /**
+     * Computes the canonical form of a puzzle
+     *
+     * @param puzzle the 81 entries of the puzzle, row by row, between 0 and 9 (inclusive)
+     * @return the canonical form
+     * @throws IllegalArgumentException if the puzzle does not have 81 entries or one of them is out of range
+     */
+    public static CanonicalForm of(byte[] puzzle) {
+        if (puzzle.length != Cells.COUNT)
+            throw new IllegalArgumentException("Expected " + Cells.COUNT + " cells, got " + puzzle.length);
+        for (byte entry : puzzle) {
+            if (entry < 0 || entry > 9)
+                throw new IllegalArgumentException("Entry " + entry + " is not between 0 and 9");
+        }
+        final CanonicalForm form = isValid(puzzle) ? reduce(puzzle) : null;
+        return form != null ? form : identity(puzzle);
+    }
+
+    private static CanonicalForm identity(byte[] puzzle) {
+        final byte[] order = {0, 1, 2, 3, 4, 5, 6, 7, 8};
+        final byte[] label = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        return new CanonicalForm(puzzle.clone(), false, false, order, order.clone(), label);
+    }
+
+    /**
+     * Returns whether no digit appears twice in a row, a column or a box, which the candidates for the first row rely on
+     */
+    private static boolean isValid(byte[] puzzle) {
+        final int[] rows = new int[9], columns = new int[9], boxes = new int[9];
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (puzzle[cell] == 0)
+                continue;
+            final int bit = Cells.bit(puzzle[cell]);
+            if (((rows[Cells.ROW[cell]] | columns[Cells.COLUMN[cell]] | boxes[Cells.BOX[cell]]) & bit) != 0)
+                return false;
+            rows[Cells.ROW[cell]] |= bit;
+            columns[Cells.COLUMN[cell]] |= bit;
+            boxes[Cells.BOX[cell]] |= bit;
+        }
+        return true;
+    }
+
+    /**
+     * A transformation whose first rows have been chosen
+     */
+    private static final class Candidate {
+        final boolean transposed;
+        final byte[] rows = new byte[9];
+        final byte[] columns;
+        final byte[] label;
+        int nextLabel;
+        int usedBands;
+
+        Candidate(boolean transposed, byte[] columns) {
+            this.transposed = transposed;
+            this.columns = columns;
+            this.label = new byte[10];
+        }
+
+        Candidate(Candidate parent, int depth, int row, byte[] label, int nextLabel) {
+            this.transposed = parent.transposed;
+            System.arraycopy(parent.rows, 0, rows, 0, depth);
+            rows[depth] = (byte) row;
+            this.columns = parent.columns;
+            this.label = label;
+            this.nextLabel = nextLabel;
+            this.usedBands = parent.usedBands | 1 << row / 3;
+        }
+    }
+
+    /**
+     * Returns the canonical form of a valid puzzle, or {@code null} if too many transformations tie
+     */
+    private static CanonicalForm reduce(byte[] puzzle) {
+        List<Candidate> candidates = firstRow(puzzle);
+        if (candidates == null)
+            return null;
+
+        final byte[] best = new byte[9], row = new byte[9], label = new byte[10];
+        for (int depth = 1; depth < 9; depth++) {
+            final List<Candidate> next = new ArrayList<>();
+            Arrays.fill(best, (byte) (EMPTY + 1));
+            for (Candidate candidate : candidates) {
+                final int band = candidate.rows[depth - 1] / 3;
+                for (int r = 0; r < 9; r++) {
+                    // the rows of a band stay together, and a new band may be any one that has not been used
+                    if (depth % 3 != 0 ? r / 3 != band || isUsed(candidate, depth, r)
+                            : (candidate.usedBands & 1 << r / 3) != 0)
+                        continue;
+                    System.arraycopy(candidate.label, 0, label, 0, 10);
+                    int nextLabel = candidate.nextLabel;
+                    // the row is dropped as soon as it exceeds the smallest one
+                    int comparison = 0;
+                    for (int c = 0; c < 9 && comparison <= 0; c++) {
+                        final int d = entry(puzzle, candidate.transposed, r, candidate.columns[c]);
+                        if (d != 0 && label[d] == 0)
+                            label[d] = (byte) ++nextLabel;
+                        row[c] = d == 0 ? EMPTY : label[d];
+                        if (comparison == 0)
+                            comparison = Integer.compare(row[c], best[c]);
+                    }
+                    if (comparison > 0)
+                        continue;
+                    if (comparison < 0) {
+                        System.arraycopy(row, 0, best, 0, 9);
+                        next.clear();
+                    }
+                    if (next.size() == LIMIT)
+                        return null;
+                    next.add(new Candidate(candidate, depth, r, label.clone(), nextLabel));
+                }
+            }
+            candidates = next;
+        }
+
+        final Candidate found = candidates.get(0);
+        // the digits that are not given get the remaining labels in ascending order
+        int nextLabel = found.nextLabel;
+        for (int d = 1; d <= 9; d++) {
+            if (found.label[d] == 0)
+                found.label[d] = (byte) ++nextLabel;
+        }
+        final byte[] cells = new byte[Cells.COUNT];
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++)
+                cells[9 * r + c] = found.label[entry(puzzle, found.transposed, found.rows[r], found.columns[c])];
+        }
+        return new CanonicalForm(cells, true, found.transposed, found.rows, found.columns, found.label);
+    }
+
+    private static boolean isUsed(Candidate candidate, int depth, int row) {
+        for (int k = 0; k < depth; k++) {
+            if (candidate.rows[k] == row)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the transformations making the first row as small as possible. Since the givens of a row are distinct, they
+     * are labelled 1, 2, 3, ... in whichever order they appear, so the first row only depends on how many givens every
+     * stack holds: the smallest row puts the stack with the most givens first and the givens first within every stack.
+     * Every order of the stacks with as many givens, of the givens within a stack and of the empty cells within a
+     * stack leads to the same row, so all of them are candidates.
+     */
+    private static List<Candidate> firstRow(byte[] puzzle) {
+        // the more givens the first stacks hold, the smaller the row
+        final int[][] counts = new int[18][3];
+        final int[] keys = new int[18];
+        int best = -1;
+        for (int k = 0; k < 18; k++) {
+            for (int c = 0; c < 9; c++) {
+                if (entry(puzzle, k >= 9, k % 9, c) != 0)
+                    counts[k][c / 3]++;
+            }
+            final int[] n = counts[k];
+            final int high = Math.max(n[0], Math.max(n[1], n[2])), low = Math.min(n[0], Math.min(n[1], n[2]));
+            keys[k] = 16 * high + 4 * (n[0] + n[1] + n[2] - high - low) + low;
+            best = Math.max(best, keys[k]);
+        }
+
+        // the candidates are counted first, so that puzzles with too many are given up on before creating them
+        final byte[][][][] orders = new byte[18][3][][];
+        int total = 0;
+        for (int k = 0; k < 18; k++) {
+            if (keys[k] != best)
+                continue;
+            int product = 0;
+            for (int s = 0; s < 3; s++)
+                orders[k][s] = givensFirst(puzzle, k >= 9, k % 9, s);
+            for (int[] stacks : STACK_ORDERS) {
+                if (isDescending(counts[k], stacks))
+                    product += orders[k][0].length * orders[k][1].length * orders[k][2].length;
+            }
+            total += product;
+        }
+        if (total > LIMIT)
+            return null;
+
+        final List<Candidate> candidates = new ArrayList<>(total);
+        for (int k = 0; k < 18; k++) {
+            if (keys[k] != best)
+                continue;
+            final boolean transposed = k >= 9;
+            final int r = k % 9;
+            for (int[] stacks : STACK_ORDERS) {
+                if (!isDescending(counts[k], stacks))
+                    continue;
+                for (byte[] first : orders[k][stacks[0]]) {
+                    for (byte[] second : orders[k][stacks[1]]) {
+                        for (byte[] third : orders[k][stacks[2]]) {
+                            final byte[] columns = new byte[9];
+                            System.arraycopy(first, 0, columns, 0, 3);
+                            System.arraycopy(second, 0, columns, 3, 3);
+                            System.arraycopy(third, 0, columns, 6, 3);
+                            final Candidate candidate = new Candidate(transposed, columns);
+                            for (int c = 0; c < 9; c++) {
+                                final int d = entry(puzzle, transposed, r, columns[c]);
+                                if (d != 0)
+                                    candidate.label[d] = (byte) ++candidate.nextLabel;
+                            }
+                            candidate.rows[0] = (byte) r;
+                            candidate.usedBands = 1 << r / 3;
+                            candidates.add(candidate);
+                        }
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns whether the stacks are in the order of descending numbers of givens, i.e. the most givens come first
+     */
+    private static boolean isDescending(int[] counts, int[] stacks) {
+        return counts[stacks[0]] >= counts[stacks[1]] && counts[stacks[1]] >= counts[stacks[2]];
+    }
+
+    /**
+     * Returns the orders of the columns of a stack that list the ones holding givens in the specified row first
+     */
+    private static byte[][] givensFirst(byte[] puzzle, boolean transposed, int r, int stack) {
+        final List<byte[]> orders = new ArrayList<>(6);
+        for (int[] order : COLUMN_ORDERS) {
+            boolean emptySeen = false, givensFirst = true;
+            for (int k = 0; k < 3; k++) {
+                final boolean empty = entry(puzzle, transposed, r, 3 * stack + order[k]) == 0;
+                if (!empty && emptySeen)
+                    givensFirst = false;
+                emptySeen |= empty;
+            }
+            if (givensFirst)
+                orders.add(new byte[]{(byte) (3 * stack + order[0]), (byte) (3 * stack + order[1]),
+                        (byte) (3 * stack + order[2])});
+        }
+        return orders.toArray(new byte[0][]);
+    }
+
+    private static final int[][] STACK_ORDERS = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+    private static final int[][] COLUMN_ORDERS = STACK_ORDERS;
+
+    private static int entry(byte[] puzzle, boolean transposed, int row, int column) {
+        return transposed ? puzzle[9 * column + row] : puzzle[9 * row + column];
+    }
+
+    /**
+     * Returns whether the puzzle has been reduced to its canonical form. If not, the form is the puzzle itself, and the
+     * transformations are the identity.
+     *
+     * @return whether the entries are the canonical form
+     */
+    public boolean isReduced() {
+        return reduced;
+    }
+
+    /**
+     * Returns a copy of the entries of the canonical form
+     *
+     * @return the 81 entries, row by row
+     */
+    public byte[] getCells() {
+        return cells.clone();
+    }
+
+    byte[] cells() {
+        return cells;
+    }
+
+    /**
+     * Maps a grid, e.g. a solution of the puzzle, by the transformation that maps the puzzle to its canonical form
+     *
+     * @param grid the 81 entries of the grid, row by row
+     * @return the transformed grid
+     */
+    public byte[] toCanonical(byte[] grid) {
+        final byte[] result = new byte[Cells.COUNT];
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++)
+                result[9 * r + c] = label[entry(grid, transposed, rows[r], columns[c])];
+        }
+        return result;
+    }
+
+    /**
+     * Maps a grid, e.g. a solution of the canonical form, back by the inverse transformation, so that a solution of
+     * the canonical form becomes one of the puzzle
+     *
+     * @param grid the 81 entries of the grid, row by row
+     * @return the grid transformed back
+     */
+    public byte[] fromCanonical(byte[] grid) {
+        final byte[] result = new byte[Cells.COUNT];
+        for (int r = 0; r < 9; r++) {
+            for (int c = 0; c < 9; c++) {
+                final int cell = transposed ? 9 * columns[c] + rows[r] : 9 * rows[r] + columns[c];
+                result[cell] = digit[grid[9 * r + c]];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the other object is the canonical form of an equivalent puzzle, i.e. whether the forms have the
+     * same entries and both are reduced
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof CanonicalForm))
+            return false;
+        final CanonicalForm form = (CanonicalForm) o;
+        return reduced == form.reduced && Arrays.equals(cells, form.cells);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(cells) + (reduced ? 1 : 0);
+    }
+}
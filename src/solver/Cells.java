@@ -0,0 +1,92 @@
+package solver;
+
+/**
+ * Precomputed lookup tables for the 81 cells of a 9x9 Sudoku. Cells are numbered row by row, i.e. cell {@code 9 * row
+ * + column}.
+ */
+public final class Cells {
+
+    /**
+     * The number of cells in a Sudoku
+     */
+    public static final int COUNT = 81;
+
+    /**
+     * A bitmask with one bit set for every digit, digit {@code d} being represented by bit {@code d - 1}
+     */
+    public static final int ALL_DIGITS = 0x1FF;
+
+    /**
+     * The row of every cell
+     */
+    public static final byte[] ROW = new byte[COUNT];
+
+    /**
+     * The column of every cell
+     */
+    public static final byte[] COLUMN = new byte[COUNT];
+
+    /**
+     * The 3x3 box of every cell, numbered row by row
+     */
+    public static final byte[] BOX = new byte[COUNT];
+
+    /**
+     * The 20 peers of every cell, i.e. the cells sharing a row, a column or a box with it
+     */
+    public static final byte[][] PEERS = new byte[COUNT][20];
+
+    /**
+     * The number of units, i.e. rows, columns and boxes
+     */
+    public static final int UNIT_COUNT = 27;
+
+    /**
+     * The 9 cells of every unit: the rows are units 0 to 8, the columns 9 to 17 and the boxes 18 to 26, each listing
+     * its cells row by row
+     */
+    public static final byte[][] UNITS = new byte[UNIT_COUNT][9];
+
+    static {
+        for (int cell = 0; cell < COUNT; cell++) {
+            ROW[cell] = (byte) (cell / 9);
+            COLUMN[cell] = (byte) (cell % 9);
+            BOX[cell] = (byte) (ROW[cell] / 3 * 3 + COLUMN[cell] / 3);
+        }
+        for (int cell = 0; cell < COUNT; cell++) {
+            int n = 0;
+            for (int other = 0; other < COUNT; other++) {
+                if (other != cell && (ROW[other] == ROW[cell] || COLUMN[other] == COLUMN[cell] || BOX[other] == BOX[cell]))
+                    PEERS[cell][n++] = (byte) other;
+            }
+        }
+        final int[] filled = new int[UNIT_COUNT];
+        for (int cell = 0; cell < COUNT; cell++) {
+            UNITS[ROW[cell]][filled[ROW[cell]]++] = (byte) cell;
+            UNITS[9 + COLUMN[cell]][filled[9 + COLUMN[cell]]++] = (byte) cell;
+            UNITS[18 + BOX[cell]][filled[18 + BOX[cell]]++] = (byte) cell;
+        }
+    }
+
+    private Cells() { }
+
+    /**
+     * Returns the bitmask representing a single digit
+     *
+     * @param digit the digit, between 1 and 9 (inclusive)
+     * @return the digit's bit
+     */
+    public static int bit(int digit) {
+        return 1 << (digit - 1);
+    }
+
+    /**
+     * Returns the bitmask of all digits that are greater than or equal to the specified one
+     *
+     * @param digit the smallest digit, between 1 and 9 (inclusive)
+     * @return a mask of the digits {@code digit} to 9
+     */
+    public static int atLeast(int digit) {
+        return ALL_DIGITS & -(1 << (digit - 1));
+    }
+}
@@ -0,0 +1,49 @@
+package solver;
+
+import java.util.List;
+
+/**
+ * A rule of a Sudoku variant on top of the classic rules, e.g. the {@link Diagonals} of an X-Sudoku, the irregular
+ * regions of a {@link Jigsaw} Sudoku or the {@link Cage cages} of a Killer Sudoku.
+ * <p></p>
+ * A constraint does not check placements itself. Instead, it describes itself in terms the {@link GeneralEngine}
+ * propagates anyway: units that contain every digit exactly once, and cages whose digits are distinct and add up to a
+ * sum. {@link Rules} compiles the constraints of a puzzle into the peers, units and sum combinations the engine works
+ * on, so a variant is solved by the same candidate propagation as a classic Sudoku.
+ */
+public interface Constraint {
+
+    /**
+     * Returns the additional units of this constraint, each holding {@link Geometry#getSide() side} distinct cells
+     * that must contain every digit exactly once
+     *
+     * @param geometry the geometry of the Sudoku
+     * @return the cells of the additional units, which are not modified
+     * @throws IllegalArgumentException if the constraint does not fit the geometry
+     */
+    default List<short[]> units(Geometry geometry) {
+        return List.of();
+    }
+
+    /**
+     * Returns the regions that replace the boxes of the geometry, or {@code null} if the boxes are kept
+     *
+     * @param geometry the geometry of the Sudoku
+     * @return the cells of the {@link Geometry#getSide() side} regions, which are not modified, or {@code null}
+     * @throws IllegalArgumentException if the constraint does not fit the geometry
+     */
+    default short[][] regions(Geometry geometry) {
+        return null;
+    }
+
+    /**
+     * Returns the cages of this constraint
+     *
+     * @param geometry the geometry of the Sudoku
+     * @return the cages
+     * @throws IllegalArgumentException if the constraint does not fit the geometry
+     */
+    default List<Cage> cages(Geometry geometry) {
+        return List.of();
+    }
+}
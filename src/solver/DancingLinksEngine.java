@@ -0,0 +1,350 @@
+package solver;
+
+/**
+ * An implementation of Knuth's Algorithm X using dancing links. A Sudoku is an exact cover problem with 324 columns
+ * (every cell holds a digit, every row, column and box holds every digit once) and 729 rows (one per cell and digit).
+ * The search always branches on the column with the fewest remaining rows, which keeps it predictable even on hard or
+ * nearly empty grids.
+ * <p></p>
+ * The whole matrix is built once into preallocated link arrays. Solving a grid covers and uncovers the links in place,
+ * leaving the matrix in its initial state afterwards, so an engine does not allocate anything per puzzle.
+ */
+public final class DancingLinksEngine implements SolverEngine {
+
+    private static final int COLUMNS = 4 * Cells.COUNT;
+    private static final int ROWS = 9 * Cells.COUNT;
+    private static final int ROOT = 0;
+    private static final int FIRST_NODE = COLUMNS + 1;
+    private static final int NODES = FIRST_NODE + 4 * ROWS;
+
+    private final int[] left = new int[NODES];
+    private final int[] right = new int[NODES];
+    private final int[] up = new int[NODES];
+    private final int[] down = new int[NODES];
+    private final int[] column = new int[NODES];
+    private final int[] size = new int[COLUMNS + 1];
+
+    /**
+     * The matrix row of every node, i.e. {@code 9 * cell + digit - 1}
+     */
+    private final short[] row = new short[NODES];
+
+    /**
+     * The node of the row chosen at every level of the search
+     */
+    private final int[] chosen = new int[Cells.COUNT];
+
+    /**
+     * The nodes of the rows selected for the given entries
+     */
+    private final int[] givens = new int[Cells.COUNT];
+
+    /**
+     * The entries of the solution that is visible through {@link #view}
+     */
+    private final byte[] grid = new byte[Cells.COUNT];
+    private final Solution view = cell -> grid[cell];
+
+    /**
+     * The control of the running search, or {@code null} if it is not limited
+     */
+    private SearchControl control;
+
+    /**
+     * The number of nodes the running search has visited, for consulting the control
+     */
+    private long nodes;
+
+    public DancingLinksEngine() {
+        for (int c = 0; c <= COLUMNS; c++) {
+            left[c] = c == ROOT ? COLUMNS : c - 1;
+            right[c] = c == COLUMNS ? ROOT : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+
+        int node = FIRST_NODE;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            for (int digit = 0; digit < 9; digit++) {
+                final int first = node;
+                final int[] columns = {
+                        1 + cell,
+                        1 + Cells.COUNT + 9 * Cells.ROW[cell] + digit,
+                        1 + 2 * Cells.COUNT + 9 * Cells.COLUMN[cell] + digit,
+                        1 + 3 * Cells.COUNT + 9 * Cells.BOX[cell] + digit
+                };
+                for (int c : columns) {
+                    column[node] = c;
+                    row[node] = (short) (9 * cell + digit);
+                    up[node] = up[c];
+                    down[node] = c;
+                    down[up[c]] = node;
+                    up[c] = node;
+                    size[c]++;
+                    left[node] = node == first ? first + 3 : node - 1;
+                    right[node] = node == first + 3 ? first : node + 1;
+                    node++;
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * The order of the solutions is determined by always branching on the first of the constraints with the fewest
+     * candidates. To continue after a solution, the path leading to it is replayed, which only takes linear time.
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given) {
+        boolean resume = false;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (!given[cell] && cells[cell] != 0)
+                resume = true;
+        }
+
+        final int fixed = selectGivens(cells, given);
+        if (fixed < 0)
+            return false;
+        final boolean found = search(cells, given, resume, 1, null) == 1;
+        deselectGivens(fixed);
+        return found;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given, SearchControl control) {
+        if (!control.checkpoint(0))
+            return false;
+        this.control = control;
+        try {
+            return solve(cells, given);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit) {
+        if (limit <= 0)
+            return 0;
+        final int fixed = selectGivens(cells, given);
+        if (fixed < 0)
+            return 0;
+        final long count = search(null, given, false, limit, null);
+        deselectGivens(fixed);
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit, SearchControl control) {
+        if (!control.checkpoint(0))
+            return 0;
+        this.control = control;
+        try {
+            return count(cells, given, limit);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    @Override
+    public long enumerate(byte[] cells, boolean[] given, SolutionVisitor visitor) {
+        final int fixed = selectGivens(cells, given);
+        if (fixed < 0)
+            return 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            grid[cell] = given[cell] ? cells[cell] : 0;
+        final long count = search(null, given, false, Long.MAX_VALUE, visitor);
+        deselectGivens(fixed);
+        return count;
+    }
+
+    /**
+     * Selects the rows of the given entries
+     *
+     * @return the number of rows selected, or -1 if the given entries break the rules, in which case no row remains
+     * selected
+     */
+    private int selectGivens(byte[] cells, boolean[] given) {
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (cells[cell] < 0 || cells[cell] > 9)
+                return -1;
+        }
+
+        int fixed = 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (given[cell] && cells[cell] != 0) {
+                final int node = FIRST_NODE + 4 * (9 * cell + cells[cell] - 1);
+                for (int j = 0; j < 4; j++) {
+                    if (isCovered(column[node + j])) {
+                        deselectGivens(fixed);
+                        return -1;
+                    }
+                }
+                select(node);
+                givens[fixed++] = node;
+            }
+        }
+        return fixed;
+    }
+
+    private void deselectGivens(int fixed) {
+        while (fixed > 0)
+            deselect(givens[--fixed]);
+    }
+
+    /**
+     * Searches the solutions of the remaining matrix until the limit is reached or the visitor, if any, returns {@code
+     * false}, or the control, if any, asks to stop. The last solution found is written to the cells, unless they are
+     * {@code null}.
+     *
+     * @param resume whether to skip all solutions up to and including the one in the cells
+     * @return the number of solutions found
+     */
+    private long search(byte[] cells, boolean[] given, boolean resume, long limit, SolutionVisitor visitor) {
+        int level = 0;
+        long count = 0;
+        nodes = 0;
+
+        search:
+        while (true) {
+            if ((++nodes & SearchControl.CHECK_INTERVAL - 1) == 0 && control != null && !control.checkpoint(nodes))
+                break;
+            if (right[ROOT] == ROOT) {
+                if (resume) {
+                    // this is the solution we started from, so continue with the next one
+                    resume = false;
+                } else {
+                    count++;
+                    if (visitor != null) {
+                        for (int l = 0; l < level; l++)
+                            grid[row[chosen[l]] / 9] = (byte) (row[chosen[l]] % 9 + 1);
+                        if (!visitor.visit(view))
+                            break;
+                    }
+                    if (count >= limit) {
+                        if (cells != null) {
+                            for (int l = 0; l < level; l++)
+                                cells[row[chosen[l]] / 9] = (byte) (row[chosen[l]] % 9 + 1);
+                        }
+                        break;
+                    }
+                }
+            } else {
+                final int c = choose();
+                cover(c);
+                int r = down[c];
+                if (resume) {
+                    final int match = find(c, cells, given);
+                    if (match < 0)
+                        resume = false;
+                    else
+                        r = match;
+                }
+                if (r != c) {
+                    chosen[level++] = r;
+                    for (int j = right[r]; j != r; j = right[j])
+                        cover(column[j]);
+                    continue;
+                }
+                uncover(c);
+            }
+
+            // backtrack until some level has another row left
+            while (level > 0) {
+                int r = chosen[--level];
+                for (int j = left[r]; j != r; j = left[j])
+                    uncover(column[j]);
+                final int c = column[r];
+                r = down[r];
+                if (r != c) {
+                    chosen[level++] = r;
+                    for (int j = right[r]; j != r; j = right[j])
+                        cover(column[j]);
+                    continue search;
+                }
+                uncover(c);
+            }
+            break;
+        }
+
+        while (level > 0)
+            deselect(chosen[--level]);
+        return count;
+    }
+
+    /**
+     * Returns the first column with the fewest remaining rows
+     */
+    private int choose() {
+        int best = right[ROOT];
+        for (int c = right[best]; c != ROOT && size[best] > 1; c = right[c]) {
+            if (size[c] < size[best])
+                best = c;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the node of column {@code c} whose row matches the current entries, or -1 if there is none
+     */
+    private int find(int c, byte[] cells, boolean[] given) {
+        for (int i = down[c]; i != c; i = down[i]) {
+            final int cell = row[i] / 9;
+            if (!given[cell] && cells[cell] == row[i] % 9 + 1)
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean isCovered(int c) {
+        return right[left[c]] != c;
+    }
+
+    private void select(int node) {
+        cover(column[node]);
+        for (int j = right[node]; j != node; j = right[j])
+            cover(column[j]);
+    }
+
+    private void deselect(int node) {
+        for (int j = left[node]; j != node; j = left[j])
+            uncover(column[j]);
+        uncover(column[node]);
+    }
+
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
@@ -0,0 +1,25 @@
+package solver;
+
+import java.util.List;
+
+/**
+ * The rule of an X-Sudoku: both main diagonals must contain every digit exactly once, like rows, columns and boxes
+ */
+public final class Diagonals implements Constraint {
+
+    @Override
+    public List<short[]> units(Geometry geometry) {
+        final int side = geometry.getSide();
+        final short[] main = new short[side], anti = new short[side];
+        for (int k = 0; k < side; k++) {
+            main[k] = (short) (side * k + k);
+            anti[k] = (short) (side * k + side - 1 - k);
+        }
+        return List.of(main, anti);
+    }
+
+    @Override
+    public String toString() {
+        return "Diagonals";
+    }
+}
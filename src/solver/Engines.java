@@ -0,0 +1,79 @@
+package solver;
+
+/**
+ * Provides thread-confined instances of the built-in solver engines, so that callers do not need to worry about the
+ * engines' internal state. The instances must not be handed to other threads.
+ */
+public final class Engines {
+
+    private static final ThreadLocal<BitmaskEngine> BITMASK = ThreadLocal.withInitial(BitmaskEngine::new);
+    private static final ThreadLocal<DancingLinksEngine> DANCING_LINKS = ThreadLocal.withInitial(DancingLinksEngine::new);
+    private static final ThreadLocal<PropagatingEngine> PROPAGATING = ThreadLocal.withInitial(PropagatingEngine::new);
+    private static final ThreadLocal<PropagatingEngine> FEWEST_CANDIDATES =
+            ThreadLocal.withInitial(() -> new PropagatingEngine(Propagation.SINGLES, Branching.FEWEST_CANDIDATES));
+
+    private Engines() { }
+
+    /**
+     * Returns the current thread's {@link BitmaskEngine}, which finds the solutions in lexicographic order
+     *
+     * @return the current thread's backtracking engine
+     */
+    public static SolverEngine bitmask() {
+        return BITMASK.get();
+    }
+
+    /**
+     * Returns the current thread's {@link DancingLinksEngine}
+     *
+     * @return the current thread's exact cover engine
+     */
+    public static SolverEngine dancingLinks() {
+        return DANCING_LINKS.get();
+    }
+
+    /**
+     * Returns the current thread's {@link PropagatingEngine}, which finds the solutions in lexicographic order like
+     * {@link #bitmask()}, but applies {@link Propagation#SINGLES} before and during the search
+     *
+     * @return the current thread's propagating engine
+     */
+    public static PropagatingEngine propagating() {
+        return PROPAGATING.get();
+    }
+
+    /**
+     * Returns the current thread's {@link PropagatingEngine} that branches on the cell with the fewest candidates, see
+     * {@link Branching#FEWEST_CANDIDATES}. Its solutions are not found in lexicographic order, but its running time
+     * depends much less on where the givens are.
+     *
+     * @return the current thread's propagating engine with the most-constrained-cell order
+     */
+    public static PropagatingEngine fewestCandidates() {
+        return FEWEST_CANDIDATES.get();
+    }
+
+    /**
+     * Returns the current thread's {@link GeneralEngine} for the specified geometry, which is created the first time it
+     * is needed. It applies {@link Propagation#SINGLES} to Sudokus up to 9x9 and {@link Propagation#FULL} to larger
+     * ones, whichever is faster for the size.
+     *
+     * @param geometry the geometry of the Sudokus to solve
+     * @return the current thread's engine for the geometry
+     */
+    public static GeneralEngine general(Geometry geometry) {
+        return Rules.classic(geometry).engine();
+    }
+
+    /**
+     * Returns the current thread's {@link GeneralEngine} for the specified rules, which is created the first time it is
+     * needed. It applies the same deductions as {@link #general(Geometry)}. The engines are kept by the rules, so
+     * Sudokus sharing the same rules object share the engines as well.
+     *
+     * @param rules the rules of the Sudokus to solve
+     * @return the current thread's engine for the rules
+     */
+    public static GeneralEngine general(Rules rules) {
+        return rules.engine();
+    }
+}
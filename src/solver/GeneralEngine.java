@@ -0,0 +1,798 @@
+package solver;
+
+import java.util.Objects;
+
+/**
+ * A propagating solver for Sudokus of any supported {@link Geometry}, e.g. 16x16 and 25x25 ones. It works like {@link
+ * PropagatingEngine} with {@link Branching#FEWEST_CANDIDATES}: the candidates of every cell are kept as a bitmask in an
+ * {@code int}, the deductions of a {@link Propagation} are applied until none of them makes progress, and the search
+ * branches on the cell with the fewest candidates.
+ * <p></p>
+ * Unlike for 9x9 Sudokus, {@link Propagation#FULL} is the default: the search trees of the larger sizes are so much
+ * larger that pairs and intersections pay off many times over, so that 25x25 puzzles with half of their cells given
+ * are solved in milliseconds.
+ * <p></p>
+ * The arrays passed to the methods of {@link SolverEngine} hold the {@link Geometry#getCellCount() cells of the
+ * geometry} instead of 81, and the entries range up to {@link Geometry#getSide() the side}. The solutions are found in
+ * the order of the search; since the search cannot resume from a previous solution, {@link #solve(byte[], boolean[])}
+ * computes the next solution by enumerating the ones before it again, so it should only be used for the first few.
+ * For the classic size, {@link PropagatingEngine} is faster, since its tables are constants.
+ * <p></p>
+ * Variants are solved by engines created for their {@link Rules}: the peers and units of the rules take the place of
+ * the rows, columns and boxes in every deduction, the combinations of every {@link Cage cage} restrict the candidates
+ * of its cells, and {@link Propagation#FULL} looks at the intersections of all units sharing several cells.
+ * <p></p>
+ * The candidates of every level of the search are kept in one preallocated array, so solving does not allocate
+ * anything. An engine is therefore not thread-safe; every thread should use its own instance.
+ */
+public final class GeneralEngine implements SolverEngine, SearchCounters {
+
+    private final Rules rules;
+    private final Geometry geometry;
+    private final Propagation propagation;
+    private final int cellCount, side, allDigits;
+
+    /**
+     * The flag marking a cell whose digit has been placed, i.e. removed from the candidates of its peers
+     */
+    private final int placed;
+
+    /**
+     * The candidates of every cell at every level of the search, possibly together with {@link #placed}
+     */
+    private final int[] candidates;
+
+    /**
+     * The cell branched on at every level of the search
+     */
+    private final short[] branchCell;
+
+    /**
+     * The digits that remain to be tried at every level of the search
+     */
+    private final int[] remaining;
+
+    /**
+     * The cells whose digit is known but still has to be placed
+     */
+    private final short[] queue;
+
+    /**
+     * The contents of the grid when solving started
+     */
+    private final byte[] previous;
+
+    /**
+     * The cells of a unit that every digit fits into, as a mask of their indices within the unit
+     */
+    private final int[] positions;
+
+    /**
+     * The free candidates of every intersection of a box with a row or a column
+     */
+    private final int[] segments;
+
+    /**
+     * The cages whose cells have changed since their combinations were last checked, with a flag per cage telling
+     * whether it is among them
+     */
+    private final boolean hasCages;
+    private final int[] dirtyCages;
+    private final boolean[] dirty;
+    private int dirtyCount;
+
+    /**
+     * The offset of the candidates of the solution that is visible through {@link #view}
+     */
+    private int leaf;
+    private final Solution view = new Solution() {
+        @Override
+        public byte get(int cell) {
+            return (byte) digit(candidates[leaf + cell]);
+        }
+
+        @Override
+        public byte get(int row, int column) {
+            return get(side * row + column);
+        }
+
+        @Override
+        public byte[] toArray() {
+            final byte[] cells = new byte[cellCount];
+            for (int cell = 0; cell < cellCount; cell++)
+                cells[cell] = get(cell);
+            return cells;
+        }
+    };
+
+    private SearchControl control;
+    private int base;
+    private int head, tail;
+    private boolean changed;
+    private long nodes, backtracks, propagations;
+    private int maxDepth;
+
+    /**
+     * Creates a new engine that applies {@link Propagation#FULL}
+     *
+     * @param geometry the geometry of the Sudokus to solve
+     */
+    public GeneralEngine(Geometry geometry) {
+        this(Rules.classic(geometry), Propagation.FULL);
+    }
+
+    /**
+     * Creates a new engine
+     *
+     * @param geometry    the geometry of the Sudokus to solve
+     * @param propagation the deductions to apply before and during the search
+     */
+    public GeneralEngine(Geometry geometry, Propagation propagation) {
+        this(Rules.classic(geometry), propagation);
+    }
+
+    /**
+     * Creates a new engine for a variant that applies {@link Propagation#FULL}
+     *
+     * @param rules the rules of the Sudokus to solve
+     */
+    public GeneralEngine(Rules rules) {
+        this(rules, Propagation.FULL);
+    }
+
+    /**
+     * Creates a new engine for a variant
+     *
+     * @param rules       the rules of the Sudokus to solve
+     * @param propagation the deductions to apply before and during the search
+     */
+    public GeneralEngine(Rules rules, Propagation propagation) {
+        this.rules = Objects.requireNonNull(rules);
+        this.geometry = rules.getGeometry();
+        this.propagation = Objects.requireNonNull(propagation);
+        this.cellCount = geometry.getCellCount();
+        this.side = geometry.getSide();
+        this.allDigits = geometry.getAllDigits();
+        this.placed = 1 << side;
+
+        // every branch places at least one digit, so the search is at most this deep
+        final int levels = cellCount + 1;
+        candidates = new int[levels * cellCount];
+        branchCell = new short[levels];
+        remaining = new int[levels];
+        queue = new short[cellCount];
+        previous = new byte[cellCount];
+        positions = new int[side];
+        segments = new int[2 * side * geometry.getBoxSize()];
+        hasCages = rules.getCageCount() > 0;
+        dirtyCages = new int[rules.getCageCount()];
+        dirty = new boolean[rules.getCageCount()];
+    }
+
+    /**
+     * Returns the geometry of the Sudokus this engine solves
+     *
+     * @return the geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the rules of the Sudokus this engine solves
+     *
+     * @return the rules
+     */
+    public Rules getRules() {
+        return rules;
+    }
+
+    /**
+     * Returns the deductions this engine applies
+     *
+     * @return the propagation of this engine
+     */
+    public Propagation getPropagation() {
+        return propagation;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * If the cells contain a solution, this engine searches again from the beginning and skips all solutions up to
+     * and including it.
+     *
+     * @throws IllegalArgumentException if the arrays do not have as many entries as the geometry has cells
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given) {
+        checkLength(cells, given);
+        boolean resume = false;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (!given[cell] && cells[cell] != 0)
+                resume = true;
+        }
+        if (!load(cells, given))
+            return false;
+        if (resume) {
+            final long found = search(cells, true, 1, null);
+            if (found >= 0)
+                return found == 1;
+            // the previous contents are not a solution, so there is nothing to skip
+            if (!load(cells, given))
+                return false;
+        }
+        return search(cells, false, 1, null) == 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     *
+     * @throws IllegalArgumentException if the arrays do not have as many entries as the geometry has cells
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given, SearchControl control) {
+        if (!control.checkpoint(0))
+            return false;
+        this.control = control;
+        try {
+            return solve(cells, given);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the arrays do not have as many entries as the geometry has cells
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit) {
+        checkLength(cells, given);
+        if (limit <= 0 || !load(cells, given))
+            return 0;
+        return search(null, false, limit, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     *
+     * @throws IllegalArgumentException if the arrays do not have as many entries as the geometry has cells
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit, SearchControl control) {
+        if (!control.checkpoint(0))
+            return 0;
+        this.control = control;
+        try {
+            return count(cells, given, limit);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * The view passed to the visitor has as many cells as the geometry, and so do the arrays returned by its {@link
+     * Solution#toArray()}.
+     *
+     * @throws IllegalArgumentException if the arrays do not have as many entries as the geometry has cells
+     */
+    @Override
+    public long enumerate(byte[] cells, boolean[] given, SolutionVisitor visitor) {
+        checkLength(cells, given);
+        if (!load(cells, given))
+            return 0;
+        return search(null, false, Long.MAX_VALUE, visitor);
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public long getPropagations() {
+        return propagations;
+    }
+
+    private void checkLength(byte[] cells, boolean[] given) {
+        if (cells.length != cellCount || given.length != cellCount)
+            throw new IllegalArgumentException("Expected " + cellCount + " cells for a " + geometry + " Sudoku, got "
+                    + cells.length);
+    }
+
+    /**
+     * Initializes the candidates of the first level with the given entries and places all singles
+     *
+     * @return whether the given entries may be part of a solution
+     */
+    private boolean load(byte[] cells, boolean[] given) {
+        nodes = 1;
+        backtracks = propagations = 0;
+        maxDepth = 0;
+        base = 0;
+        head = tail = 0;
+        clearCages();
+        for (int k = 0; k < rules.getCageCount(); k++)
+            touch(k);
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (cells[cell] < 0 || cells[cell] > side)
+                return false;
+            candidates[cell] = allDigits;
+            previous[cell] = cells[cell];
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (given[cell] && cells[cell] != 0 && !assign(cell, 1 << cells[cell] - 1))
+                return false;
+        }
+        return propagate();
+    }
+
+    /**
+     * Searches the solutions until the limit is reached or the visitor, if any, returns {@code false}. The last
+     * solution found is written to the cells, unless they are {@code null}.
+     *
+     * @param skip whether to skip all solutions up to and including the previous contents of the grid
+     * @return the number of solutions found, or -1 if the previous contents were to be skipped but never found
+     */
+    private long search(byte[] cells, boolean skip, long limit, SolutionVisitor visitor) {
+        long count = 0;
+        int level = 0;
+        boolean entering = true;
+        while (level >= 0) {
+            if (entering) {
+                entering = false;
+                final int first = level * cellCount;
+                final int cell = fewestCandidates(first);
+                if (cell == cellCount) {
+                    if (skip) {
+                        skip = !isPrevious(first);
+                    } else {
+                        count++;
+                        leaf = first;
+                        if (visitor != null && !visitor.visit(view) || count >= limit) {
+                            if (cells != null) {
+                                for (int k = 0; k < cellCount; k++)
+                                    cells[k] = (byte) digit(candidates[first + k]);
+                            }
+                            return count;
+                        }
+                    }
+                    level--;
+                } else {
+                    branchCell[level] = (short) cell;
+                    remaining[level] = candidates[first + cell];
+                }
+                continue;
+            }
+
+            // try the next digit of the cell branched on at this level
+            final int digits = remaining[level];
+            if (digits == 0) {
+                level--;
+                continue;
+            }
+            final int bit = digits & -digits;
+            remaining[level] = digits ^ bit;
+
+            base = (level + 1) * cellCount;
+            System.arraycopy(candidates, level * cellCount, candidates, base, cellCount);
+            head = tail = 0;
+            // the candidates of the level are consistent with all cages, but a failed branch may have left some marked
+            clearCages();
+            if ((++nodes & SearchControl.CHECK_INTERVAL - 1) == 0 && control != null && !control.checkpoint(nodes))
+                return count;
+            if (assign(branchCell[level], bit) && propagate()) {
+                level++;
+                if (level > maxDepth)
+                    maxDepth = level;
+                entering = true;
+            } else {
+                backtracks++;
+            }
+        }
+        return skip ? -1 : count;
+    }
+
+    /**
+     * Returns the first cell with the fewest candidates among the ones that have not been placed yet, or the number of
+     * cells if all of them have been placed
+     */
+    private int fewestCandidates(int first) {
+        // with propagation, every cell that is left has at least two candidates
+        final int minimum = propagation == Propagation.NONE ? 1 : 2;
+        int best = cellCount, fewest = side + 1;
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int c = candidates[first + cell];
+            if ((c & placed) != 0)
+                continue;
+            final int n = Integer.bitCount(c);
+            if (n < fewest) {
+                best = cell;
+                fewest = n;
+                if (n <= minimum)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns whether the solution at the specified offset equals the previous contents of the grid
+     */
+    private boolean isPrevious(int first) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (digit(candidates[first + cell]) != previous[cell])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the deductions to the candidates of the current level until none of them makes progress
+     *
+     * @return whether the candidates may still be part of a solution
+     */
+    private boolean propagate() {
+        while (true) {
+            while (head < tail) {
+                final int cell = queue[head++];
+                if ((candidates[base + cell] & placed) == 0 && !place(cell))
+                    return false;
+            }
+            if (dirtyCount > 0) {
+                if (!cages())
+                    return false;
+                if (head < tail)
+                    continue;
+            }
+            if (propagation == Propagation.NONE)
+                return true;
+
+            changed = false;
+            if (!hiddenSingles())
+                return false;
+            if (head < tail)
+                continue;
+            if (propagation == Propagation.FULL) {
+                if (!nakedPairs() || !hiddenPairs() || !intersections() || !overlaps())
+                    return false;
+                if (changed)
+                    continue;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Removes the only candidate of the cell from the candidates of its peers
+     */
+    private boolean place(int cell) {
+        final int bit = candidates[base + cell];
+        candidates[base + cell] = bit | placed;
+        propagations++;
+        if (hasCages)
+            touch(rules.cageOf(cell));
+        for (short peer : rules.peers(cell)) {
+            if (!eliminate(peer, bit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reduces the candidates of the cell to the specified digit, which is placed by {@link #propagate()}
+     */
+    private boolean assign(int cell, int bit) {
+        final int c = candidates[base + cell];
+        if ((c & bit) == 0)
+            return false;
+        if ((c & placed) != 0)
+            return true;
+        if (c != bit || propagation == Propagation.NONE)
+            queue[tail++] = (short) cell;
+        candidates[base + cell] = bit;
+        return true;
+    }
+
+    /**
+     * Removes the digits of the mask from the candidates of the cell, queueing it if only one of them is left
+     */
+    private boolean eliminate(int cell, int mask) {
+        final int c = candidates[base + cell];
+        if ((c & mask) == 0)
+            return true;
+        final int left = c & ~mask;
+        candidates[base + cell] = left;
+        final int digits = left & allDigits;
+        if (digits == 0)
+            return false;
+        changed = true;
+        if (hasCages)
+            touch(rules.cageOf(cell));
+        if ((digits & digits - 1) == 0 && propagation != Propagation.NONE)
+            queue[tail++] = (short) cell;
+        return true;
+    }
+
+    /**
+     * Assigns every digit that fits into only one cell of a unit to that cell
+     */
+    private boolean hiddenSingles() {
+        for (int u = 0; u < rules.getUnitCount(); u++) {
+            final short[] unit = rules.unit(u);
+            int once = 0, twice = 0, placedDigits = 0;
+            for (short cell : unit) {
+                final int c = candidates[base + cell];
+                if ((c & placed) != 0)
+                    placedDigits |= c;
+                twice |= once & c;
+                once |= c;
+            }
+            if ((once & allDigits) != allDigits)
+                return false;
+
+            int hidden = once & ~twice & ~placedDigits & allDigits;
+            while (hidden != 0) {
+                final int bit = hidden & -hidden;
+                hidden ^= bit;
+                int k = 0;
+                while (k < side && (candidates[base + unit[k]] & bit) == 0)
+                    k++;
+                // another hidden single may already have taken the cell
+                if (k == side || !assign(unit[k], bit))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the candidates of two cells of a unit that have the same two candidates from the unit's other cells
+     */
+    private boolean nakedPairs() {
+        for (int u = 0; u < rules.getUnitCount(); u++) {
+            final short[] unit = rules.unit(u);
+            for (int i = 0; i < side - 1; i++) {
+                final int pair = candidates[base + unit[i]];
+                if ((pair & placed) != 0 || Integer.bitCount(pair) != 2)
+                    continue;
+                for (int j = i + 1; j < side; j++) {
+                    if (candidates[base + unit[j]] != pair)
+                        continue;
+                    for (int k = 0; k < side; k++) {
+                        if (k != i && k != j && !eliminate(unit[k], pair))
+                            return false;
+                    }
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all other candidates from two cells of a unit that are the only ones two digits fit into. Only the
+     * digits fitting into exactly two cells are looked at, which are found with the same masks as hidden singles.
+     */
+    private boolean hiddenPairs() {
+        for (int u = 0; u < rules.getUnitCount(); u++) {
+            final short[] unit = rules.unit(u);
+            int once = 0, twice = 0, more = 0;
+            for (short cell : unit) {
+                final int c = free(cell);
+                more |= twice & c;
+                twice |= once & c;
+                once |= c;
+            }
+            final int pairs = twice & ~more;
+            if (Integer.bitCount(pairs) < 2)
+                continue;
+
+            for (int digits = pairs; digits != 0; digits &= digits - 1)
+                positions[Integer.numberOfTrailingZeros(digits)] = 0;
+            for (int k = 0; k < side; k++) {
+                for (int digits = free(unit[k]) & pairs; digits != 0; digits &= digits - 1)
+                    positions[Integer.numberOfTrailingZeros(digits)] |= 1 << k;
+            }
+            for (int digits = pairs; digits != 0; digits &= digits - 1) {
+                final int d = Integer.numberOfTrailingZeros(digits);
+                final int where = positions[d];
+                for (int others = digits & digits - 1; others != 0; others &= others - 1) {
+                    final int e = Integer.numberOfTrailingZeros(others);
+                    if (positions[e] != where)
+                        continue;
+                    final int rest = allDigits & ~(1 << d | 1 << e);
+                    if (!eliminate(unit[Integer.numberOfTrailingZeros(where)], rest)
+                            || !eliminate(unit[31 - Integer.numberOfLeadingZeros(where)], rest))
+                        return false;
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies pointing and claiming to the intersections of every box with its rows and columns, like {@link
+     * PropagatingEngine} does. Since the boxes are large, the free candidates of every intersection are collected in
+     * one pass over the grid first. Eliminations only make these masks too large, which can only hide deductions, not
+     * make wrong ones; the next round catches up on them.
+     */
+    private boolean intersections() {
+        if (!rules.hasBoxes())
+            return true;
+        final int n = geometry.getBoxSize();
+        for (int k = 0; k < segments.length; k++)
+            segments[k] = 0;
+        // the row segments first, then the column segments, each indexed by line * n + the index of the box on it
+        final int columnSegments = side * n;
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int c = free(cell);
+            final int row = geometry.row(cell), column = geometry.column(cell);
+            segments[row * n + column / n] |= c;
+            segments[columnSegments + column * n + row / n] |= c;
+        }
+
+        for (int line = 0; line < 2 * side; line++) {
+            final boolean row = line < side;
+            final int index = row ? line : line - side;
+            final int offset = row ? index * n : columnSegments + index * n;
+            for (int b = 0; b < n; b++) {
+                final int inside = segments[offset + b];
+                if (inside == 0)
+                    continue;
+                int restOfLine = 0, restOfBox = 0;
+                for (int other = 0; other < n; other++) {
+                    if (other != b)
+                        restOfLine |= segments[offset + other];
+                }
+                // the other lines crossing the same box
+                final int first = index / n * n;
+                for (int other = first; other < first + n; other++) {
+                    if (other != index)
+                        restOfBox |= segments[(row ? 0 : columnSegments) + other * n + b];
+                }
+                final int box = row ? index / n * n + b : b * n + index / n;
+
+                final int pointing = inside & ~restOfBox & restOfLine;
+                if (pointing != 0) {
+                    for (short cell : geometry.unit(line)) {
+                        if (geometry.box(cell) != box && !eliminate(cell, pointing))
+                            return false;
+                    }
+                }
+                final int claiming = inside & ~restOfLine & restOfBox;
+                if (claiming != 0) {
+                    for (short cell : geometry.unit(2 * side + box)) {
+                        if ((row ? geometry.row(cell) : geometry.column(cell)) != index && !eliminate(cell, claiming))
+                            return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies pointing and claiming to the other pairs of units sharing several cells, e.g. the boxes crossed by a
+     * diagonal or the rows and columns crossing a jigsaw region: a digit that fits only into the shared cells within
+     * one unit cannot be in the rest of the other one
+     */
+    private boolean overlaps() {
+        for (int k = 0; k < rules.getOverlapCount(); k++) {
+            int inside = 0, first = 0, second = 0;
+            for (short cell : rules.shared(k))
+                inside |= free(cell);
+            for (short cell : rules.onlyFirst(k))
+                first |= free(cell);
+            for (short cell : rules.onlySecond(k))
+                second |= free(cell);
+
+            final int fromFirst = inside & ~first & second;
+            if (fromFirst != 0) {
+                for (short cell : rules.onlySecond(k)) {
+                    if (!eliminate(cell, fromFirst))
+                        return false;
+                }
+            }
+            final int fromSecond = inside & ~second & first;
+            if (fromSecond != 0) {
+                for (short cell : rules.onlyFirst(k)) {
+                    if (!eliminate(cell, fromSecond))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Restricts the cells of every cage that has changed to the digits of the combinations that contain the digits
+     * placed in it and can still be completed with the candidates of its other cells. The digits all of these
+     * combinations share must be in the cage, so they are removed from the cells seeing the whole cage.
+     */
+    private boolean cages() {
+        while (dirtyCount > 0) {
+            final int k = dirtyCages[--dirtyCount];
+            dirty[k] = false;
+            final short[] cells = rules.cage(k).cells();
+            int placedDigits = 0, open = 0;
+            for (short cell : cells) {
+                final int c = candidates[base + cell];
+                if ((c & placed) != 0)
+                    placedDigits |= c & allDigits;
+                else
+                    open |= c;
+            }
+            int allowed = 0, required = allDigits;
+            for (int combination : rules.combinations(k)) {
+                if ((combination & placedDigits) == placedDigits && (combination & ~placedDigits & ~open) == 0) {
+                    allowed |= combination;
+                    required &= combination;
+                }
+            }
+            if (allowed == 0)
+                return false;
+            required &= ~placedDigits;
+            if (required != 0) {
+                for (short cell : rules.seers(k)) {
+                    if (!eliminate(cell, required))
+                        return false;
+                }
+            }
+            final int excluded = open & ~allowed;
+            if (excluded != 0) {
+                for (short cell : cells) {
+                    if ((candidates[base + cell] & placed) == 0 && !eliminate(cell, excluded))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks a cage as changed, unless the cage is -1
+     */
+    private void touch(int cage) {
+        if (cage >= 0 && !dirty[cage]) {
+            dirty[cage] = true;
+            dirtyCages[dirtyCount++] = cage;
+        }
+    }
+
+    private void clearCages() {
+        while (dirtyCount > 0)
+            dirty[dirtyCages[--dirtyCount]] = false;
+    }
+
+    /**
+     * Returns the candidates of the cell, or 0 if its digit has been placed
+     */
+    private int free(int cell) {
+        final int c = candidates[base + cell];
+        return (c & placed) != 0 ? 0 : c;
+    }
+
+    private static int digit(int candidates) {
+        return Integer.numberOfTrailingZeros(candidates) + 1;
+    }
+}
@@ -0,0 +1,250 @@
+package solver;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Generates random puzzles that have a unique solution. A complete grid is created by filling the three boxes on the
+ * main diagonal, which do not constrain each other, with random permutations of the digits and solving the rest. Since
+ * the engine completes the grid with the smallest digits first, the grid is then randomized by the symmetries of the
+ * Sudoku: its digits are relabelled, its bands and stacks and the rows and columns within them are permuted, and it is
+ * transposed with probability 1/2, so that every digit is equally likely in every cell. The clues of that grid are
+ * then removed in random order, each removal being undone if the puzzle no longer has a unique solution, which is
+ * checked by counting the solutions up to 2.
+ * <p></p>
+ * Every puzzle is determined by a seed, so the output is reproducible. Generating several puzzles at once derives the
+ * seed of the i-th puzzle from the seed and i, so the result does not depend on the number of threads either.
+ * <p></p>
+ * A generator can be shared by several threads, since the engines are obtained from the engine supplier on the thread
+ * that generates a puzzle.
+ */
+public final class Generator {
+
+    /**
+     * The fewest clues a puzzle with a unique solution can have
+     */
+    public static final int MIN_CLUES = 17;
+
+    /**
+     * The number of complete grids that are tried before giving up on reaching the maximum number of clues
+     */
+    private static final int ATTEMPTS = 1000;
+
+    /**
+     * The number of puzzles below which a parallel task is not split any further
+     */
+    private static final int BATCH = 4;
+
+    /**
+     * The increment of the seeds of consecutive puzzles, an odd constant to spread them evenly
+     */
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int minClues;
+    private final int maxClues;
+    private final Supplier<? extends SolverEngine> engine;
+
+    /**
+     * Creates a new generator that removes as many clues as possible, using the bitmask engine
+     */
+    public Generator() {
+        this(MIN_CLUES, Cells.COUNT);
+    }
+
+    /**
+     * Creates a new generator using the bitmask engine, whose counts are the fastest on the nearly complete grids the
+     * generator mostly deals with
+     *
+     * @param minClues the number of clues at which no more clues are removed
+     * @param maxClues the most clues a puzzle may have; grids whose clues cannot be removed down to this number are
+     *                 discarded
+     * @throws IllegalArgumentException if {@code MIN_CLUES <= minClues <= maxClues <= 81} does not hold
+     */
+    public Generator(int minClues, int maxClues) {
+        this(minClues, maxClues, Engines::bitmask);
+    }
+
+    /**
+     * Creates a new generator
+     *
+     * @param minClues the number of clues at which no more clues are removed
+     * @param maxClues the most clues a puzzle may have; grids whose clues cannot be removed down to this number are
+     *                 discarded
+     * @param engine   the supplier of the engines, which is called on the threads generating the puzzles
+     * @throws IllegalArgumentException if {@code MIN_CLUES <= minClues <= maxClues <= 81} does not hold
+     */
+    public Generator(int minClues, int maxClues, Supplier<? extends SolverEngine> engine) {
+        if (minClues < MIN_CLUES || minClues > maxClues || maxClues > Cells.COUNT)
+            throw new IllegalArgumentException("The clue targets must satisfy " + MIN_CLUES + " <= " + minClues
+                    + " <= " + maxClues + " <= " + Cells.COUNT);
+        this.minClues = minClues;
+        this.maxClues = maxClues;
+        this.engine = Objects.requireNonNull(engine);
+    }
+
+    /**
+     * Generates the puzzle determined by the seed
+     *
+     * @param seed the seed
+     * @return the 81 entries of the puzzle, row by row, with 0 for empty cells
+     * @throws IllegalStateException if no puzzle with at most the maximum number of clues has been found, which may
+     *                               happen if it is below about 22
+     */
+    public byte[] generate(long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        final SolverEngine engine = this.engine.get();
+        final byte[] cells = new byte[Cells.COUNT];
+        final boolean[] given = new boolean[Cells.COUNT];
+        final int[] order = new int[Cells.COUNT];
+
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            fill(cells, given, random, engine);
+            if (removeClues(cells, given, order, random, engine) <= maxClues)
+                return cells;
+        }
+        throw new IllegalStateException("No puzzle with at most " + maxClues + " clues has been found");
+    }
+
+    /**
+     * Generates the specified number of puzzles on the common {@link ForkJoinPool}
+     *
+     * @param count the number of puzzles
+     * @param seed  the seed determining all puzzles
+     * @return the puzzles, see {@link #generate(long)}
+     */
+    public byte[][] generate(int count, long seed) {
+        return generate(count, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates the specified number of puzzles on the specified pool. The i-th puzzle is the one that {@link
+     * #generate(long)} returns for a seed derived from the seed and i.
+     *
+     * @param count the number of puzzles
+     * @param seed  the seed determining all puzzles
+     * @param pool  the pool that runs the tasks
+     * @return the puzzles, see {@link #generate(long)}
+     */
+    public byte[][] generate(int count, long seed, ForkJoinPool pool) {
+        final byte[][] puzzles = new byte[count][];
+        pool.invoke(new Batch(puzzles, seed, 0, count));
+        return puzzles;
+    }
+
+    /**
+     * Fills the grid with a random complete solution, all of whose entries are given
+     */
+    private static void fill(byte[] cells, boolean[] given, SplittableRandom random, SolverEngine engine) {
+        final byte[] digits = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            cells[cell] = 0;
+            given[cell] = false;
+        }
+        for (int box = 0; box < 9; box += 4) {
+            shuffle(digits, random);
+            for (int k = 0; k < 9; k++) {
+                final int cell = 27 * (box / 3) + 3 * (box % 3) + 9 * (k / 3) + k % 3;
+                cells[cell] = digits[k];
+                given[cell] = true;
+            }
+        }
+        // the three boxes on the diagonal can always be completed
+        engine.solve(cells, given);
+
+        shuffle(digits, random);
+        final int[] rows = lines(random), columns = lines(random);
+        final boolean transpose = random.nextBoolean();
+        final byte[] completed = cells.clone();
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final int row = rows[cell / 9], column = columns[cell % 9];
+            cells[cell] = digits[completed[transpose ? 9 * column + row : 9 * row + column] - 1];
+            given[cell] = true;
+        }
+    }
+
+    /**
+     * Returns a random permutation of the rows or columns that keeps the ones of a band or stack together
+     */
+    private static int[] lines(SplittableRandom random) {
+        final byte[] blocks = {0, 1, 2};
+        final byte[] offsets = {0, 1, 2};
+        final int[] lines = new int[9];
+        shuffle(blocks, random);
+        for (int block = 0; block < 3; block++) {
+            shuffle(offsets, random);
+            for (int k = 0; k < 3; k++)
+                lines[3 * block + k] = 3 * blocks[block] + offsets[k];
+        }
+        return lines;
+    }
+
+    /**
+     * Removes the clues in random order as long as the solution stays unique, until only the minimum is left
+     *
+     * @return the number of remaining clues
+     */
+    private int removeClues(byte[] cells, boolean[] given, int[] order, SplittableRandom random, SolverEngine engine) {
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            order[cell] = cell;
+        for (int i = Cells.COUNT - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1), swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        int clues = Cells.COUNT;
+        for (int i = 0; i < Cells.COUNT && clues > minClues; i++) {
+            final int cell = order[i];
+            final byte digit = cells[cell];
+            cells[cell] = 0;
+            given[cell] = false;
+            if (engine.count(cells, given, 2) == 1) {
+                clues--;
+            } else {
+                cells[cell] = digit;
+                given[cell] = true;
+            }
+        }
+        return clues;
+    }
+
+    private static void shuffle(byte[] digits, SplittableRandom random) {
+        for (int i = digits.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final byte swap = digits[i];
+            digits[i] = digits[j];
+            digits[j] = swap;
+        }
+    }
+
+    private final class Batch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] puzzles;
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        private Batch(byte[][] puzzles, long seed, int from, int to) {
+            this.puzzles = puzzles;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH) {
+                for (int i = from; i < to; i++)
+                    puzzles[i] = generate(seed + i * SEED_GAMMA);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Batch(puzzles, seed, from, middle), new Batch(puzzles, seed, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package solver;
+
+/**
+ * Precomputed lookup tables for a Sudoku of any box size {@code n}, i.e. with boxes of {@code n x n} cells and rows,
+ * columns and digits ranging up to {@code n * n}. Cells are numbered row by row, i.e. cell {@code side * row +
+ * column}, and digit {@code d} is represented by bit {@code d - 1} of a candidate mask, so the candidates of a cell fit
+ * into an {@code int} for every supported size.
+ * <p></p>
+ * The classic 9x9 Sudoku has box size 3, and its tables are the same as the ones of {@link Cells}, which the engines
+ * specialized for it use instead.
+ */
+public final class Geometry {
+
+    /**
+     * The smallest supported box size, i.e. 4x4 Sudokus
+     */
+    public static final int MIN_BOX_SIZE = 2;
+
+    /**
+     * The largest supported box size, i.e. 25x25 Sudokus, whose 25 candidates and a flag still fit into an {@code int}
+     */
+    public static final int MAX_BOX_SIZE = 5;
+
+    /**
+     * The characters representing the digits in text, up to the largest side: {@code 1} to {@code 9}, followed by
+     * {@code A} for 10 up to {@code P} for 25
+     */
+    public static final String SYMBOLS = "123456789ABCDEFGHIJKLMNOP";
+
+    private static final Geometry[] GEOMETRIES = new Geometry[MAX_BOX_SIZE + 1];
+
+    static {
+        for (int n = MIN_BOX_SIZE; n <= MAX_BOX_SIZE; n++)
+            GEOMETRIES[n] = new Geometry(n);
+    }
+
+    /**
+     * The geometry of the classic 9x9 Sudoku
+     */
+    public static final Geometry CLASSIC = of(3);
+
+    private final int boxSize, side, cellCount;
+    private final int allDigits;
+    private final short[] row, column, box;
+    private final short[][] peers;
+    private final short[][] units;
+
+    private Geometry(int boxSize) {
+        this.boxSize = boxSize;
+        this.side = boxSize * boxSize;
+        this.cellCount = side * side;
+        this.allDigits = (1 << side) - 1;
+
+        row = new short[cellCount];
+        column = new short[cellCount];
+        box = new short[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            row[cell] = (short) (cell / side);
+            column[cell] = (short) (cell % side);
+            box[cell] = (short) (row[cell] / boxSize * boxSize + column[cell] / boxSize);
+        }
+
+        final int peerCount = 2 * (side - 1) + (boxSize - 1) * (boxSize - 1);
+        peers = new short[cellCount][peerCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int k = 0;
+            for (int other = 0; other < cellCount; other++) {
+                if (other != cell && (row[other] == row[cell] || column[other] == column[cell] || box[other] == box[cell]))
+                    peers[cell][k++] = (short) other;
+            }
+        }
+
+        units = new short[3 * side][side];
+        final int[] filled = new int[3 * side];
+        for (int cell = 0; cell < cellCount; cell++) {
+            units[row[cell]][filled[row[cell]]++] = (short) cell;
+            units[side + column[cell]][filled[side + column[cell]]++] = (short) cell;
+            units[2 * side + box[cell]][filled[2 * side + box[cell]]++] = (short) cell;
+        }
+    }
+
+    /**
+     * Returns the geometry of the specified box size
+     *
+     * @param boxSize the number of rows and columns of a box, between {@value #MIN_BOX_SIZE} and {@value
+     *                #MAX_BOX_SIZE} (inclusive)
+     * @return the geometry
+     * @throws IllegalArgumentException if the box size is not supported
+     */
+    public static Geometry of(int boxSize) {
+        if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE)
+            throw new IllegalArgumentException("Box size " + boxSize + " is not between " + MIN_BOX_SIZE + " and "
+                    + MAX_BOX_SIZE);
+        return GEOMETRIES[boxSize];
+    }
+
+    /**
+     * Returns the geometry of the specified side length
+     *
+     * @param side the number of rows and columns of the whole Sudoku, which must be the square of a supported box size
+     * @return the geometry
+     * @throws IllegalArgumentException if there is no supported geometry with that side
+     */
+    public static Geometry ofSide(int side) {
+        for (int n = MIN_BOX_SIZE; n <= MAX_BOX_SIZE; n++) {
+            if (n * n == side)
+                return GEOMETRIES[n];
+        }
+        throw new IllegalArgumentException("Side " + side + " is not the square of a box size between "
+                + MIN_BOX_SIZE + " and " + MAX_BOX_SIZE);
+    }
+
+    /**
+     * Returns the geometry with the specified number of cells
+     *
+     * @param cellCount the number of cells of the whole Sudoku
+     * @return the geometry
+     * @throws IllegalArgumentException if there is no supported geometry with that number of cells
+     */
+    public static Geometry ofCells(int cellCount) {
+        for (int n = MIN_BOX_SIZE; n <= MAX_BOX_SIZE; n++) {
+            if (GEOMETRIES[n].cellCount == cellCount)
+                return GEOMETRIES[n];
+        }
+        throw new IllegalArgumentException(cellCount + " cells do not form a supported Sudoku");
+    }
+
+    /**
+     * Returns the number of rows and columns of a box
+     *
+     * @return the box size {@code n}
+     */
+    public int getBoxSize() {
+        return boxSize;
+    }
+
+    /**
+     * Returns the number of rows and columns of the Sudoku, which is also the number of digits and of cells per unit
+     *
+     * @return the side {@code n * n}
+     */
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * Returns the number of cells of the Sudoku
+     *
+     * @return the number of cells {@code side * side}
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Returns the number of units, i.e. rows, columns and boxes
+     *
+     * @return the number of units {@code 3 * side}
+     */
+    public int getUnitCount() {
+        return units.length;
+    }
+
+    /**
+     * Returns the bitmask with one bit set for every digit
+     *
+     * @return the mask of all digits
+     */
+    public int getAllDigits() {
+        return allDigits;
+    }
+
+    /**
+     * Returns the row of a cell
+     *
+     * @param cell the cell
+     * @return its row
+     */
+    public int row(int cell) {
+        return row[cell];
+    }
+
+    /**
+     * Returns the column of a cell
+     *
+     * @param cell the cell
+     * @return its column
+     */
+    public int column(int cell) {
+        return column[cell];
+    }
+
+    /**
+     * Returns the box of a cell, boxes being numbered row by row
+     *
+     * @param cell the cell
+     * @return its box
+     */
+    public int box(int cell) {
+        return box[cell];
+    }
+
+    /**
+     * Returns the peers of a cell, i.e. the cells sharing a row, a column or a box with it. The array must not be
+     * modified.
+     *
+     * @param cell the cell
+     * @return the peers of the cell, in ascending order
+     */
+    public short[] peers(int cell) {
+        return peers[cell];
+    }
+
+    /**
+     * Returns the cells of a unit: the rows are units {@code 0} to {@code side - 1}, followed by the columns and the
+     * boxes, each listing its cells row by row. The array must not be modified.
+     *
+     * @param unit the unit
+     * @return the cells of the unit
+     */
+    public short[] unit(int unit) {
+        return units[unit];
+    }
+
+    /**
+     * Returns the character representing a digit in text
+     *
+     * @param digit the digit, or 0 for an empty cell
+     * @return the digit's symbol, or {@code .} for 0
+     */
+    public char symbol(int digit) {
+        return digit == 0 ? '.' : SYMBOLS.charAt(digit - 1);
+    }
+
+    /**
+     * Returns the digit represented by a character, accepting lower case letters as well
+     *
+     * @param symbol the character
+     * @return the digit, 0 for {@code .} or {@code 0}, or -1 if the character does not represent a digit of this
+     * geometry
+     */
+    public int digit(char symbol) {
+        if (symbol == '.' || symbol == '0')
+            return 0;
+        final int index = SYMBOLS.indexOf(Character.toUpperCase(symbol));
+        return index < 0 || index >= side ? -1 : index + 1;
+    }
+
+    @Override
+    public String toString() {
+        return side + "x" + side;
+    }
+}
@@ -0,0 +1,107 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * The result of grading a puzzle with {@link Grader}: how often every {@link Technique} was applied on the way to the
+ * solution, and the rating derived from that. Only puzzles with a unique solution are graded; for all others, no
+ * technique has been applied and the rating is 0.
+ */
+public final class Grade {
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private final int solutions;
+    private final int[] counts;
+
+    /**
+     * Creates a new grade
+     *
+     * @param solutions the number of solutions of the puzzle, but at most 2
+     * @param counts    how often every technique was applied, indexed by the techniques' ordinals
+     */
+    Grade(int solutions, int[] counts) {
+        this.solutions = solutions;
+        this.counts = counts;
+    }
+
+    /**
+     * Returns whether the puzzle has a unique solution and has therefore been graded
+     *
+     * @return whether the puzzle has been graded
+     */
+    public boolean isUnique() {
+        return solutions == 1;
+    }
+
+    /**
+     * Returns the number of solutions of the puzzle, counting at most two
+     *
+     * @return 0 if the puzzle has no solution, 1 if it has a unique one, and 2 if it has several
+     */
+    public int getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Returns how often a technique was applied. Placing techniques count every digit placed, the others count every
+     * application that removed at least one candidate.
+     *
+     * @param technique the technique
+     * @return the number of applications of the technique
+     */
+    public int getCount(Technique technique) {
+        return counts[technique.ordinal()];
+    }
+
+    /**
+     * Returns the hardest technique that was needed
+     *
+     * @return the hardest technique, or {@code null} if the puzzle is not unique or has no empty cells
+     */
+    public Technique getHardest() {
+        for (int t = TECHNIQUES.length - 1; t >= 0; t--) {
+            if (counts[t] > 0)
+                return TECHNIQUES[t];
+        }
+        return null;
+    }
+
+    /**
+     * Returns the rating of the puzzle, i.e. the rating of the hardest technique that was needed
+     *
+     * @return the rating, or 0 if there is no {@link #getHardest() hardest technique}
+     */
+    public double getRating() {
+        final Technique hardest = getHardest();
+        return hardest == null ? 0 : hardest.getRating();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        final Grade grade = (Grade) o;
+        return solutions == grade.solutions && Arrays.equals(counts, grade.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * solutions + Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        if (!isUnique())
+            return solutions == 0 ? "unsolvable" : "multiple";
+        final StringBuilder builder = new StringBuilder();
+        builder.append(getRating());
+        for (Technique technique : TECHNIQUES) {
+            if (counts[technique.ordinal()] > 0)
+                builder.append(' ').append(technique).append('=').append(counts[technique.ordinal()]);
+        }
+        return builder.toString();
+    }
+}
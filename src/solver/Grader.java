@@ -0,0 +1,408 @@
+package solver;
+
+/**
+ * Grades puzzles by solving them the way a human would: the techniques of {@link Technique} form a ladder that is
+ * climbed from the bottom whenever one of them has made progress, so every step uses the easiest technique that
+ * applies. Every technique is applied to the whole grid at once and counted once per digit placed or application that
+ * removed candidates. If none of them applies, the grader guesses the digit of the cell with the fewest candidates,
+ * which is taken from the solution computed beforehand, so it always guesses right.
+ * <p></p>
+ * A grader keeps its state in preallocated arrays, including its own engine for checking that a puzzle has a unique
+ * solution, so it is not thread-safe; every thread should use its own instance, see {@link ParallelGrader}.
+ */
+public final class Grader {
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    /**
+     * The subsets of the 9 elements of a unit with 2 and with 3 elements, as bitmasks
+     */
+    private static final int[][] SUBSETS = new int[4][];
+
+    static {
+        for (int size = 2; size <= 3; size++) {
+            int n = 0;
+            for (int mask = 0; mask <= Cells.ALL_DIGITS; mask++) {
+                if (Integer.bitCount(mask) == size)
+                    n++;
+            }
+            SUBSETS[size] = new int[n];
+            n = 0;
+            for (int mask = 0; mask <= Cells.ALL_DIGITS; mask++) {
+                if (Integer.bitCount(mask) == size)
+                    SUBSETS[size][n++] = mask;
+            }
+        }
+    }
+
+    private final PropagatingEngine engine = new PropagatingEngine(Propagation.SINGLES, Branching.FEWEST_CANDIDATES);
+    private final boolean[] given = new boolean[Cells.COUNT];
+    private final byte[] solution = new byte[Cells.COUNT];
+
+    /**
+     * The candidates of every cell, or 0 if its digit has been placed
+     */
+    private final int[] candidates = new int[Cells.COUNT];
+
+    /**
+     * Scratch masks for the 9 elements of a unit
+     */
+    private final int[] masks = new int[9];
+    private int empty;
+    private int found;
+
+    /**
+     * Keeps the first solution and stops the search at the second one
+     */
+    private final SolutionVisitor firstSolution = s -> {
+        if (found++ == 0) {
+            for (int cell = 0; cell < Cells.COUNT; cell++)
+                solution[cell] = s.get(cell);
+        }
+        return found < 2;
+    };
+
+    /**
+     * Grades a puzzle
+     *
+     * @param puzzle the 81 entries of the puzzle, row by row, with 0 for empty cells; the array is not modified
+     * @return the grade of the puzzle
+     * @throws IllegalArgumentException if the puzzle does not have 81 entries between 0 and 9
+     */
+    public Grade grade(byte[] puzzle) {
+        if (puzzle.length != Cells.COUNT)
+            throw new IllegalArgumentException("A puzzle must have " + Cells.COUNT + " entries");
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (puzzle[cell] < 0 || puzzle[cell] > 9)
+                throw new IllegalArgumentException("The entry " + puzzle[cell] + " is not between 0 and 9");
+            given[cell] = puzzle[cell] != 0;
+        }
+        found = 0;
+        final int solutions = (int) engine.enumerate(puzzle, given, firstSolution);
+        final int[] counts = new int[TECHNIQUES.length];
+        if (solutions != 1)
+            return new Grade(solutions, counts);
+
+        empty = Cells.COUNT;
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            candidates[cell] = Cells.ALL_DIGITS;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (given[cell])
+                place(cell, puzzle[cell]);
+        }
+
+        while (empty > 0) {
+            for (Technique technique : TECHNIQUES) {
+                final int applied = apply(technique);
+                if (applied > 0) {
+                    counts[technique.ordinal()] += applied;
+                    break;
+                }
+            }
+        }
+        return new Grade(1, counts);
+    }
+
+    private int apply(Technique technique) {
+        switch (technique) {
+            case HIDDEN_SINGLE:
+                return hiddenSingles();
+            case NAKED_SINGLE:
+                return nakedSingles();
+            case LOCKED_CANDIDATES:
+                return lockedCandidates();
+            case NAKED_PAIR:
+                return nakedSubsets(2);
+            case X_WING:
+                return fish(2);
+            case HIDDEN_PAIR:
+                return hiddenSubsets(2);
+            case NAKED_TRIPLE:
+                return nakedSubsets(3);
+            case SWORDFISH:
+                return fish(3);
+            case HIDDEN_TRIPLE:
+                return hiddenSubsets(3);
+            case XY_WING:
+                return xyWings();
+            case GUESS:
+                return guess();
+            default:
+                throw new AssertionError(technique);
+        }
+    }
+
+    private void place(int cell, int digit) {
+        final int bit = Cells.bit(digit);
+        candidates[cell] = 0;
+        empty--;
+        for (byte peer : Cells.PEERS[cell])
+            candidates[peer] &= ~bit;
+    }
+
+    /**
+     * Removes the digits of the mask from the candidates of the cell
+     *
+     * @return whether any candidate has been removed
+     */
+    private boolean eliminate(int cell, int mask) {
+        final int c = candidates[cell];
+        if ((c & mask) == 0)
+            return false;
+        candidates[cell] = c & ~mask;
+        return true;
+    }
+
+    private int hiddenSingles() {
+        int applied = 0;
+        for (byte[] unit : Cells.UNITS) {
+            int once = 0, twice = 0;
+            for (byte cell : unit) {
+                twice |= once & candidates[cell];
+                once |= candidates[cell];
+            }
+            for (int hidden = once & ~twice; hidden != 0; hidden &= hidden - 1) {
+                final int bit = hidden & -hidden;
+                for (byte cell : unit) {
+                    if ((candidates[cell] & bit) != 0) {
+                        place(cell, Integer.numberOfTrailingZeros(bit) + 1);
+                        applied++;
+                        break;
+                    }
+                }
+            }
+        }
+        return applied;
+    }
+
+    private int nakedSingles() {
+        int applied = 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final int c = candidates[cell];
+            if (c != 0 && (c & c - 1) == 0) {
+                place(cell, Integer.numberOfTrailingZeros(c) + 1);
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Applies pointing and claiming to the intersections of every box with its rows and columns
+     */
+    private int lockedCandidates() {
+        int applied = 0;
+        for (int box = 0; box < 9; box++) {
+            final byte[] boxCells = Cells.UNITS[18 + box];
+            for (int k = 0; k < 6; k++) {
+                final boolean row = k < 3;
+                final int index = row ? box / 3 * 3 + k : box % 3 * 3 + k - 3;
+                final byte[] line = Cells.UNITS[row ? index : 9 + index];
+
+                int inside = 0, restOfLine = 0, restOfBox = 0;
+                for (byte cell : line) {
+                    if (Cells.BOX[cell] == box)
+                        inside |= candidates[cell];
+                    else
+                        restOfLine |= candidates[cell];
+                }
+                for (byte cell : boxCells) {
+                    if ((row ? Cells.ROW[cell] : Cells.COLUMN[cell]) != index)
+                        restOfBox |= candidates[cell];
+                }
+
+                final int pointing = inside & ~restOfBox & restOfLine;
+                if (pointing != 0) {
+                    for (byte cell : line) {
+                        if (Cells.BOX[cell] != box)
+                            eliminate(cell, pointing);
+                    }
+                    applied++;
+                }
+                final int claiming = inside & ~restOfLine & restOfBox;
+                if (claiming != 0) {
+                    for (byte cell : boxCells) {
+                        if ((row ? Cells.ROW[cell] : Cells.COLUMN[cell]) != index)
+                            eliminate(cell, claiming);
+                    }
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Finds sets of {@code size} cells of a unit that have only {@code size} candidates between them
+     */
+    private int nakedSubsets(int size) {
+        int applied = 0;
+        for (byte[] unit : Cells.UNITS) {
+            int eligible = 0, open = 0;
+            for (int k = 0; k < 9; k++) {
+                final int n = Integer.bitCount(candidates[unit[k]]);
+                if (n > 0)
+                    open |= 1 << k;
+                if (n > 0 && n <= size)
+                    eligible |= 1 << k;
+            }
+            if (Integer.bitCount(open) <= size)
+                continue;
+            for (int subset : SUBSETS[size]) {
+                if ((subset & ~eligible) != 0)
+                    continue;
+                int digits = 0;
+                for (int s = subset; s != 0; s &= s - 1)
+                    digits |= candidates[unit[Integer.numberOfTrailingZeros(s)]];
+                if (Integer.bitCount(digits) != size)
+                    continue;
+                boolean removed = false;
+                for (int others = open & ~subset; others != 0; others &= others - 1)
+                    removed |= eliminate(unit[Integer.numberOfTrailingZeros(others)], digits);
+                if (removed)
+                    applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Finds sets of {@code size} digits that fit only into the same {@code size} cells of a unit
+     */
+    private int hiddenSubsets(int size) {
+        int applied = 0;
+        for (byte[] unit : Cells.UNITS) {
+            // the cells every digit fits into, as a mask of their indices within the unit
+            for (int d = 0; d < 9; d++)
+                masks[d] = 0;
+            for (int k = 0; k < 9; k++) {
+                for (int c = candidates[unit[k]]; c != 0; c &= c - 1)
+                    masks[Integer.numberOfTrailingZeros(c)] |= 1 << k;
+            }
+            int eligible = 0, open = 0;
+            for (int d = 0; d < 9; d++) {
+                final int n = Integer.bitCount(masks[d]);
+                if (n > 0)
+                    open |= 1 << d;
+                if (n > 0 && n <= size)
+                    eligible |= 1 << d;
+            }
+            if (Integer.bitCount(open) <= size)
+                continue;
+            for (int subset : SUBSETS[size]) {
+                if ((subset & ~eligible) != 0)
+                    continue;
+                int where = 0;
+                for (int s = subset; s != 0; s &= s - 1)
+                    where |= masks[Integer.numberOfTrailingZeros(s)];
+                if (Integer.bitCount(where) != size)
+                    continue;
+                boolean removed = false;
+                for (int w = where; w != 0; w &= w - 1)
+                    removed |= eliminate(unit[Integer.numberOfTrailingZeros(w)], Cells.ALL_DIGITS & ~subset);
+                if (removed)
+                    applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Finds X-Wings and Swordfish: {@code size} rows in which a digit fits only into the same {@code size} columns, so
+     * it is removed from the rest of these columns, and the same with rows and columns swapped
+     */
+    private int fish(int size) {
+        int applied = 0;
+        for (int d = 0; d < 9; d++) {
+            final int bit = 1 << d;
+            for (int orientation = 0; orientation < 2; orientation++) {
+                // the columns of every row the digit fits into, or the rows of every column
+                final int first = orientation == 0 ? 0 : 9;
+                int eligible = 0;
+                for (int line = 0; line < 9; line++) {
+                    final byte[] cells = Cells.UNITS[first + line];
+                    int where = 0;
+                    for (int k = 0; k < 9; k++) {
+                        if ((candidates[cells[k]] & bit) != 0)
+                            where |= 1 << k;
+                    }
+                    masks[line] = where;
+                    final int n = Integer.bitCount(where);
+                    if (n >= 2 && n <= size)
+                        eligible |= 1 << line;
+                }
+                for (int subset : SUBSETS[size]) {
+                    if ((subset & ~eligible) != 0)
+                        continue;
+                    int cross = 0;
+                    for (int s = subset; s != 0; s &= s - 1)
+                        cross |= masks[Integer.numberOfTrailingZeros(s)];
+                    if (Integer.bitCount(cross) != size)
+                        continue;
+                    boolean removed = false;
+                    for (int c = cross; c != 0; c &= c - 1) {
+                        final byte[] crossLine = Cells.UNITS[9 - first + Integer.numberOfTrailingZeros(c)];
+                        for (int line = 0; line < 9; line++) {
+                            if ((subset & 1 << line) == 0)
+                                removed |= eliminate(crossLine[line], bit);
+                        }
+                    }
+                    if (removed)
+                        applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Finds XY-Wings: a pivot with the candidates {@code xy} and two of its peers with {@code xz} and {@code yz}
+     */
+    private int xyWings() {
+        int applied = 0;
+        for (int pivot = 0; pivot < Cells.COUNT; pivot++) {
+            final int xy = candidates[pivot];
+            if (Integer.bitCount(xy) != 2)
+                continue;
+            for (byte first : Cells.PEERS[pivot]) {
+                final int xz = candidates[first];
+                if (Integer.bitCount(xz) != 2 || Integer.bitCount(xz & xy) != 1)
+                    continue;
+                final int z = xz & ~xy;
+                final int yz = xy & ~xz | z;
+                for (byte second : Cells.PEERS[pivot]) {
+                    if (second <= first || candidates[second] != yz)
+                        continue;
+                    boolean removed = false;
+                    for (int cell = 0; cell < Cells.COUNT; cell++) {
+                        if (cell != first && cell != second && sees(cell, first) && sees(cell, second))
+                            removed |= eliminate(cell, z);
+                    }
+                    if (removed)
+                        applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Places the digit of the solution in the first cell with the fewest candidates
+     */
+    private int guess() {
+        int best = -1, fewest = 10;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final int n = Integer.bitCount(candidates[cell]);
+            if (n > 0 && n < fewest) {
+                best = cell;
+                fewest = n;
+            }
+        }
+        place(best, solution[best]);
+        return 1;
+    }
+
+    private static boolean sees(int a, int b) {
+        return Cells.ROW[a] == Cells.ROW[b] || Cells.COLUMN[a] == Cells.COLUMN[b] || Cells.BOX[a] == Cells.BOX[b];
+    }
+}
@@ -0,0 +1,112 @@
+package solver;
+
+/**
+ * Collects {@link SolveStatistics} for searches, aggregates them in a global {@link SolverMetrics} instance and emits a
+ * {@link SolveEvent} to the JDK Flight Recorder for each of them. A search is instrumented like this:
+ * <pre>{@code
+ * final SolveEvent event = Instrumentation.begin("solve");
+ * final boolean solved = engine.solve(cells, given);
+ * if (event != null)
+ *     statistics = Instrumentation.end(event, engine, solved ? 1 : 0);
+ * }</pre>
+ * Instrumentation is disabled by default, and can be enabled by {@link #setEnabled(boolean)} or by setting the system
+ * property {@value #PROPERTY} to {@code true}. While it is disabled, {@link #begin(String)} returns {@code null}, so the
+ * only cost is reading one volatile field per search; the counters of {@link SearchCounters} are kept by the engines
+ * anyway and are only read at the end of an instrumented search.
+ */
+public final class Instrumentation {
+
+    /**
+     * The system property enabling the instrumentation at startup
+     */
+    public static final String PROPERTY = "sudoku.instrumentation";
+
+    private static final SolverMetrics METRICS = new SolverMetrics();
+
+    private static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+    private Instrumentation() { }
+
+    /**
+     * Returns whether searches are instrumented
+     *
+     * @return whether the instrumentation is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enables or disables the instrumentation. Searches that are already running are not affected.
+     *
+     * @param enabled whether searches should be instrumented
+     */
+    public static void setEnabled(boolean enabled) {
+        Instrumentation.enabled = enabled;
+    }
+
+    /**
+     * Returns the counters aggregating all instrumented searches since the start or the last {@link
+     * SolverMetrics#reset() reset}
+     *
+     * @return the global metrics
+     */
+    public static SolverMetrics getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Starts instrumenting a search
+     *
+     * @param operation the name of the operation, e.g. {@code solve} or {@code count}
+     * @return the event to pass to {@link #end(SolveEvent, SolverEngine, long)}, or {@code null} if the instrumentation
+     * is disabled
+     */
+    public static SolveEvent begin(String operation) {
+        if (!enabled)
+            return null;
+        final SolveEvent event = new SolveEvent();
+        event.operation = operation;
+        event.begin();
+        event.start = System.nanoTime();
+        return event;
+    }
+
+    /**
+     * Finishes instrumenting a search: collects its statistics, records them in the {@link #getMetrics() metrics} and
+     * commits the event if it is enabled in the running recordings. Must be called on the thread that searched, before
+     * the engine searches again.
+     *
+     * @param event     the event returned by {@link #begin(String)}
+     * @param engine    the engine that searched, which may not count its work, or {@code null} if the search was split
+     *                  among several engines
+     * @param solutions the number of solutions found
+     * @return the statistics of the search
+     */
+    public static SolveStatistics end(SolveEvent event, SolverEngine engine, long solutions) {
+        final long elapsed = System.nanoTime() - event.start;
+        event.end();
+
+        final SolveStatistics statistics;
+        final String name = engine == null ? "parallel" : engine.getClass().getSimpleName();
+        if (engine instanceof SearchCounters) {
+            final SearchCounters counters = (SearchCounters) engine;
+            statistics = new SolveStatistics(name, solutions, counters.getNodes(), counters.getBacktracks(),
+                    counters.getMaxDepth(), counters.getPropagations(), elapsed);
+        } else {
+            statistics = new SolveStatistics(name, solutions, -1, -1, -1, -1, elapsed);
+        }
+        METRICS.record(statistics);
+
+        if (event.shouldCommit()) {
+            event.engine = name;
+            event.solutions = solutions;
+            event.nodes = statistics.getNodes();
+            event.backtracks = statistics.getBacktracks();
+            event.maxDepth = statistics.getMaxDepth();
+            event.propagations = statistics.getPropagations();
+            event.commit();
+        }
+        return statistics;
+    }
+}
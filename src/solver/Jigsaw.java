@@ -0,0 +1,95 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * The rule of a Jigsaw Sudoku: irregular regions of {@link Geometry#getSide() side} cells each replace the boxes
+ */
+public final class Jigsaw implements Constraint {
+
+    private final byte[] layout;
+
+    /**
+     * Creates a new jigsaw constraint
+     *
+     * @param layout the region of every cell, row by row, between 0 and {@code side - 1} (inclusive)
+     */
+    public Jigsaw(byte[] layout) {
+        this.layout = layout.clone();
+    }
+
+    /**
+     * Parses a layout given as one character per cell, row by row, each region being denoted by its own character,
+     * e.g. {@code 1} to {@code 9} or {@code A} to {@code I}
+     *
+     * @param text the layout
+     * @return the jigsaw constraint
+     * @throws IllegalArgumentException if the layout does not have the cells of a supported geometry or more distinct
+     *                                  characters than the side of it
+     */
+    public static Jigsaw parse(CharSequence text) {
+        final Geometry geometry = Geometry.ofCells(text.length());
+        final StringBuilder seen = new StringBuilder();
+        final byte[] layout = new byte[text.length()];
+        for (int cell = 0; cell < layout.length; cell++) {
+            int region = seen.indexOf(String.valueOf(text.charAt(cell)));
+            if (region < 0) {
+                region = seen.length();
+                if (region == geometry.getSide())
+                    throw new IllegalArgumentException("More than " + region + " regions in a " + geometry
+                            + " layout");
+                seen.append(text.charAt(cell));
+            }
+            layout[cell] = (byte) region;
+        }
+        return new Jigsaw(layout);
+    }
+
+    /**
+     * Returns a copy of the layout
+     *
+     * @return the region of every cell, row by row
+     */
+    public byte[] getLayout() {
+        return layout.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if the layout does not have as many cells as the geometry or a region does not
+     *                                  have {@code side} cells
+     */
+    @Override
+    public short[][] regions(Geometry geometry) {
+        final int side = geometry.getSide();
+        if (layout.length != geometry.getCellCount())
+            throw new IllegalArgumentException("Expected a layout of " + geometry.getCellCount() + " cells, got "
+                    + layout.length);
+        final short[][] regions = new short[side][side];
+        final int[] filled = new int[side];
+        for (int cell = 0; cell < layout.length; cell++) {
+            final int region = layout[cell];
+            if (region < 0 || region >= side || filled[region] == side)
+                throw new IllegalArgumentException("Region " + region + " of cell " + cell + " is not one of " + side
+                        + " regions of " + side + " cells");
+            regions[region][filled[region]++] = (short) cell;
+        }
+        return regions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof Jigsaw && Arrays.equals(layout, ((Jigsaw) o).layout);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(layout);
+    }
+
+    @Override
+    public String toString() {
+        return "Jigsaw" + Arrays.toString(layout);
+    }
+}
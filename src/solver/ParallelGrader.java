@@ -0,0 +1,110 @@
+package solver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grades large numbers of puzzles on a pool of worker threads. The puzzles are split into ranges that are graded by
+ * the workers of a {@link ForkJoinPool}, each of which reuses one {@link Grader} for all puzzles it grades, so grading
+ * only allocates the resulting {@link Grade}s.
+ */
+public final class ParallelGrader implements AutoCloseable {
+
+    /**
+     * The number of puzzles below which a range is not split any further
+     */
+    private static final int CHUNK_SIZE = 64;
+
+    private static final ThreadLocal<Grader> GRADERS = ThreadLocal.withInitial(Grader::new);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a new parallel grader with one worker per available processor
+     */
+    public ParallelGrader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new parallel grader
+     *
+     * @param parallelism the number of worker threads
+     */
+    public ParallelGrader(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Grades the specified puzzles
+     *
+     * @param puzzles the puzzles, each an array of 81 entries, row by row, with 0 for empty cells
+     * @return the grades, in the order of the puzzles
+     * @throws IllegalArgumentException if one of the puzzles does not have 81 entries between 0 and 9
+     */
+    public Grade[] grade(byte[][] puzzles) {
+        final Grade[] grades = new Grade[puzzles.length];
+        grade(puzzles, 0, puzzles.length, grades);
+        return grades;
+    }
+
+    /**
+     * Grades a range of puzzles and stores their grades at the same indices, and returns once all of them are graded.
+     * Puzzles that are {@code null} are skipped, and so are their grades.
+     *
+     * @param puzzles the puzzles, each an array of 81 entries, row by row, with 0 for empty cells
+     * @param from    the index of the first puzzle to grade
+     * @param to      the index after the last puzzle to grade
+     * @param grades  the array receiving the grades
+     * @throws IllegalArgumentException if one of the puzzles does not have 81 entries between 0 and 9
+     */
+    public void grade(byte[][] puzzles, int from, int to, Grade[] grades) {
+        if (from < 0 || to > puzzles.length || to > grades.length || from > to)
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ")");
+        pool.invoke(new Range(puzzles, from, to, grades));
+    }
+
+    /**
+     * Shuts down the worker threads
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Range extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] puzzles;
+        private final int from, to;
+        private final Grade[] grades;
+
+        private Range(byte[][] puzzles, int from, int to, Grade[] grades) {
+            this.puzzles = puzzles;
+            this.from = from;
+            this.to = to;
+            this.grades = grades;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > CHUNK_SIZE) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new Range(puzzles, from, middle, grades), new Range(puzzles, middle, to, grades));
+                return;
+            }
+            final Grader grader = GRADERS.get();
+            for (int k = from; k < to; k++) {
+                if (puzzles[k] != null)
+                    grades[k] = grader.grade(puzzles[k]);
+            }
+        }
+    }
+}
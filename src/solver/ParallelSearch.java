@@ -0,0 +1,170 @@
+package solver;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Searches the solution of a single puzzle on several threads. The search tree is split at its first few levels, each
+ * time branching on the empty cell with the fewest candidates, and every subtree is solved as a separate task of a
+ * {@link ForkJoinPool}, so idle workers steal subtrees from busy ones. As soon as one task finds a solution, the tasks
+ * that have not started yet are skipped, and the searches still running are cancelled through a {@link SearchControl}
+ * shared by all tasks, so the latency is that of the first solution rather than of the slowest subtree.
+ * <p></p>
+ * Since any solution may be found first, the result only equals the one of a sequential engine if the puzzle has a
+ * unique solution.
+ */
+public final class ParallelSearch {
+
+    /**
+     * The default number of levels at which the search tree is split
+     */
+    public static final int DEFAULT_DEPTH = 4;
+
+    private final ForkJoinPool pool;
+    private final Supplier<? extends SolverEngine> engine;
+    private final int depth;
+
+    /**
+     * Creates a new parallel search that splits the search tree {@value #DEFAULT_DEPTH} levels deep
+     *
+     * @param pool   the pool that runs the tasks
+     * @param engine the supplier of the engines solving the subtrees, which is called on the worker threads and must
+     *               therefore return thread-confined engines such as {@link Engines#dancingLinks()}
+     */
+    public ParallelSearch(ForkJoinPool pool, Supplier<? extends SolverEngine> engine) {
+        this(pool, engine, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates a new parallel search
+     *
+     * @param pool   the pool that runs the tasks
+     * @param engine the supplier of the engines solving the subtrees, see {@link #ParallelSearch(ForkJoinPool,
+     *               Supplier)}
+     * @param depth  the number of levels at which the search tree is split
+     */
+    public ParallelSearch(ForkJoinPool pool, Supplier<? extends SolverEngine> engine, int depth) {
+        this.pool = Objects.requireNonNull(pool);
+        this.engine = Objects.requireNonNull(engine);
+        this.depth = depth;
+    }
+
+    /**
+     * Fills the cells that are not given with a solution. Their current contents are ignored.
+     *
+     * @param cells the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given which entries are given, i.e. must not be changed
+     * @return whether a solution has been found; if not, the grid remains unchanged
+     */
+    public boolean solve(byte[] cells, boolean[] given) {
+        final byte[] start = new byte[Cells.COUNT];
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (cells[cell] < 0 || cells[cell] > 9)
+                return false;
+            if (given[cell])
+                start[cell] = cells[cell];
+        }
+
+        final AtomicReference<byte[]> result = new AtomicReference<>();
+        pool.invoke(new Branch(start, 0, result, new SearchControl()));
+        final byte[] solution = result.get();
+        if (solution == null)
+            return false;
+        System.arraycopy(solution, 0, cells, 0, Cells.COUNT);
+        return true;
+    }
+
+    private final class Branch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The entries of this subtree, all of which are treated as given
+         */
+        private final byte[] cells;
+        private final int level;
+        private final AtomicReference<byte[]> result;
+
+        /**
+         * The control cancelled by the first task finding a solution
+         */
+        private final SearchControl control;
+
+        private Branch(byte[] cells, int level, AtomicReference<byte[]> result, SearchControl control) {
+            this.cells = cells;
+            this.level = level;
+            this.result = result;
+            this.control = control;
+        }
+
+        @Override
+        protected void compute() {
+            if (result.get() != null)
+                return;
+
+            final int[] rows = new int[9], columns = new int[9], boxes = new int[9];
+            for (int cell = 0; cell < Cells.COUNT; cell++) {
+                if (cells[cell] != 0) {
+                    final int bit = Cells.bit(cells[cell]);
+                    if (((rows[Cells.ROW[cell]] | columns[Cells.COLUMN[cell]] | boxes[Cells.BOX[cell]]) & bit) != 0)
+                        return;
+                    rows[Cells.ROW[cell]] |= bit;
+                    columns[Cells.COLUMN[cell]] |= bit;
+                    boxes[Cells.BOX[cell]] |= bit;
+                }
+            }
+
+            if (level == depth) {
+                final boolean[] given = new boolean[Cells.COUNT];
+                for (int cell = 0; cell < Cells.COUNT; cell++)
+                    given[cell] = cells[cell] != 0;
+                // a search stopped by the control reports no solution, so it cannot set the result
+                if (engine.get().solve(cells, given, control))
+                    found(cells);
+                return;
+            }
+
+            int branch = -1, candidates = 0, fewest = 10;
+            for (int cell = 0; cell < Cells.COUNT && fewest > 1; cell++) {
+                if (cells[cell] == 0) {
+                    final int mask = ~(rows[Cells.ROW[cell]] | columns[Cells.COLUMN[cell]] | boxes[Cells.BOX[cell]])
+                            & Cells.ALL_DIGITS;
+                    if (Integer.bitCount(mask) < fewest) {
+                        branch = cell;
+                        candidates = mask;
+                        fewest = Integer.bitCount(mask);
+                    }
+                }
+            }
+            if (branch < 0) {
+                found(cells);
+                return;
+            }
+            if (fewest == 0)
+                return;
+
+            final Branch[] children = new Branch[fewest];
+            for (int i = 0; i < children.length; i++) {
+                final int digit = Integer.numberOfTrailingZeros(candidates) + 1;
+                candidates &= candidates - 1;
+                final byte[] child = cells.clone();
+                child[branch] = (byte) digit;
+                children[i] = new Branch(child, level + 1, result, control);
+            }
+            int forked = 1;
+            while (forked < children.length && result.get() == null)
+                children[forked++].fork();
+            children[0].invoke();
+            for (int i = forked - 1; i > 0; i--)
+                children[i].join();
+        }
+
+        private void found(byte[] solution) {
+            if (result.compareAndSet(null, solution))
+                control.cancel();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package solver;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Solves large numbers of puzzles on a pool of worker threads, returning the solutions in the order of the puzzles.
+ * <p></p>
+ * The puzzles are grouped into chunks, which are solved by the workers of a {@link ForkJoinPool}. Every worker uses its
+ * own engine, obtained from the engine supplier on the worker's thread, so the thread-confined instances of {@link
+ * Engines} are reused for all puzzles a worker solves. The chunks are kept in a ring buffer of fixed size: new chunks
+ * are only read from the input once the oldest one has been handed out, so only a bounded number of puzzles is in
+ * memory at any time, no matter how many puzzles there are.
+ * <p></p>
+ * Every puzzle is an array of 81 entries, row by row, with 0 for empty cells; all other entries count as given. The
+ * solution of a puzzle is a new array, or {@code null} if the puzzle has no solution or is malformed, i.e. is {@code
+ * null}, does not have 81 entries or has one out of range, so that the solutions always line up with the puzzles.
+ */
+public final class ParallelSolver implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 64;
+
+    private final ForkJoinPool pool;
+    private final Supplier<? extends SolverEngine> engine;
+    private final int window;
+
+    /**
+     * Creates a new parallel solver with one worker per available processor that uses the Dancing Links engine
+     */
+    public ParallelSolver() {
+        this(Runtime.getRuntime().availableProcessors(), Engines::dancingLinks);
+    }
+
+    /**
+     * Creates a new parallel solver
+     *
+     * @param parallelism the number of worker threads
+     * @param engine      the supplier of the engines, which is called on the worker threads
+     */
+    public ParallelSolver(int parallelism, Supplier<? extends SolverEngine> engine) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.engine = Objects.requireNonNull(engine);
+        this.window = 4 * parallelism;
+    }
+
+    /**
+     * Solves the specified puzzles lazily. Puzzles are read from the iterator ahead of the returned iterator, but at
+     * most a fixed number of chunks are in flight at once. The puzzle arrays are not modified.
+     * <p></p>
+     * The returned iterator must only be used by one thread.
+     *
+     * @param puzzles the puzzles
+     * @return an iterator over the solutions, in the order of the puzzles
+     */
+    public Iterator<byte[]> solve(Iterator<byte[]> puzzles) {
+        return new Results(puzzles);
+    }
+
+    /**
+     * Solves the specified puzzles lazily, see {@link #solve(Iterator)}. Closing the returned stream closes the
+     * stream of puzzles.
+     *
+     * @param puzzles the puzzles
+     * @return a sequential stream of the solutions, in the order of the puzzles
+     */
+    public Stream<byte[]> solve(Stream<byte[]> puzzles) {
+        final Spliterator<byte[]> spliterator = Spliterators.spliteratorUnknownSize(solve(puzzles.iterator()),
+                Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(puzzles::close);
+    }
+
+    /**
+     * Shuts down the worker threads, waiting for chunks that are still being solved
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] cells = new byte[CHUNK_SIZE][Cells.COUNT];
+        private final byte[][] solutions = new byte[CHUNK_SIZE][];
+
+        /**
+         * Which puzzles of this chunk do not have 81 entries and are therefore not solved
+         */
+        private final boolean[] malformed = new boolean[CHUNK_SIZE];
+        private final boolean[] given = new boolean[Cells.COUNT];
+        private int size;
+
+        @Override
+        protected void compute() {
+            final SolverEngine e = engine.get();
+            for (int k = 0; k < size; k++) {
+                if (malformed[k]) {
+                    solutions[k] = null;
+                    continue;
+                }
+                final byte[] grid = cells[k];
+                for (int cell = 0; cell < Cells.COUNT; cell++)
+                    given[cell] = grid[cell] != 0;
+                solutions[k] = e.solve(grid, given) ? grid.clone() : null;
+            }
+        }
+    }
+
+    private final class Results implements Iterator<byte[]> {
+
+        private final Iterator<byte[]> puzzles;
+        private final Chunk[] ring = new Chunk[window];
+        private int head, inFlight, position;
+
+        private Results(Iterator<byte[]> puzzles) {
+            this.puzzles = puzzles;
+            for (int i = 0; i < ring.length; i++)
+                ring[i] = new Chunk();
+            fill();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return inFlight > 0;
+        }
+
+        @Override
+        public byte[] next() {
+            if (inFlight == 0)
+                throw new NoSuchElementException();
+
+            final Chunk chunk = ring[head];
+            if (position == 0)
+                chunk.join();
+            final byte[] solution = chunk.solutions[position];
+            chunk.solutions[position] = null;
+            if (++position == chunk.size) {
+                position = 0;
+                head = (head + 1) % ring.length;
+                inFlight--;
+                fill();
+            }
+            return solution;
+        }
+
+        /**
+         * Submits chunks until the ring is full or there are no more puzzles
+         */
+        private void fill() {
+            while (inFlight < ring.length && puzzles.hasNext()) {
+                final Chunk chunk = ring[(head + inFlight) % ring.length];
+                chunk.size = 0;
+                while (chunk.size < CHUNK_SIZE && puzzles.hasNext()) {
+                    final byte[] puzzle = puzzles.next();
+                    final boolean malformed = puzzle == null || puzzle.length != Cells.COUNT;
+                    chunk.malformed[chunk.size] = malformed;
+                    if (!malformed)
+                        System.arraycopy(puzzle, 0, chunk.cells[chunk.size], 0, Cells.COUNT);
+                    chunk.size++;
+                }
+                chunk.reinitialize();
+                pool.execute(chunk);
+                inFlight++;
+            }
+        }
+    }
+}
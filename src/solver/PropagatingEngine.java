@@ -0,0 +1,734 @@
+package solver;
+
+import java.util.Objects;
+
+/**
+ * A backtracking solver that keeps the candidates of every cell as a 9-bit mask and narrows them down by logical
+ * deductions before it branches, see {@link Propagation}. The deductions are applied until none of them makes progress,
+ * first to the given entries and then again after every digit the search places, so many puzzles are solved without
+ * branching at all, and the search tree of the others shrinks considerably.
+ * <p></p>
+ * By default, the search branches on the first cell, row by row, that has not been placed yet, and tries its
+ * candidates in ascending order. Since the deductions only remove candidates that cannot be part of any solution, the
+ * solutions are then found in lexicographic order, exactly like with {@link BitmaskEngine}, whatever deductions are
+ * applied. Alternatively, the search can branch on the cell with the fewest candidates, see {@link Branching}, which
+ * avoids the worst cases of a fixed cell order at the expense of the lexicographic order.
+ * <p></p>
+ * The candidates of every level of the search are kept in one preallocated array, so backtracking just returns to the
+ * previous level's copy and solving does not allocate anything. An engine is therefore not thread-safe; every thread
+ * should use its own instance.
+ * <p></p>
+ * The engine counts the work of every search, see {@link SearchCounters}. The counters are plain fields that are only
+ * touched where the search does far more work anyway, so they are always on.
+ */
+public final class PropagatingEngine implements SolverEngine, SearchCounters {
+
+    /**
+     * The flag marking a cell whose digit has been placed, i.e. removed from the candidates of its peers
+     */
+    private static final int PLACED = 1 << 9;
+
+    /**
+     * Every branch places at least one digit, so the search is at most this deep
+     */
+    private static final int LEVELS = Cells.COUNT + 1;
+
+    private final Propagation defaultPropagation;
+    private final Branching defaultBranching;
+
+    /**
+     * The candidates of every cell at every level of the search, possibly together with {@link #PLACED}
+     */
+    private final int[] candidates = new int[LEVELS * Cells.COUNT];
+
+    /**
+     * The cell branched on at every level of the search
+     */
+    private final byte[] branchCell = new byte[LEVELS];
+
+    /**
+     * The digits to try at every level of the search, in the order they are tried, 9 per level
+     */
+    private final byte[] order = new byte[9 * LEVELS];
+
+    /**
+     * The index of the next digit to try at every level of the search
+     */
+    private final byte[] next = new byte[LEVELS];
+
+    /**
+     * The number of digits to try at every level of the search
+     */
+    private final byte[] tries = new byte[LEVELS];
+
+    /**
+     * Whether the cells placed at every level of the search equal the previous contents of the grid
+     */
+    private final boolean[] resuming = new boolean[LEVELS];
+
+    /**
+     * The contents of the grid when solving started
+     */
+    private final byte[] previous = new byte[Cells.COUNT];
+
+    /**
+     * The cells whose digit is known but still has to be placed
+     */
+    private final byte[] queue = new byte[Cells.COUNT];
+
+    /**
+     * The cells of a unit that every digit fits into, as a mask of their indices within the unit
+     */
+    private final int[] positions = new int[9];
+
+    /**
+     * The number of peers having every digit as a candidate, used for ordering the digits by how constraining they are
+     */
+    private final int[] constraints = new int[9];
+
+    /**
+     * The offset of the candidates of the solution that is visible through {@link #view}
+     */
+    private int leaf;
+    private final Solution view = cell -> (byte) digit(candidates[leaf + cell]);
+
+    /**
+     * The control of the running search, or {@code null} if it is not limited
+     */
+    private SearchControl control;
+
+    private Propagation propagation;
+    private Branching branching;
+    private int base;
+    private int head, tail;
+    private boolean changed;
+    private long nodes, backtracks, propagations;
+    private int maxDepth;
+
+    /**
+     * Creates a new engine that applies {@link Propagation#SINGLES}, which usually saves the most time: the other
+     * deductions shrink the search tree even further, but cost more per node than they save on most puzzles
+     */
+    public PropagatingEngine() {
+        this(Propagation.SINGLES);
+    }
+
+    /**
+     * Creates a new engine that branches on the first empty cell, so the solutions are found in lexicographic order
+     *
+     * @param propagation the deductions applied by the methods of {@link SolverEngine}
+     */
+    public PropagatingEngine(Propagation propagation) {
+        this(propagation, Branching.FIRST_CELL);
+    }
+
+    /**
+     * Creates a new engine
+     *
+     * @param propagation the deductions applied by the methods of {@link SolverEngine}
+     * @param branching   the order in which the cells and digits are tried, which determines the order of the solutions
+     */
+    public PropagatingEngine(Propagation propagation, Branching branching) {
+        this.defaultPropagation = Objects.requireNonNull(propagation);
+        this.defaultBranching = Objects.requireNonNull(branching);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * With {@link Branching#FIRST_CELL}, this engine finds the solutions in lexicographic order, 0 counting as smaller
+     * than every digit. In other words, the cells that are not given are filled with the smallest solution that comes
+     * after their current contents. With the other branchings, the solutions are found in the order of the search, and
+     * if the cells do not contain a solution, the search simply starts from the beginning.
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given) {
+        return solve(cells, given, defaultPropagation);
+    }
+
+    /**
+     * Like {@link #solve(byte[], boolean[])}, but applies the specified deductions instead of the engine's default
+     *
+     * @param cells       the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given       which entries are given, i.e. must not be changed
+     * @param propagation the deductions to apply
+     * @return whether another solution has been found
+     */
+    public boolean solve(byte[] cells, boolean[] given, Propagation propagation) {
+        boolean resume = false;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (!given[cell] && cells[cell] != 0)
+                resume = true;
+        }
+        if (!load(cells, given, propagation, defaultBranching))
+            return false;
+        return search(cells, resume, 1, null) == 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     */
+    @Override
+    public boolean solve(byte[] cells, boolean[] given, SearchControl control) {
+        if (!control.checkpoint(0))
+            return false;
+        this.control = control;
+        try {
+            return solve(cells, given, defaultPropagation);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * Since the order does not matter when counting, this engine always branches on the cell with the fewest
+     * candidates.
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit) {
+        return count(cells, given, limit, defaultPropagation);
+    }
+
+    /**
+     * Like {@link #count(byte[], boolean[], long)}, but applies the specified deductions instead of the engine's
+     * default
+     *
+     * @param cells       the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given       which entries are given
+     * @param limit       the number of solutions after which counting stops
+     * @param propagation the deductions to apply
+     * @return the number of solutions, but at most {@code limit}; 0 if the given entries break the rules
+     */
+    public long count(byte[] cells, boolean[] given, long limit, Propagation propagation) {
+        if (limit <= 0 || !load(cells, given, propagation, Branching.FEWEST_CANDIDATES))
+            return 0;
+        return search(null, false, limit, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine consults the control every {@link SearchControl#CHECK_INTERVAL} nodes.
+     */
+    @Override
+    public long count(byte[] cells, boolean[] given, long limit, SearchControl control) {
+        if (!control.checkpoint(0))
+            return 0;
+        this.control = control;
+        try {
+            return count(cells, given, limit, defaultPropagation);
+        } finally {
+            this.control = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * This engine enumerates the solutions in the order of {@link #solve(byte[], boolean[])}, i.e. in lexicographic
+     * order with {@link Branching#FIRST_CELL}.
+     */
+    @Override
+    public long enumerate(byte[] cells, boolean[] given, SolutionVisitor visitor) {
+        return enumerate(cells, given, visitor, defaultPropagation);
+    }
+
+    /**
+     * Like {@link #enumerate(byte[], boolean[], SolutionVisitor)}, but applies the specified deductions instead of the
+     * engine's default
+     *
+     * @param cells       the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given       which entries are given
+     * @param visitor     the visitor receiving the solutions
+     * @param propagation the deductions to apply
+     * @return the number of solutions passed to the visitor
+     */
+    public long enumerate(byte[] cells, boolean[] given, SolutionVisitor visitor, Propagation propagation) {
+        if (!load(cells, given, propagation, defaultBranching))
+            return 0;
+        return search(null, false, Long.MAX_VALUE, visitor);
+    }
+
+    /**
+     * Returns the order in which this engine tries the cells and digits
+     *
+     * @return the branching of this engine
+     */
+    public Branching getBranching() {
+        return defaultBranching;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * For this engine, these are the given entries, and every digit tried at a branch, whether it turned out to be
+     * consistent or not.
+     */
+    @Override
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * For this engine, these are the digits tried at a branch that the deductions proved wrong.
+     */
+    @Override
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * For this engine, this is the number of nested branches, since every branch places several digits at once.
+     */
+    @Override
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p></p>
+     * For this engine, these are the digits removed from the candidates of their peers, including the given entries.
+     */
+    @Override
+    public long getPropagations() {
+        return propagations;
+    }
+
+    /**
+     * Initializes the candidates of the first level with the given entries and applies the deductions to them
+     *
+     * @return whether the given entries may be part of a solution
+     */
+    private boolean load(byte[] cells, boolean[] given, Propagation propagation, Branching branching) {
+        this.propagation = Objects.requireNonNull(propagation);
+        this.branching = branching;
+        nodes = 1;
+        backtracks = propagations = 0;
+        maxDepth = 0;
+        base = 0;
+        head = tail = 0;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (cells[cell] < 0 || cells[cell] > 9)
+                return false;
+            candidates[cell] = Cells.ALL_DIGITS;
+            previous[cell] = cells[cell];
+        }
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (given[cell] && cells[cell] != 0 && !assign(cell, Cells.bit(cells[cell])))
+                return false;
+        }
+        return propagate();
+    }
+
+    /**
+     * Searches the solutions in the order of the branching until the limit is reached or the visitor, if any, returns
+     * {@code false}. The last solution found is written to the cells, unless they are {@code null}.
+     *
+     * @param resume whether to skip all solutions up to and including the previous contents of the grid
+     * @return the number of solutions found
+     */
+    private long search(byte[] cells, boolean resume, long limit, SolutionVisitor visitor) {
+        final boolean lexicographic = branching == Branching.FIRST_CELL;
+        long count = 0;
+        int level = 0, start = 0;
+        boolean entering = true, equal = resume;
+        while (level >= 0) {
+            if (entering) {
+                entering = false;
+                final int first = level * Cells.COUNT;
+                int cell;
+                boolean pruned = false;
+                if (lexicographic) {
+                    for (cell = start; cell < Cells.COUNT; cell++) {
+                        final int c = candidates[first + cell];
+                        if ((c & PLACED) == 0)
+                            break;
+                        if (equal && digit(c) != previous[cell]) {
+                            // the first difference decides whether the solutions below come before or after the grid
+                            pruned = digit(c) < previous[cell];
+                            equal = false;
+                            if (pruned)
+                                break;
+                        }
+                    }
+                } else {
+                    cell = fewestCandidates(first);
+                    if (equal && cell == Cells.COUNT)
+                        equal = isPrevious(first);
+                }
+
+                if (pruned) {
+                    level--;
+                } else if (cell == Cells.COUNT) {
+                    // unless this is the solution we started from, pass it on
+                    if (!equal) {
+                        count++;
+                        leaf = first;
+                        if (visitor != null && !visitor.visit(view) || count >= limit) {
+                            if (cells != null) {
+                                for (int k = 0; k < Cells.COUNT; k++)
+                                    cells[k] = (byte) digit(candidates[first + k]);
+                            }
+                            return count;
+                        }
+                    }
+                    level--;
+                } else {
+                    branch(level, cell, equal);
+                }
+                continue;
+            }
+
+            // try the next digit of the cell branched on at this level
+            if (next[level] == tries[level]) {
+                level--;
+                continue;
+            }
+            final int digit = order[9 * level + next[level]++];
+            final int cell = branchCell[level];
+            final boolean resumed = resuming[level];
+            if (!lexicographic) {
+                // only the first digit tried can lead to the previous solution
+                resuming[level] = false;
+            }
+
+            base = (level + 1) * Cells.COUNT;
+            System.arraycopy(candidates, level * Cells.COUNT, candidates, base, Cells.COUNT);
+            head = tail = 0;
+            if ((++nodes & SearchControl.CHECK_INTERVAL - 1) == 0 && control != null && !control.checkpoint(nodes))
+                return count;
+            if (assign(cell, Cells.bit(digit)) && propagate()) {
+                level++;
+                if (level > maxDepth)
+                    maxDepth = level;
+                start = cell;
+                equal = resumed;
+                entering = true;
+            } else {
+                backtracks++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Prepares the digits to try at a level of the search. While resuming, the digits that can only lead to solutions
+     * preceding the previous contents of the grid are skipped.
+     */
+    private void branch(int level, int cell, boolean equal) {
+        final int c = candidates[level * Cells.COUNT + cell] & Cells.ALL_DIGITS;
+        final int offset = 9 * level;
+        int n = 0;
+        for (int digits = c; digits != 0; digits &= digits - 1)
+            order[offset + n++] = (byte) (Integer.numberOfTrailingZeros(digits) + 1);
+        if (branching == Branching.LEAST_CONSTRAINING)
+            sortByConstraint(level, cell, n);
+
+        int from = 0;
+        if (equal && branching == Branching.FIRST_CELL) {
+            while (from < n && order[offset + from] < previous[cell])
+                from++;
+        } else if (equal) {
+            while (from < n && order[offset + from] != previous[cell])
+                from++;
+            if (from == n) {
+                // the previous contents are not a solution, so there is nothing to skip
+                from = 0;
+                equal = false;
+            }
+        }
+        branchCell[level] = (byte) cell;
+        next[level] = (byte) from;
+        tries[level] = (byte) n;
+        resuming[level] = equal;
+    }
+
+    /**
+     * Sorts the digits to try at a level by the number of peers that have them as a candidate, the fewest first
+     */
+    private void sortByConstraint(int level, int cell, int n) {
+        final int first = level * Cells.COUNT;
+        final int offset = 9 * level;
+        for (int d = 0; d < 9; d++)
+            constraints[d] = 0;
+        for (byte peer : Cells.PEERS[cell]) {
+            final int c = candidates[first + peer];
+            if ((c & PLACED) == 0) {
+                for (int digits = c; digits != 0; digits &= digits - 1)
+                    constraints[Integer.numberOfTrailingZeros(digits)]++;
+            }
+        }
+        // insertion sort, which keeps digits with the same number of constraints in ascending order
+        for (int i = 1; i < n; i++) {
+            final byte digit = order[offset + i];
+            int j = i;
+            while (j > 0 && constraints[order[offset + j - 1] - 1] > constraints[digit - 1]) {
+                order[offset + j] = order[offset + j - 1];
+                j--;
+            }
+            order[offset + j] = digit;
+        }
+    }
+
+    /**
+     * Returns the first cell, row by row, with the fewest candidates among the ones that have not been placed yet, or
+     * {@link Cells#COUNT} if all of them have been placed
+     */
+    private int fewestCandidates(int first) {
+        // with propagation, every cell that is left has at least two candidates
+        final int minimum = propagation == Propagation.NONE ? 1 : 2;
+        int best = Cells.COUNT, fewest = 10;
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            final int c = candidates[first + cell];
+            if ((c & PLACED) != 0)
+                continue;
+            final int n = Integer.bitCount(c);
+            if (n < fewest) {
+                best = cell;
+                fewest = n;
+                if (n <= minimum)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns whether the solution at the specified offset equals the previous contents of the grid
+     */
+    private boolean isPrevious(int first) {
+        for (int cell = 0; cell < Cells.COUNT; cell++) {
+            if (digit(candidates[first + cell]) != previous[cell])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies the deductions to the candidates of the current level until none of them makes progress
+     *
+     * @return whether the candidates may still be part of a solution
+     */
+    private boolean propagate() {
+        while (true) {
+            while (head < tail) {
+                final int cell = queue[head++];
+                if ((candidates[base + cell] & PLACED) == 0 && !place(cell))
+                    return false;
+            }
+            if (propagation == Propagation.NONE)
+                return true;
+
+            changed = false;
+            if (!hiddenSingles())
+                return false;
+            if (head < tail)
+                continue;
+            if (propagation == Propagation.FULL) {
+                if (!nakedPairs() || !hiddenPairs() || !intersections())
+                    return false;
+                if (changed)
+                    continue;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Removes the only candidate of the cell from the candidates of its peers
+     */
+    private boolean place(int cell) {
+        final int bit = candidates[base + cell];
+        candidates[base + cell] = bit | PLACED;
+        propagations++;
+        for (byte peer : Cells.PEERS[cell]) {
+            if (!eliminate(peer, bit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reduces the candidates of the cell to the specified digit, which is placed by {@link #propagate()}
+     */
+    private boolean assign(int cell, int bit) {
+        final int c = candidates[base + cell];
+        if ((c & bit) == 0)
+            return false;
+        if ((c & PLACED) != 0)
+            return true;
+        if (c != bit || propagation == Propagation.NONE)
+            queue[tail++] = (byte) cell;
+        candidates[base + cell] = bit;
+        return true;
+    }
+
+    /**
+     * Removes the digits of the mask from the candidates of the cell, queueing it if only one of them is left
+     */
+    private boolean eliminate(int cell, int mask) {
+        final int c = candidates[base + cell];
+        if ((c & mask) == 0)
+            return true;
+        final int left = c & ~mask;
+        candidates[base + cell] = left;
+        final int digits = left & Cells.ALL_DIGITS;
+        if (digits == 0)
+            return false;
+        changed = true;
+        if ((digits & digits - 1) == 0 && propagation != Propagation.NONE)
+            queue[tail++] = (byte) cell;
+        return true;
+    }
+
+    /**
+     * Assigns every digit that fits into only one cell of a unit to that cell
+     */
+    private boolean hiddenSingles() {
+        for (byte[] unit : Cells.UNITS) {
+            int once = 0, twice = 0, placed = 0;
+            for (byte cell : unit) {
+                final int c = candidates[base + cell];
+                if ((c & PLACED) != 0)
+                    placed |= c;
+                twice |= once & c;
+                once |= c;
+            }
+            if ((once & Cells.ALL_DIGITS) != Cells.ALL_DIGITS)
+                return false;
+
+            int hidden = once & ~twice & ~placed & Cells.ALL_DIGITS;
+            while (hidden != 0) {
+                final int bit = hidden & -hidden;
+                hidden ^= bit;
+                int k = 0;
+                while (k < 9 && (candidates[base + unit[k]] & bit) == 0)
+                    k++;
+                // another hidden single may already have taken the cell
+                if (k == 9 || !assign(unit[k], bit))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the candidates of two cells of a unit that have the same two candidates from the unit's other cells
+     */
+    private boolean nakedPairs() {
+        for (byte[] unit : Cells.UNITS) {
+            for (int i = 0; i < 8; i++) {
+                final int pair = candidates[base + unit[i]];
+                if ((pair & PLACED) != 0 || Integer.bitCount(pair) != 2)
+                    continue;
+                for (int j = i + 1; j < 9; j++) {
+                    if (candidates[base + unit[j]] != pair)
+                        continue;
+                    for (int k = 0; k < 9; k++) {
+                        if (k != i && k != j && !eliminate(unit[k], pair))
+                            return false;
+                    }
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all other candidates from two cells of a unit that are the only ones two digits fit into
+     */
+    private boolean hiddenPairs() {
+        for (byte[] unit : Cells.UNITS) {
+            for (int d = 0; d < 9; d++)
+                positions[d] = 0;
+            for (int k = 0; k < 9; k++) {
+                final int c = candidates[base + unit[k]];
+                if ((c & PLACED) != 0)
+                    continue;
+                for (int digits = c; digits != 0; digits &= digits - 1)
+                    positions[Integer.numberOfTrailingZeros(digits)] |= 1 << k;
+            }
+            for (int d = 0; d < 8; d++) {
+                final int where = positions[d];
+                if (Integer.bitCount(where) != 2)
+                    continue;
+                for (int e = d + 1; e < 9; e++) {
+                    if (positions[e] != where)
+                        continue;
+                    final int others = Cells.ALL_DIGITS & ~(1 << d | 1 << e);
+                    if (!eliminate(unit[Integer.numberOfTrailingZeros(where)], others)
+                            || !eliminate(unit[31 - Integer.numberOfLeadingZeros(where)], others))
+                        return false;
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies pointing and claiming to the intersections of every box with its rows and columns: if a digit of the
+     * intersection does not fit anywhere else in the box, it is removed from the rest of the line, and if it does not
+     * fit anywhere else in the line, it is removed from the rest of the box
+     */
+    private boolean intersections() {
+        for (int box = 0; box < 9; box++) {
+            final byte[] boxCells = Cells.UNITS[18 + box];
+            for (int k = 0; k < 6; k++) {
+                final boolean row = k < 3;
+                final int index = row ? box / 3 * 3 + k : box % 3 * 3 + k - 3;
+                final byte[] line = Cells.UNITS[row ? index : 9 + index];
+
+                int inside = 0, restOfLine = 0, restOfBox = 0;
+                for (byte cell : line) {
+                    if (Cells.BOX[cell] == box)
+                        inside |= free(cell);
+                    else
+                        restOfLine |= free(cell);
+                }
+                for (byte cell : boxCells) {
+                    if ((row ? Cells.ROW[cell] : Cells.COLUMN[cell]) != index)
+                        restOfBox |= free(cell);
+                }
+
+                final int pointing = inside & ~restOfBox;
+                if (pointing != 0 && (restOfLine & pointing) != 0) {
+                    for (byte cell : line) {
+                        if (Cells.BOX[cell] != box && !eliminate(cell, pointing))
+                            return false;
+                    }
+                }
+                final int claiming = inside & ~restOfLine;
+                if (claiming != 0 && (restOfBox & claiming) != 0) {
+                    for (byte cell : boxCells) {
+                        if ((row ? Cells.ROW[cell] : Cells.COLUMN[cell]) != index && !eliminate(cell, claiming))
+                            return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the candidates of the cell, or 0 if its digit has been placed
+     */
+    private int free(int cell) {
+        final int c = candidates[base + cell];
+        return (c & PLACED) != 0 ? 0 : c;
+    }
+
+    private static int digit(int candidates) {
+        return Integer.numberOfTrailingZeros(candidates) + 1;
+    }
+}
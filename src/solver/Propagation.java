@@ -0,0 +1,27 @@
+package solver;
+
+/**
+ * The logical deductions {@link PropagatingEngine} applies to the candidates of the cells before the search starts and
+ * again at every node of the search. Each level includes the deductions of the previous ones, and they are repeated
+ * until none of them eliminates another candidate.
+ */
+public enum Propagation {
+
+    /**
+     * No deductions: placing a digit only removes it from the candidates of the cell's peers, so the search is plain
+     * backtracking with forward checking
+     */
+    NONE,
+
+    /**
+     * Naked singles, i.e. cells with only one candidate left, whose digit is placed, and hidden singles, i.e. digits
+     * that fit into only one cell of a row, column or box
+     */
+    SINGLES,
+
+    /**
+     * Singles, naked and hidden pairs within a row, column or box, and pointing and claiming, i.e. removing a digit
+     * from a row or column if it has to be placed in its intersection with a box, and vice versa
+     */
+    FULL
+}
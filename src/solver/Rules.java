@@ -0,0 +1,437 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The rules of a Sudoku variant compiled into the tables the {@link GeneralEngine} works on: the units that contain
+ * every digit exactly once, the peers of every cell, which are the cells sharing a unit or a cage with it, and the
+ * combinations of digits that fit into every cage. Without {@link Constraint constraints}, these are the rows, columns
+ * and boxes of the {@link Geometry}.
+ * <p></p>
+ * The units are numbered like the ones of the geometry: the rows first, then the columns and the boxes, or the
+ * regions replacing them, and finally the additional units of the constraints. Compiling is done once, when the
+ * rules are created, so that solving a variant costs little more than solving a classic Sudoku. Rules are immutable
+ * and may be shared between threads.
+ */
+public final class Rules {
+
+    private static final Rules[] CLASSIC = new Rules[Geometry.MAX_BOX_SIZE + 1];
+
+    static {
+        for (int n = Geometry.MIN_BOX_SIZE; n <= Geometry.MAX_BOX_SIZE; n++)
+            CLASSIC[n] = new Rules(Geometry.of(n));
+    }
+
+    private final Geometry geometry;
+    private final List<Constraint> constraints;
+    private final boolean boxes;
+    private final short[][] units;
+    private final short[][] peers;
+    private final Cage[] cages;
+    private final int[][] combinations;
+    private final int[] cageOf;
+
+    /**
+     * The cells outside every cage that are peers of all of its cells
+     */
+    private final short[][] seers;
+
+    /**
+     * The pairs of units sharing at least two cells that are not a row or column and a box: the shared cells, the
+     * cells only in the first unit and the cells only in the second one
+     */
+    private final short[][] shared, onlyFirst, onlySecond;
+
+    private final ThreadLocal<GeneralEngine> engines;
+
+    /**
+     * Compiles the rules of a variant
+     *
+     * @param geometry    the geometry of the Sudoku
+     * @param constraints the constraints on top of the rows, columns and boxes
+     * @throws IllegalArgumentException if a constraint does not fit the geometry, two of them replace the boxes or two
+     *                                  cages share a cell
+     */
+    public Rules(Geometry geometry, Constraint... constraints) {
+        this(geometry, Arrays.asList(constraints));
+    }
+
+    /**
+     * Compiles the rules of a variant
+     *
+     * @param geometry    the geometry of the Sudoku
+     * @param constraints the constraints on top of the rows, columns and boxes
+     * @throws IllegalArgumentException if a constraint does not fit the geometry, two of them replace the boxes or two
+     *                                  cages share a cell
+     */
+    public Rules(Geometry geometry, List<? extends Constraint> constraints) {
+        this.geometry = Objects.requireNonNull(geometry);
+        this.constraints = List.copyOf(constraints);
+        final int side = geometry.getSide(), cellCount = geometry.getCellCount();
+
+        short[][] regions = null;
+        final List<short[]> extra = new ArrayList<>();
+        final List<Cage> cages = new ArrayList<>();
+        for (Constraint constraint : this.constraints) {
+            final short[][] r = constraint.regions(geometry);
+            if (r != null) {
+                if (regions != null)
+                    throw new IllegalArgumentException("Only one constraint may replace the boxes");
+                regions = r;
+            }
+            extra.addAll(constraint.units(geometry));
+            cages.addAll(constraint.cages(geometry));
+        }
+        boxes = regions == null;
+
+        units = new short[3 * side + extra.size()][];
+        for (int u = 0; u < units.length; u++) {
+            if (u < 2 * side || u < 3 * side && boxes)
+                units[u] = geometry.unit(u);
+            else if (u < 3 * side)
+                units[u] = checkUnit(regions[u - 2 * side]);
+            else
+                units[u] = checkUnit(extra.get(u - 3 * side));
+        }
+
+        this.cages = cages.toArray(new Cage[0]);
+        combinations = new int[this.cages.length][];
+        cageOf = new int[cellCount];
+        Arrays.fill(cageOf, -1);
+        for (int k = 0; k < this.cages.length; k++) {
+            combinations[k] = this.cages[k].combinations(side);
+            for (short cell : this.cages[k].cells()) {
+                if (cageOf[cell] >= 0)
+                    throw new IllegalArgumentException("Cell " + cell + " is in two cages");
+                cageOf[cell] = k;
+            }
+        }
+
+        if (this.constraints.isEmpty()) {
+            peers = new short[cellCount][];
+            for (int cell = 0; cell < cellCount; cell++)
+                peers[cell] = geometry.peers(cell);
+        } else {
+            peers = computePeers();
+        }
+
+        seers = new short[this.cages.length][];
+        for (int k = 0; k < this.cages.length; k++)
+            seers[k] = computeSeers(this.cages[k].cells());
+
+        final List<short[][]> overlaps = computeOverlaps();
+        shared = new short[overlaps.size()][];
+        onlyFirst = new short[overlaps.size()][];
+        onlySecond = new short[overlaps.size()][];
+        for (int k = 0; k < overlaps.size(); k++) {
+            shared[k] = overlaps.get(k)[0];
+            onlyFirst[k] = overlaps.get(k)[1];
+            onlySecond[k] = overlaps.get(k)[2];
+        }
+
+        // on boards up to 9x9, the search trees are too small for the full deductions to pay off
+        final Propagation propagation = geometry.getBoxSize() > 3 ? Propagation.FULL : Propagation.SINGLES;
+        engines = ThreadLocal.withInitial(() -> new GeneralEngine(this, propagation));
+    }
+
+    /**
+     * Returns the rules of the classic Sudoku of a geometry, i.e. without any constraints
+     *
+     * @param geometry the geometry
+     * @return the classic rules, which are shared
+     */
+    public static Rules classic(Geometry geometry) {
+        return CLASSIC[geometry.getBoxSize()];
+    }
+
+    private short[] checkUnit(short[] unit) {
+        final int side = geometry.getSide();
+        if (unit.length != side)
+            throw new IllegalArgumentException("A unit of a " + geometry + " Sudoku needs " + side + " cells, not "
+                    + unit.length);
+        final boolean[] seen = new boolean[geometry.getCellCount()];
+        for (short cell : unit) {
+            if (cell < 0 || cell >= seen.length || seen[cell])
+                throw new IllegalArgumentException("Unit " + Arrays.toString(unit) + " is not made of distinct cells of a "
+                        + geometry + " Sudoku");
+            seen[cell] = true;
+        }
+        return unit;
+    }
+
+    private short[][] computePeers() {
+        final int cellCount = geometry.getCellCount();
+        final List<List<short[]>> groups = new ArrayList<>(cellCount);
+        for (int cell = 0; cell < cellCount; cell++)
+            groups.add(new ArrayList<>());
+        for (short[] unit : units) {
+            for (short cell : unit)
+                groups.get(cell).add(unit);
+        }
+        for (Cage cage : cages) {
+            for (short cell : cage.cells())
+                groups.get(cell).add(cage.cells());
+        }
+
+        final short[][] peers = new short[cellCount][];
+        final boolean[] peer = new boolean[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = 0;
+            for (short[] group : groups.get(cell)) {
+                for (short other : group) {
+                    if (other != cell && !peer[other]) {
+                        peer[other] = true;
+                        count++;
+                    }
+                }
+            }
+            peers[cell] = new short[count];
+            int k = 0;
+            for (int other = 0; other < cellCount; other++) {
+                if (peer[other]) {
+                    peers[cell][k++] = (short) other;
+                    peer[other] = false;
+                }
+            }
+        }
+        return peers;
+    }
+
+    private short[] computeSeers(short[] cage) {
+        final int[] seen = new int[geometry.getCellCount()];
+        for (short cell : cage) {
+            for (short peer : peers[cell])
+                seen[peer]++;
+        }
+        int count = 0;
+        for (int cell = 0; cell < seen.length; cell++) {
+            if (seen[cell] == cage.length && cageOf[cell] != cageOf[cage[0]])
+                count++;
+        }
+        final short[] seers = new short[count];
+        int k = 0;
+        for (int cell = 0; cell < seen.length; cell++) {
+            if (seen[cell] == cage.length && cageOf[cell] != cageOf[cage[0]])
+                seers[k++] = (short) cell;
+        }
+        return seers;
+    }
+
+    /**
+     * Finds the pairs of units sharing at least two cells, but not all of them. The intersections of the boxes with
+     * the rows and columns are left out as long as the boxes are kept, since the engine handles them separately.
+     */
+    private List<short[][]> computeOverlaps() {
+        final int side = geometry.getSide(), cellCount = geometry.getCellCount();
+        final List<short[][]> overlaps = new ArrayList<>();
+        final boolean[] inFirst = new boolean[cellCount];
+        for (int u = 0; u < units.length; u++) {
+            for (short cell : units[u])
+                inFirst[cell] = true;
+            for (int v = Math.max(u + 1, 2 * side); v < units.length; v++) {
+                if (boxes && v < 3 * side)
+                    continue;
+                int count = 0;
+                for (short cell : units[v]) {
+                    if (inFirst[cell])
+                        count++;
+                }
+                if (count < 2 || count == side)
+                    continue;
+                final short[] both = new short[count], first = new short[side - count], second = new short[side - count];
+                int b = 0, s = 0;
+                for (short cell : units[v]) {
+                    if (inFirst[cell])
+                        both[b++] = cell;
+                    else
+                        second[s++] = cell;
+                }
+                int f = 0;
+                for (short cell : units[u]) {
+                    if (!contains(both, cell))
+                        first[f++] = cell;
+                }
+                overlaps.add(new short[][]{both, first, second});
+            }
+            for (short cell : units[u])
+                inFirst[cell] = false;
+        }
+        return overlaps;
+    }
+
+    private static boolean contains(short[] cells, short cell) {
+        for (short c : cells) {
+            if (c == cell)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the geometry of the Sudoku
+     *
+     * @return the geometry
+     */
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Returns the constraints these rules have been compiled from
+     *
+     * @return the constraints, which cannot be modified
+     */
+    public List<Constraint> getConstraints() {
+        return constraints;
+    }
+
+    /**
+     * Returns whether these are the rules of the classic Sudoku, i.e. without any constraints
+     *
+     * @return whether there are no constraints
+     */
+    public boolean isClassic() {
+        return constraints.isEmpty();
+    }
+
+    /**
+     * Returns the number of units, i.e. rows, columns, boxes or regions and the additional units
+     *
+     * @return the number of units
+     */
+    public int getUnitCount() {
+        return units.length;
+    }
+
+    /**
+     * Returns the cells of a unit, see above. The array must not be modified.
+     *
+     * @param unit the unit
+     * @return the cells of the unit
+     */
+    public short[] unit(int unit) {
+        return units[unit];
+    }
+
+    /**
+     * Returns the peers of a cell, i.e. the cells sharing a unit or a cage with it, which must not contain the same
+     * digit. The array must not be modified.
+     *
+     * @param cell the cell
+     * @return the peers of the cell, in ascending order
+     */
+    public short[] peers(int cell) {
+        return peers[cell];
+    }
+
+    /**
+     * Returns the number of cages
+     *
+     * @return the number of cages
+     */
+    public int getCageCount() {
+        return cages.length;
+    }
+
+    /**
+     * Returns a cage
+     *
+     * @param cage the index of the cage, in the order of the constraints
+     * @return the cage
+     */
+    public Cage cage(int cage) {
+        return cages[cage];
+    }
+
+    /**
+     * Returns whether the boxes of the geometry are units, i.e. no constraint replaces them
+     */
+    boolean hasBoxes() {
+        return boxes;
+    }
+
+    /**
+     * Returns the index of the cage containing a cell, or -1 if it is not in a cage
+     */
+    int cageOf(int cell) {
+        return cageOf[cell];
+    }
+
+    /**
+     * Returns the combinations of digits that fill a cage, as masks. The array must not be modified.
+     */
+    int[] combinations(int cage) {
+        return combinations[cage];
+    }
+
+    /**
+     * Returns the cells outside a cage that see all of its cells, so that they cannot contain a digit the cage needs.
+     * The array must not be modified.
+     */
+    short[] seers(int cage) {
+        return seers[cage];
+    }
+
+    int getOverlapCount() {
+        return shared.length;
+    }
+
+    short[] shared(int overlap) {
+        return shared[overlap];
+    }
+
+    short[] onlyFirst(int overlap) {
+        return onlyFirst[overlap];
+    }
+
+    short[] onlySecond(int overlap) {
+        return onlySecond[overlap];
+    }
+
+    /**
+     * Returns the current thread's engine for these rules, which applies {@link Propagation#SINGLES} up to the classic
+     * size and {@link Propagation#FULL} beyond
+     */
+    GeneralEngine engine() {
+        return engines.get();
+    }
+
+    /**
+     * Evaluates whether a digit can be placed into a cell of a grid, i.e. whether none of the cell's peers contains it
+     * and its cage, if any, can still be filled in with it
+     *
+     * @param cells the entries of the grid, row by row
+     * @param cell  the cell
+     * @param digit the digit, or 0
+     * @return whether the digit can be placed without breaking the rules, {@code true} if {@code digit == 0}
+     */
+    public boolean isValid(byte[] cells, int cell, int digit) {
+        if (digit == 0)
+            return true;
+        for (short peer : peers[cell]) {
+            if (cells[peer] == digit)
+                return false;
+        }
+        final int cage = cageOf[cell];
+        if (cage < 0)
+            return true;
+        int digits = 1 << digit - 1;
+        for (short other : cages[cage].cells()) {
+            if (other != cell && cells[other] != 0)
+                digits |= 1 << cells[other] - 1;
+        }
+        for (int combination : combinations[cage]) {
+            if ((combination & digits) == digits)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return geometry + (constraints.isEmpty() ? "" : " " + constraints);
+    }
+}
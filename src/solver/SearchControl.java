@@ -0,0 +1,210 @@
+package solver;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits a search by a time budget and a node budget, allows cancelling it from another thread and reports its progress.
+ * Engines call {@link #checkpoint(long)} every {@link #CHECK_INTERVAL} nodes and stop searching as soon as it returns
+ * {@code false}, so a search overruns its budgets by at most that many nodes.
+ * <p></p>
+ * The time budget starts when the control is created, so a control created when a request arrives also limits the time
+ * the request waits for a thread. A control may be used for several searches one after another, e.g. for a batch of
+ * puzzles sharing one deadline; the node budget then applies to every search on its own.
+ *
+ * @see SolverEngine#solve(byte[], boolean[], SearchControl)
+ * @see AsyncSearch
+ */
+public final class SearchControl {
+
+    /**
+     * The number of nodes between two checkpoints, which is a power of 2 so that engines can test it with a mask
+     */
+    public static final int CHECK_INTERVAL = 1 << 8;
+
+    /**
+     * Why a search was stopped before it finished
+     */
+    public enum Reason {
+        /**
+         * {@link #cancel()} was called
+         */
+        CANCELLED,
+
+        /**
+         * The time budget was exhausted
+         */
+        TIMEOUT,
+
+        /**
+         * The node budget was exhausted
+         */
+        NODE_LIMIT
+    }
+
+    /**
+     * Receives the progress of a search, on the thread that searches
+     */
+    @FunctionalInterface
+    public interface Progress {
+
+        /**
+         * Reports the progress of a search
+         *
+         * @param nodes        the number of nodes the search has visited so far
+         * @param elapsedNanos the time since the control was created, in nanoseconds
+         */
+        void progress(long nodes, long elapsedNanos);
+    }
+
+    private final long start = System.nanoTime();
+    private final long timeoutNanos;
+    private final long maxNodes;
+    private final Progress progress;
+    private final long progressNanos;
+    private long lastProgress = start;
+    private volatile boolean cancelled;
+    private volatile Reason reason;
+
+    /**
+     * Creates a new control without budgets, which only allows cancelling the search
+     */
+    public SearchControl() {
+        this(null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new control with a time budget
+     *
+     * @param timeout the time the search may take, or {@code null} for no limit
+     */
+    public SearchControl(Duration timeout) {
+        this(timeout, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new control with a time and a node budget
+     *
+     * @param timeout  the time the search may take, or {@code null} for no limit
+     * @param maxNodes the number of nodes the search may visit, or {@link Long#MAX_VALUE} for no limit
+     */
+    public SearchControl(Duration timeout, long maxNodes) {
+        this(timeout, maxNodes, null, null);
+    }
+
+    /**
+     * Creates a new control with a time and a node budget that reports the progress of the search
+     *
+     * @param timeout  the time the search may take, or {@code null} for no limit
+     * @param maxNodes the number of nodes the search may visit, or {@link Long#MAX_VALUE} for no limit
+     * @param progress the callback receiving the progress, or {@code null}
+     * @param interval the minimum time between two calls of the callback
+     * @throws IllegalArgumentException if the node budget is not positive or the timeout or interval is negative
+     */
+    public SearchControl(Duration timeout, long maxNodes, Progress progress, Duration interval) {
+        if (maxNodes <= 0)
+            throw new IllegalArgumentException("Node budget " + maxNodes + " is not positive");
+        if (timeout != null && timeout.isNegative())
+            throw new IllegalArgumentException("Timeout " + timeout + " is negative");
+        this.timeoutNanos = timeout == null ? Long.MAX_VALUE : saturatedNanos(timeout);
+        this.maxNodes = maxNodes;
+        this.progress = progress;
+        if (progress != null && (Objects.requireNonNull(interval).isNegative()))
+            throw new IllegalArgumentException("Interval " + interval + " is negative");
+        this.progressNanos = progress == null ? Long.MAX_VALUE : saturatedNanos(interval);
+    }
+
+    /**
+     * Asks the search to stop at its next checkpoint. Has no effect on a search that has already finished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether {@link #cancel()} has been called
+     *
+     * @return whether the search has been cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns why the last search using this control was stopped
+     *
+     * @return the reason, or {@code null} if the last search has not been stopped
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Returns the time since this control was created
+     *
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Called by the engines at the start of every search and then every {@link #CHECK_INTERVAL} nodes: reports the
+     * progress if the interval has passed, and decides whether the search may go on. Once it returns {@code false},
+     * the engine must stop and report that it found no further solution.
+     *
+     * @param nodes the number of nodes the search has visited so far
+     * @return whether the search may go on
+     */
+    public boolean checkpoint(long nodes) {
+        final Reason stop;
+        final long now = System.nanoTime();
+        if (cancelled)
+            stop = Reason.CANCELLED;
+        else if (now - start >= timeoutNanos)
+            stop = Reason.TIMEOUT;
+        else if (nodes >= maxNodes)
+            stop = Reason.NODE_LIMIT;
+        else
+            stop = null;
+        reason = stop;
+        if (stop != null)
+            return false;
+
+        if (now - lastProgress >= progressNanos) {
+            lastProgress = now;
+            progress.progress(nodes, now - start);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the exception describing why the last search was stopped: a {@link CancellationException} if it was
+     * cancelled, and a {@link TimeoutException} if it exhausted a budget
+     *
+     * @return the exception, or {@code null} if the last search has not been stopped
+     */
+    public Exception toException() {
+        final Reason reason = this.reason;
+        if (reason == null)
+            return null;
+        switch (reason) {
+            case CANCELLED:
+                return new CancellationException("Search cancelled");
+            case TIMEOUT:
+                return new TimeoutException("Search exceeded its time budget of " + timeoutNanos / 1_000_000 + " ms");
+            default:
+                return new TimeoutException("Search exceeded its budget of " + maxNodes + " nodes");
+        }
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
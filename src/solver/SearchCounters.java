@@ -0,0 +1,39 @@
+package solver;
+
+/**
+ * An engine that counts the work done by its last call to {@code solve}, {@code count} or {@code enumerate}. The
+ * counters are only valid until the next search of the same engine, and like the engine itself, they must only be read
+ * by the thread that uses it.
+ *
+ * @see Instrumentation
+ */
+public interface SearchCounters {
+
+    /**
+     * Returns the number of nodes of the search tree visited by the last search
+     *
+     * @return the number of nodes visited
+     */
+    long getNodes();
+
+    /**
+     * Returns the number of nodes of the last search that turned out to be dead ends
+     *
+     * @return the number of backtracks
+     */
+    long getBacktracks();
+
+    /**
+     * Returns the depth of the deepest node of the last search, 0 being the root
+     *
+     * @return the maximum depth of the search tree
+     */
+    int getMaxDepth();
+
+    /**
+     * Returns the number of propagation steps of the last search
+     *
+     * @return the number of propagation steps
+     */
+    long getPropagations();
+}
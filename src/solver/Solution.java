@@ -0,0 +1,43 @@
+package solver;
+
+/**
+ * A read-only view of a solution that is passed to a {@link SolutionVisitor}. The view is only valid while the visitor
+ * is being called.
+ * <p></p>
+ * The cells and positions below are the ones of a 9x9 Sudoku; the views of a {@link GeneralEngine} use the ones of its
+ * {@link Geometry} instead.
+ */
+@FunctionalInterface
+public interface Solution {
+
+    /**
+     * Returns the entry of a cell
+     *
+     * @param cell the cell, i.e. {@code 9 * row + column}
+     * @return the cell's entry, between 1 and 9 (inclusive)
+     */
+    byte get(int cell);
+
+    /**
+     * Returns the entry at position {@literal (row, column)}
+     *
+     * @param row    the row, between 0 and 8 (inclusive)
+     * @param column the column, between 0 and 8 (inclusive)
+     * @return the entry, between 1 and 9 (inclusive)
+     */
+    default byte get(int row, int column) {
+        return get(9 * row + column);
+    }
+
+    /**
+     * Copies the solution into a new array, which remains valid after the visitor has returned
+     *
+     * @return the 81 entries of the solution, row by row
+     */
+    default byte[] toArray() {
+        final byte[] cells = new byte[Cells.COUNT];
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            cells[cell] = get(cell);
+        return cells;
+    }
+}
@@ -0,0 +1,283 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the solutions of 9x9 puzzles that recognizes puzzles equivalent under the symmetries of the
+ * Sudoku, see {@link CanonicalForm}. A puzzle that has been solved before is answered by a single lookup; otherwise,
+ * its canonical form is looked up, and the solution cached for an equivalent puzzle is mapped back by the inverse
+ * transformation. Only if both miss, the engine searches, and the solution of the canonical form is cached. Puzzles
+ * without a solution are cached as well.
+ * <p></p>
+ * The cache holds at most its capacity of entries, each solved puzzle taking up to two: one for the puzzle itself and
+ * one for its canonical form. When it is full, the least recently used entries are evicted. The entries are spread
+ * over segments with their own locks, so that many threads can use the same cache; the counters are striped like the
+ * ones of {@link SolverMetrics}.
+ * <p></p>
+ * For a puzzle with several solutions, the cache may return a different one than the engine would have found first,
+ * since the one cached may have been found for an equivalent puzzle.
+ */
+public final class SolutionCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    /**
+     * The value cached for puzzles without a solution
+     */
+    private static final byte[] NO_SOLUTION = new byte[0];
+
+    private final int capacity;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder symmetricHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new empty cache
+     *
+     * @param capacity the number of entries after which the least recently used ones are evicted
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SolutionCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The capacity must be positive, not " + capacity);
+        this.capacity = capacity;
+        final int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, capacity));
+        segments = new Segment[count];
+        for (int k = 0; k < count; k++)
+            segments[k] = new Segment(capacity / count + (k < capacity % count ? 1 : 0));
+    }
+
+    /**
+     * A part of the cache with its own lock, evicting its least recently used entry when it is full
+     */
+    private final class Segment extends LinkedHashMap<Key, byte[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+            if (size() <= capacity)
+                return false;
+            evictions.increment();
+            return true;
+        }
+    }
+
+    /**
+     * The entries of a grid packed into words of 16 entries, and whether the grid is a canonical form, whose solution
+     * is cached in the canonical form's frame
+     */
+    private static final class Key {
+        private final long[] words = new long[(Cells.COUNT + 15) / 16];
+        private final boolean canonical;
+        private final int hash;
+
+        Key(byte[] cells, boolean canonical) {
+            for (int cell = 0; cell < Cells.COUNT; cell++)
+                words[cell / 16] |= (long) cells[cell] << 4 * (cell % 16);
+            this.canonical = canonical;
+            this.hash = 31 * Arrays.hashCode(words) + (canonical ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            final Key key = (Key) o;
+            return hash == key.hash && canonical == key.canonical && Arrays.equals(words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Returns the solution of a puzzle, from the cache if the puzzle or an equivalent one has been solved before, and
+     * otherwise by searching with the specified engine. Searches are recorded by the {@link Instrumentation} if it is
+     * enabled; cache hits are not.
+     *
+     * @param puzzle the 81 entries of the puzzle, row by row, between 0 and 9 (inclusive), all of which are given
+     * @param engine the engine searching if the cache misses
+     * @return a new array holding the solution, or {@code null} if the puzzle has none
+     * @throws IllegalArgumentException if the puzzle does not have 81 entries or one of them is out of range
+     */
+    public byte[] solve(byte[] puzzle, SolverEngine engine) {
+        return solve(puzzle, engine, null);
+    }
+
+    /**
+     * Like {@link #solve(byte[], SolverEngine)}, but a search is limited by a control, see {@link
+     * SolverEngine#solve(byte[], boolean[], SearchControl)}. If the control stops the search, nothing is cached, {@code
+     * null} is returned, and {@link SearchControl#getReason()} tells why. Puzzles answered from the cache do not
+     * consult the control.
+     *
+     * @param puzzle  the 81 entries of the puzzle, row by row, between 0 and 9 (inclusive), all of which are given
+     * @param engine  the engine searching if the cache misses
+     * @param control the control limiting the search, or {@code null} for no limits
+     * @return a new array holding the solution, or {@code null} if the puzzle has none or the search was stopped
+     * @throws IllegalArgumentException if the puzzle does not have 81 entries or one of them is out of range
+     */
+    public byte[] solve(byte[] puzzle, SolverEngine engine, SearchControl control) {
+        if (puzzle.length != Cells.COUNT)
+            throw new IllegalArgumentException("Expected " + Cells.COUNT + " cells, got " + puzzle.length);
+        for (byte entry : puzzle) {
+            if (entry < 0 || entry > 9)
+                throw new IllegalArgumentException("Entry " + entry + " is not between 0 and 9");
+        }
+
+        final Key exact = new Key(puzzle, false);
+        byte[] solution = get(exact);
+        if (solution != null) {
+            hits.increment();
+            return solution == NO_SOLUTION ? null : solution.clone();
+        }
+
+        final CanonicalForm form = CanonicalForm.of(puzzle);
+        final Key canonical = form.isReduced() ? new Key(form.cells(), true) : null;
+        final byte[] cached = canonical != null ? get(canonical) : null;
+        if (cached != null) {
+            hits.increment();
+            symmetricHits.increment();
+            solution = cached == NO_SOLUTION ? NO_SOLUTION : form.fromCanonical(cached);
+        } else {
+            misses.increment();
+            final byte[] cells = form.getCells();
+            final boolean[] given = new boolean[Cells.COUNT];
+            for (int cell = 0; cell < Cells.COUNT; cell++)
+                given[cell] = cells[cell] != 0;
+
+            final SolveEvent event = Instrumentation.begin("solve");
+            final boolean found = control == null ? engine.solve(cells, given) : engine.solve(cells, given, control);
+            if (event != null)
+                Instrumentation.end(event, engine, found ? 1 : 0);
+            if (control != null && control.getReason() != null)
+                return null;
+            if (canonical != null)
+                put(canonical, found ? cells : NO_SOLUTION);
+            solution = !found ? NO_SOLUTION : form.isReduced() ? form.fromCanonical(cells) : cells;
+        }
+        put(exact, solution);
+        return solution == NO_SOLUTION ? null : solution.clone();
+    }
+
+    private Segment segment(Key key) {
+        final int h = key.hashCode();
+        return segments[(h ^ h >>> 16) & segments.length - 1];
+    }
+
+    private byte[] get(Key key) {
+        final Segment segment = segment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    private void put(Key key, byte[] solution) {
+        final Segment segment = segment(key);
+        synchronized (segment) {
+            segment.put(key, solution);
+        }
+    }
+
+    /**
+     * Removes all entries. The counters are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries
+     *
+     * @return the number of entries, at most the capacity
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of entries after which the least recently used ones are evicted
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of puzzles answered from the cache
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of puzzles answered from the cache by the solution of an equivalent puzzle, which are part of
+     * the {@link #getHits() hits}
+     *
+     * @return the number of hits through the canonical form
+     */
+    public long getSymmetricHits() {
+        return symmetricHits.sum();
+    }
+
+    /**
+     * Returns the number of puzzles that had to be searched
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries that have been evicted
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the share of the puzzles answered from the cache
+     *
+     * @return the hit rate, between 0 and 1, or 0 if no puzzle has been looked up
+     */
+    public double getHitRate() {
+        final long hits = getHits(), lookups = hits + getMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits (%d symmetric), %d misses, %.1f%% hit rate, %d evictions, %d of %d entries",
+                getHits(), getSymmetricHits(), getMisses(), 100 * getHitRate(), getEvictions(), size(), capacity);
+    }
+}
@@ -0,0 +1,17 @@
+package solver;
+
+/**
+ * A callback that receives the solutions enumerated by {@link SolverEngine#enumerate(byte[], boolean[],
+ * SolutionVisitor)}
+ */
+@FunctionalInterface
+public interface SolutionVisitor {
+
+    /**
+     * Receives a solution
+     *
+     * @param solution a read-only view of the solution, which is only valid during this call
+     * @return whether the enumeration should continue
+     */
+    boolean visit(Solution solution);
+}
@@ -0,0 +1,48 @@
+package solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JDK Flight Recorder event emitted for every search by {@link Instrumentation}. Its duration is the one of the
+ * search, and its fields are the ones of {@link SolveStatistics}.
+ */
+@Name("sudoku.Solve")
+@Label("Sudoku Search")
+@Category("Sudoku")
+@Description("A search of a Sudoku solver engine")
+@StackTrace(false)
+public final class SolveEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Engine")
+    String engine;
+
+    @Label("Solutions")
+    long solutions;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Backtracks")
+    long backtracks;
+
+    @Label("Maximum Depth")
+    int maxDepth;
+
+    @Label("Propagations")
+    long propagations;
+
+    /**
+     * The value of {@link System#nanoTime()} when the search started, which is not recorded
+     */
+    transient long start;
+
+    SolveEvent() { }
+}
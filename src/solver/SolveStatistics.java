@@ -0,0 +1,109 @@
+package solver;
+
+/**
+ * The statistics of a single search, collected by {@link Instrumentation}. The counters are the ones of {@link
+ * SearchCounters}; engines that do not count their work report -1 for all of them.
+ */
+public final class SolveStatistics {
+
+    private final String engine;
+    private final long solutions;
+    private final long nodes, backtracks, propagations;
+    private final int maxDepth;
+    private final long elapsedNanos;
+
+    /**
+     * Creates new statistics
+     *
+     * @param engine       the name of the engine
+     * @param solutions    the number of solutions found
+     * @param nodes        the number of nodes visited, or -1 if unknown
+     * @param backtracks   the number of dead ends, or -1 if unknown
+     * @param maxDepth     the maximum depth of the search tree, or -1 if unknown
+     * @param propagations the number of propagation steps, or -1 if unknown
+     * @param elapsedNanos the time the search took, in nanoseconds
+     */
+    public SolveStatistics(String engine, long solutions, long nodes, long backtracks, int maxDepth,
+                           long propagations, long elapsedNanos) {
+        this.engine = engine;
+        this.solutions = solutions;
+        this.nodes = nodes;
+        this.backtracks = backtracks;
+        this.maxDepth = maxDepth;
+        this.propagations = propagations;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the name of the engine that searched, i.e. its simple class name
+     *
+     * @return the name of the engine
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the number of solutions found, which is at most 1 for {@code solve}
+     *
+     * @return the number of solutions found
+     */
+    public long getSolutions() {
+        return solutions;
+    }
+
+    /**
+     * Returns the number of nodes visited
+     *
+     * @return the number of nodes visited, or -1 if the engine does not count them
+     * @see SearchCounters#getNodes()
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of dead ends
+     *
+     * @return the number of dead ends, or -1 if the engine does not count them
+     * @see SearchCounters#getBacktracks()
+     */
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    /**
+     * Returns the maximum depth of the search tree
+     *
+     * @return the maximum depth of the search tree, or -1 if the engine does not count it
+     * @see SearchCounters#getMaxDepth()
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of propagation steps
+     *
+     * @return the number of propagation steps, or -1 if the engine does not count them
+     * @see SearchCounters#getPropagations()
+     */
+    public long getPropagations() {
+        return propagations;
+    }
+
+    /**
+     * Returns the wall-clock time of the search
+     *
+     * @return the elapsed time, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return engine + ": " + solutions + " solutions, " + nodes + " nodes, " + backtracks + " backtracks, depth "
+                + maxDepth + ", " + propagations + " propagations, " + elapsedNanos / 1000 + " us";
+    }
+}
@@ -0,0 +1,109 @@
+package solver;
+
+/**
+ * A strategy for searching the solutions of a Sudoku. Every engine enumerates the solutions of a grid in a fixed,
+ * deterministic order, which allows {@link main.Sudoku#solve()} to compute one solution after another.
+ * <p></p>
+ * Engines usually keep their search state in preallocated fields and are therefore not thread-safe. {@link Engines}
+ * provides one instance of every built-in engine per thread.
+ *
+ * @see Engines
+ */
+public interface SolverEngine {
+
+    /**
+     * Fills in the next solution of the specified grid. If none of the cells that are not given is set, the first
+     * solution in this engine's order is computed; if they contain a solution, the one following it is. If there is no
+     * such solution, or the given entries break the rules, the grid remains unchanged.
+     *
+     * @param cells the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given which entries are given, i.e. must not be changed
+     * @return whether another solution has been found
+     */
+    boolean solve(byte[] cells, boolean[] given);
+
+    /**
+     * Like {@link #solve(byte[], boolean[])}, but stops early if the control asks to, see {@link SearchControl}. In that
+     * case, the grid remains unchanged, {@code false} is returned, and {@link SearchControl#getReason()} tells why.
+     * <p></p>
+     * The default implementation only consults the control before it starts searching; engines whose searches may take
+     * long should override it and call {@link SearchControl#checkpoint(long)} while searching.
+     *
+     * @param cells   the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given   which entries are given, i.e. must not be changed
+     * @param control the control limiting the search
+     * @return whether another solution has been found before the search was stopped
+     */
+    default boolean solve(byte[] cells, boolean[] given, SearchControl control) {
+        return control.checkpoint(0) && solve(cells, given);
+    }
+
+    /**
+     * Counts the solutions of the specified grid, stopping as soon as the limit is reached. Only the given entries are
+     * taken into account, and the grid is not changed.
+     * <p></p>
+     * The default implementation calls {@link #solve(byte[], boolean[])} on a copy of the grid until it fails; engines
+     * should override it with a single search that does not allocate anything.
+     *
+     * @param cells the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given which entries are given
+     * @param limit the number of solutions after which counting stops
+     * @return the number of solutions, but at most {@code limit}; 0 if the given entries break the rules
+     */
+    default long count(byte[] cells, boolean[] given, long limit) {
+        final byte[] copy = new byte[Cells.COUNT];
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            copy[cell] = given[cell] ? cells[cell] : 0;
+        long count = 0;
+        while (count < limit && solve(copy, given))
+            count++;
+        return count;
+    }
+
+    /**
+     * Like {@link #count(byte[], boolean[], long)}, but stops early if the control asks to, see {@link SearchControl}.
+     * In that case, the solutions found so far are returned, and {@link SearchControl#getReason()} tells why.
+     * <p></p>
+     * The default implementation only consults the control before it starts searching; engines whose searches may take
+     * long should override it and call {@link SearchControl#checkpoint(long)} while searching.
+     *
+     * @param cells   the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given   which entries are given
+     * @param limit   the number of solutions after which counting stops
+     * @param control the control limiting the search
+     * @return the number of solutions found before the search was stopped, but at most {@code limit}
+     */
+    default long count(byte[] cells, boolean[] given, long limit, SearchControl control) {
+        return control.checkpoint(0) ? count(cells, given, limit) : 0;
+    }
+
+    /**
+     * Enumerates the solutions of the specified grid in this engine's order, passing each of them to the visitor until
+     * it returns {@code false}. Only the given entries are taken into account, and the grid is not changed.
+     * <p></p>
+     * The visitor receives a read-only view that is only valid during the call and changes with every solution; it has
+     * to call {@link Solution#toArray()} to keep a solution. Since the view is backed by the engine's state, the visitor
+     * must not use this engine itself, e.g. by solving other puzzles with the same thread's engine.
+     * <p></p>
+     * The default implementation calls {@link #solve(byte[], boolean[])} on a copy of the grid until it fails; engines
+     * should override it with a single search that does not allocate anything.
+     *
+     * @param cells   the 81 entries of the grid, row by row, between 0 and 9 (inclusive)
+     * @param given   which entries are given
+     * @param visitor the visitor receiving the solutions
+     * @return the number of solutions passed to the visitor
+     */
+    default long enumerate(byte[] cells, boolean[] given, SolutionVisitor visitor) {
+        final byte[] copy = new byte[Cells.COUNT];
+        for (int cell = 0; cell < Cells.COUNT; cell++)
+            copy[cell] = given[cell] ? cells[cell] : 0;
+        final Solution view = cell -> copy[cell];
+        long count = 0;
+        while (solve(copy, given)) {
+            count++;
+            if (!visitor.visit(view))
+                break;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,133 @@
+package solver;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters aggregating the {@link SolveStatistics} of many searches, e.g. of a batch run. Any number of threads may
+ * record into the same instance; the counters are striped, so they do not become a point of contention.
+ */
+public final class SolverMetrics {
+
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder solutions = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder propagations = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxElapsedNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Adds the statistics of a search to the counters. Unknown counters are skipped.
+     *
+     * @param statistics the statistics of the search
+     */
+    public void record(SolveStatistics statistics) {
+        searches.increment();
+        solutions.add(statistics.getSolutions());
+        if (statistics.getNodes() >= 0) {
+            nodes.add(statistics.getNodes());
+            backtracks.add(statistics.getBacktracks());
+            propagations.add(statistics.getPropagations());
+            maxDepth.accumulate(statistics.getMaxDepth());
+        }
+        elapsedNanos.add(statistics.getElapsedNanos());
+        maxElapsedNanos.accumulate(statistics.getElapsedNanos());
+    }
+
+    /**
+     * Resets all counters to 0. Searches recorded at the same time may or may not be counted.
+     */
+    public void reset() {
+        searches.reset();
+        solutions.reset();
+        nodes.reset();
+        backtracks.reset();
+        propagations.reset();
+        elapsedNanos.reset();
+        maxDepth.reset();
+        maxElapsedNanos.reset();
+    }
+
+    /**
+     * Returns the number of searches recorded
+     *
+     * @return the number of searches recorded
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * Returns the number of solutions found by all searches
+     *
+     * @return the number of solutions found by all searches
+     */
+    public long getSolutions() {
+        return solutions.sum();
+    }
+
+    /**
+     * Returns the number of nodes visited by all searches
+     *
+     * @return the number of nodes visited by all searches
+     */
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Returns the number of dead ends of all searches
+     *
+     * @return the number of dead ends of all searches
+     */
+    public long getBacktracks() {
+        return backtracks.sum();
+    }
+
+    /**
+     * Returns the number of propagation steps of all searches
+     *
+     * @return the number of propagation steps of all searches
+     */
+    public long getPropagations() {
+        return propagations.sum();
+    }
+
+    /**
+     * Returns the maximum depth of the search trees of all searches
+     *
+     * @return the maximum depth of the search trees of all searches
+     */
+    public int getMaxDepth() {
+        return (int) maxDepth.get();
+    }
+
+    /**
+     * Returns the total time of all searches, in nanoseconds
+     *
+     * @return the total time of all searches, in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos.sum();
+    }
+
+    /**
+     * Returns the time of the slowest search, in nanoseconds
+     *
+     * @return the time of the slowest search, in nanoseconds
+     */
+    public long getMaxElapsedNanos() {
+        return maxElapsedNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        final long searches = getSearches();
+        return searches + " searches, " + getSolutions() + " solutions, " + getNodes() + " nodes, " + getBacktracks()
+                + " backtracks, " + getPropagations() + " propagations, max depth " + getMaxDepth() + ", "
+                + (searches == 0 ? 0 : getElapsedNanos() / searches / 1000) + " us mean, "
+                + getMaxElapsedNanos() / 1000 + " us max";
+    }
+}
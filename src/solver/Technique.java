@@ -0,0 +1,83 @@
+package solver;
+
+/**
+ * The logical techniques {@link Grader} solves puzzles with, in the order they are tried. Every technique has a
+ * difficulty rating on a scale similar to the one of Sudoku Explainer; the rating of a puzzle is the one of the hardest
+ * technique it requires.
+ */
+public enum Technique {
+
+    /**
+     * Placing the only digit that fits into a row, column or box
+     */
+    HIDDEN_SINGLE(1.5),
+
+    /**
+     * Placing the only candidate of a cell
+     */
+    NAKED_SINGLE(2.3),
+
+    /**
+     * Pointing and claiming: if a digit of a box fits only into one of its rows or columns, it is removed from the rest
+     * of that line, and vice versa
+     */
+    LOCKED_CANDIDATES(2.6),
+
+    /**
+     * Two cells of a unit with the same two candidates, which are removed from the unit's other cells
+     */
+    NAKED_PAIR(3.0),
+
+    /**
+     * A digit that fits into the same two columns of two rows, which is removed from the rest of these columns, or
+     * vice versa
+     */
+    X_WING(3.2),
+
+    /**
+     * Two digits that fit only into the same two cells of a unit, whose other candidates are removed
+     */
+    HIDDEN_PAIR(3.4),
+
+    /**
+     * Three cells of a unit with only three candidates between them, which are removed from the unit's other cells
+     */
+    NAKED_TRIPLE(3.6),
+
+    /**
+     * Like {@link #X_WING}, but with three rows and three columns
+     */
+    SWORDFISH(3.8),
+
+    /**
+     * Three digits that fit only into the same three cells of a unit, whose other candidates are removed
+     */
+    HIDDEN_TRIPLE(4.0),
+
+    /**
+     * A cell with the candidates {@code xy} seeing cells with {@code xz} and {@code yz}, so {@code z} is removed from
+     * all cells seeing both of them
+     */
+    XY_WING(4.2),
+
+    /**
+     * Placing a digit without a logical reason, since none of the other techniques makes progress. The grader always
+     * guesses right, so this only counts how often the ladder got stuck.
+     */
+    GUESS(10.0);
+
+    private final double rating;
+
+    Technique(double rating) {
+        this.rating = rating;
+    }
+
+    /**
+     * Returns the difficulty rating of this technique
+     *
+     * @return the rating, between 1.5 and 10
+     */
+    public double getRating() {
+        return rating;
+    }
+}